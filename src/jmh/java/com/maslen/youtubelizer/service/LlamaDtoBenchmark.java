@@ -0,0 +1,76 @@
+package com.maslen.youtubelizer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (де)сериализация DTO запроса и ответа llama-server
+ * ({@code /v1/chat/completions}) для текста заданной длины.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LlamaDtoBenchmark {
+
+    @Param({ "4000", "40000" })
+    private int length;
+
+    // Configured like Spring Boot's mapper: unknown response fields are ignored
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private LlamaService.ChatCompletionRequest request;
+    private String response;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        String[] words = { "the", "text", "is", "normalized", "привет", "мир", "длинный", "текст", "\"quoted\"" };
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(length + 32);
+        while (sb.length() < length) {
+            sb.append(words[random.nextInt(words.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+        }
+        String text = sb.toString();
+
+        request = LlamaService.ChatCompletionRequest.builder()
+                .model("qwen2.5")
+                .messages(List.of(new LlamaService.Message("user", text)))
+                .temperature(0.1)
+                .maxTokens(1024)
+                .stream(false)
+                .build();
+        response = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1700000000,"
+                + "\"model\":\"qwen2.5\",\"choices\":[{\"index\":0,\"finish_reason\":\"stop\",\"message\":"
+                + objectMapper.writeValueAsString(new LlamaService.Message("assistant", text))
+                + "}],\"usage\":{\"prompt_tokens\":1200,\"completion_tokens\":1024,\"total_tokens\":2224}}";
+    }
+
+    @Benchmark
+    public String serializeRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Benchmark
+    public LlamaService.ChatCompletionResponse deserializeResponse() throws JsonProcessingException {
+        return objectMapper.readValue(response, LlamaService.ChatCompletionResponse.class);
+    }
+}
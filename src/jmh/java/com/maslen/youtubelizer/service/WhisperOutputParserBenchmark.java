@@ -0,0 +1,86 @@
+package com.maslen.youtubelizer.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор вывода whisper-cli: сегменты основного формата и сегменты с метками
+ * без миллисекунд, которые разбираются запасным путём. Число сегментов
+ * соответствует видео примерно на 10 минут и на 1.5 часа.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WhisperOutputParserBenchmark {
+
+    @Param({ "200", "2000" })
+    private int segments;
+
+    private List<String> lines;
+    private List<String> looseLines;
+
+    @Setup
+    public void setUp() {
+        String[] words = { "the", "model", "speaks", "about", "neural", "networks", "and", "привет", "мир",
+                "сегодня", "мы", "поговорим" };
+        Random random = new Random(42);
+        lines = new ArrayList<>();
+        lines.add("whisper_init_from_file_with_params_no_state: loading model from 'models/ggml-large-v3.bin'");
+        lines.add("system_info: n_threads = 8 / 16 | AVX = 1 | AVX2 = 1 | FMA = 1");
+        lines.add("main: processing 'audio_16k.wav' (9600000 samples, 600.0 sec), 8 threads, lang = auto");
+        lines.add("whisper_full_with_state: auto-detected language: ru (p = 0.97)");
+
+        looseLines = new ArrayList<>();
+        for (int i = 0; i < segments; i++) {
+            StringBuilder text = new StringBuilder();
+            int wordCount = 8 + random.nextInt(12);
+            for (int w = 0; w < wordCount; w++) {
+                text.append(words[random.nextInt(words.length)]).append(w % 5 == 4 ? "  " : " ");
+            }
+            String from = timestamp(i * 3);
+            String to = timestamp(i * 3 + 3);
+            lines.add("[" + from + " --> " + to + "]   " + text);
+            // Timestamps without milliseconds only match the fallback pattern
+            looseLines.add("[" + from.substring(0, 8) + " --> " + to.substring(0, 8) + "]  " + text);
+        }
+    }
+
+    @Benchmark
+    public String parseLines() {
+        WhisperOutputParser parser = new WhisperOutputParser();
+        for (String line : lines) {
+            parser.accept(line);
+        }
+        return parser.transcription();
+    }
+
+    @Benchmark
+    public String fallbackParsing() {
+        WhisperOutputParser parser = new WhisperOutputParser();
+        for (String line : looseLines) {
+            parser.accept(line);
+        }
+        return parser.transcription();
+    }
+
+    private static String timestamp(int seconds) {
+        return String.format("%02d:%02d:%02d.000", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,62 @@
+package com.maslen.youtubelizer.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нормализация пробелов в транскрипции: прежний {@code replaceAll("\\s+", " ")}
+ * против {@link WhisperOutputParser#normalizeWhitespace(String)}. Текст с
+ * двойными пробелами и переводами строк (вывод whisper) и уже чистый текст
+ * (повторная нормализация в {@code TranscriptionService}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WhitespaceNormalizationBenchmark {
+
+    @Param({ "100000", "1000000" })
+    private int length;
+
+    @Param({ "true", "false" })
+    private boolean dirty;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        String[] words = { "the", "transcription", "of", "a", "video", "привет", "мир", "длинный", "текст" };
+        String[] dirtySeparators = { " ", " ", " ", "  ", "\n", " \t " };
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(length + 32);
+        while (sb.length() < length) {
+            sb.append(words[random.nextInt(words.length)]);
+            sb.append(dirty ? dirtySeparators[random.nextInt(dirtySeparators.length)] : " ");
+        }
+        text = sb.toString().trim();
+    }
+
+    @Benchmark
+    public String regex() {
+        return text.replaceAll("\\s+", " ").trim();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return WhisperOutputParser.normalizeWhitespace(text);
+    }
+}
@@ -0,0 +1,90 @@
+package com.maslen.youtubelizer.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Пропускная способность {@link ZipPackagingService}: медиафайлы (без сжатия) и
+ * тексты (DEFLATE) на диск и в {@link OutputStream#nullOutputStream()}, чтобы
+ * отделить стоимость CRC и сжатия от записи на диск. Медиа — случайные байты,
+ * как уже сжатые mp4/m4a.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ZipPackagingBenchmark {
+
+    @Param({ "16", "128" })
+    private int mediaMb;
+
+    private final ZipPackagingService zipPackagingService = new ZipPackagingService();
+
+    private Path workDir;
+    private List<File> mediaFiles;
+    private Map<String, String> textEntries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("zip_bench");
+        Random random = new Random(42);
+        byte[] video = new byte[mediaMb * 1024 * 1024];
+        random.nextBytes(video);
+        byte[] audio = new byte[video.length / 8];
+        random.nextBytes(audio);
+        mediaFiles = List.of(Files.write(workDir.resolve("video.mp4"), video).toFile(),
+                Files.write(workDir.resolve("audio.m4a"), audio).toFile());
+
+        String[] words = { "the", "transcription", "of", "a", "video", "привет", "мир", "длинный", "текст" };
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 200_000) {
+            sb.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        textEntries = new LinkedHashMap<>();
+        textEntries.put("transcription.txt", sb.toString());
+        textEntries.put("normalized.txt", sb.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(workDir)) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public File createArchive() throws IOException {
+        return zipPackagingService.createArchive(workDir.resolve("content.zip"), mediaFiles, textEntries);
+    }
+
+    @Benchmark
+    public void writeArchiveToNull() throws IOException {
+        zipPackagingService.writeArchive(OutputStream.nullOutputStream(), mediaFiles, textEntries);
+    }
+}
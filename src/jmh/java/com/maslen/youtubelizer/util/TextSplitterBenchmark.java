@@ -0,0 +1,109 @@
+package com.maslen.youtubelizer.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@link TextSplitter} с прежним разбиением через регулярные
+ * выражения. Аллокации смотреть с профилировщиком {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextSplitterBenchmark {
+
+    private static final int MAX_LENGTH = 4000;
+
+    @Param({ "10000", "100000" })
+    private int length;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        String[] words = { "the", "transcription", "of", "a", "video", "is", "split", "into", "messages",
+                "привет", "мир", "длинный", "текст" };
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(length + 32);
+        while (sb.length() < length) {
+            sb.append(words[random.nextInt(words.length)]);
+            sb.append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        text = sb.toString();
+    }
+
+    @Benchmark
+    public int[] boundaries() {
+        return TextSplitter.boundaries(text, MAX_LENGTH);
+    }
+
+    @Benchmark
+    public List<CharSequence> views() {
+        return TextSplitter.split(text, MAX_LENGTH);
+    }
+
+    @Benchmark
+    public String[] legacyRegex() {
+        return legacySplit(text, MAX_LENGTH);
+    }
+
+    /** Реализация, которая раньше дублировалась в обработчиках */
+    private static String[] legacySplit(String text, int maxLength) {
+        if (text.length() <= maxLength) {
+            return new String[] { text };
+        }
+
+        List<String> parts = new ArrayList<>();
+        String[] sentences = text.split("(?<=[.!?])\\s+");
+
+        StringBuilder currentPart = new StringBuilder();
+        for (String sentence : sentences) {
+            if (currentPart.length() + sentence.length() > maxLength) {
+                if (currentPart.length() > 0) {
+                    parts.add(currentPart.toString().trim());
+                    currentPart = new StringBuilder();
+                }
+                if (sentence.length() > maxLength) {
+                    String[] words = sentence.split("\\s+");
+                    StringBuilder temp = new StringBuilder();
+                    for (String word : words) {
+                        if (temp.length() + word.length() > maxLength) {
+                            parts.add(temp.toString().trim());
+                            temp = new StringBuilder(word + " ");
+                        } else {
+                            temp.append(word).append(" ");
+                        }
+                    }
+                    if (temp.length() > 0) {
+                        parts.add(temp.toString().trim());
+                    }
+                } else {
+                    currentPart.append(sentence).append(" ");
+                }
+            } else {
+                currentPart.append(sentence).append(" ");
+            }
+        }
+        if (currentPart.length() > 0) {
+            parts.add(currentPart.toString().trim());
+        }
+        return parts.toArray(new String[0]);
+    }
+}
@@ -2,6 +2,8 @@ package com.maslen.youtubelizer.bot;
 
 import com.maslen.youtubelizer.entity.Channel;
 import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.AdmissionDecision;
+import com.maslen.youtubelizer.model.SearchResult;
 import com.maslen.youtubelizer.model.TaskStatus;
 import com.maslen.youtubelizer.model.TaskType;
 import com.maslen.youtubelizer.repository.DownloadTaskRepository;
@@ -9,6 +11,9 @@ import com.maslen.youtubelizer.service.TelegramNotificationService;
 import com.maslen.youtubelizer.service.YouTubeService;
 import com.maslen.youtubelizer.service.TaskSchedulerService;
 import com.maslen.youtubelizer.service.MessageService;
+import com.maslen.youtubelizer.service.VideoSearchService;
+import com.maslen.youtubelizer.service.TaskCostEstimator;
+import com.maslen.youtubelizer.service.AdmissionControlService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -45,35 +50,57 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
     private final TelegramClient telegramClient;
     private final TelegramNotificationService notificationService;
     private final String botToken;
+    private final boolean pollingEnabled;
     private final YouTubeService youTubeService;
     private final DownloadTaskRepository downloadTaskRepository;
     private final MessageService messageService;
     private final TaskSchedulerService taskSchedulerService;
+    private final VideoSearchService videoSearchService;
+    private final TaskCostEstimator taskCostEstimator;
+    private final AdmissionControlService admissionControlService;
 
     private TelegramBotsLongPollingApplication botsApplication;
 
+    private static final String SEARCH_COMMAND = "/search";
+    private static final int SEARCH_RESULTS_LIMIT = 5;
+    /** Начиная с этого ожидания пользователю сообщается, сколько ждать */
+    private static final long WAIT_NOTICE_SECONDS = 300;
+
     // Track users waiting to enter custom donation amount: chatId -> languageCode
     private final Map<Long, String> pendingDonationUsers = new ConcurrentHashMap<>();
 
     public YouTubeLizerBot(
             @Value("${telegram.bot.token}") String botToken,
+            @Value("${telegram.bot.polling-enabled:true}") boolean pollingEnabled,
             TelegramClient telegramClient,
             TelegramNotificationService notificationService,
             YouTubeService youTubeService,
             DownloadTaskRepository downloadTaskRepository,
             MessageService messageService,
-            TaskSchedulerService taskSchedulerService) {
+            TaskSchedulerService taskSchedulerService,
+            VideoSearchService videoSearchService,
+            TaskCostEstimator taskCostEstimator,
+            AdmissionControlService admissionControlService) {
         this.botToken = botToken;
+        this.pollingEnabled = pollingEnabled;
         this.telegramClient = telegramClient;
         this.notificationService = notificationService;
         this.youTubeService = youTubeService;
         this.downloadTaskRepository = downloadTaskRepository;
         this.messageService = messageService;
         this.taskSchedulerService = taskSchedulerService;
+        this.videoSearchService = videoSearchService;
+        this.taskCostEstimator = taskCostEstimator;
+        this.admissionControlService = admissionControlService;
     }
 
     @PostConstruct
     public void start() {
+        if (!pollingEnabled) {
+            // Updates are fed to consume() by the caller (load tests)
+            log.info("[BOT] Long polling disabled, bot is not registered with Telegram");
+            return;
+        }
         try {
             botsApplication = new TelegramBotsLongPollingApplication();
             botsApplication.registerBot(botToken, this);
@@ -113,6 +140,8 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
 
             if (messageText.equals("/start") || messageText.equals("/help")) {
                 notificationService.sendMessage(chatId, messageService.getMessage("bot.welcome", languageCode));
+            } else if (messageText.equals(SEARCH_COMMAND) || messageText.startsWith(SEARCH_COMMAND + " ")) {
+                handleSearchCommand(chatId, messageText.substring(SEARCH_COMMAND.length()).strip(), languageCode);
             } else if (youTubeService.isValidYouTubeLink(messageText)) {
                 String videoId = youTubeService.extractVideoId(messageText);
 
@@ -157,6 +186,37 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
         }
     }
 
+    private void handleSearchCommand(long chatId, String query, String languageCode) {
+        if (query.isEmpty()) {
+            notificationService.sendMessage(chatId, messageService.getMessage("search.usage", languageCode));
+            return;
+        }
+        try {
+            List<SearchResult> results = videoSearchService.search(query, languageCode, SEARCH_RESULTS_LIMIT);
+            if (results.isEmpty()) {
+                notificationService.sendMessage(chatId,
+                        String.format(messageService.getMessage("search.no_results", languageCode), query));
+                return;
+            }
+            StringBuilder sb = new StringBuilder(
+                    String.format(messageService.getMessage("search.results", languageCode), query));
+            for (int i = 0; i < results.size(); i++) {
+                SearchResult result = results.get(i);
+                sb.append("\n\n").append(i + 1).append(". ")
+                        .append(result.videoTitle() != null ? result.videoTitle() : result.videoId())
+                        .append("\nhttps://youtu.be/").append(result.videoId());
+                if (!result.snippet().isEmpty()) {
+                    sb.append("\n").append(result.snippet());
+                }
+            }
+            notificationService.sendMessage(chatId, sb.toString());
+        } catch (Exception e) {
+            log.error("[BOT] Ошибка поиска '{}': {}", query, e.getMessage(), e);
+            notificationService.sendMessage(chatId,
+                    messageService.getMessage("common.error", languageCode) + e.getMessage());
+        }
+    }
+
     private void sendMessageWithKeyboard(long chatId, String text, String videoId, String languageCode) {
         SendMessage message = SendMessage.builder()
                 .chatId(chatId)
@@ -234,28 +294,23 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
         switch (action) {
             case "download_video":
                 actionName = messageService.getMessage("bot.button.video", languageCode);
-                responseText = messageService.getMessage("bot.task_scheduled", languageCode);
-                queueDownloadTask(chatId, videoId, TaskType.VIDEO, languageCode);
+                responseText = queueDownloadTask(chatId, videoId, TaskType.VIDEO, languageCode);
                 break;
             case "download_audio":
                 actionName = messageService.getMessage("bot.button.audio", languageCode);
-                responseText = messageService.getMessage("bot.task_scheduled", languageCode);
-                queueDownloadTask(chatId, videoId, TaskType.AUDIO, languageCode);
+                responseText = queueDownloadTask(chatId, videoId, TaskType.AUDIO, languageCode);
                 break;
             case "speech_recognition":
                 actionName = messageService.getMessage("bot.button.text", languageCode);
-                responseText = messageService.getMessage("bot.task_scheduled", languageCode);
-                queueDownloadTask(chatId, videoId, TaskType.SPEECH_RECOGNITION, languageCode);
+                responseText = queueDownloadTask(chatId, videoId, TaskType.SPEECH_RECOGNITION, languageCode);
                 break;
             case "normalize_text":
                 actionName = messageService.getMessage("common.normalizing", languageCode);
-                responseText = messageService.getMessage("bot.task_scheduled", languageCode);
-                queueDownloadTask(chatId, videoId, TaskType.TEXT_NORMALIZATION, languageCode);
+                responseText = queueDownloadTask(chatId, videoId, TaskType.TEXT_NORMALIZATION, languageCode);
                 break;
             case "process_all_zip":
                 actionName = messageService.getMessage("bot.button.zip", languageCode);
-                responseText = messageService.getMessage("bot.task_scheduled", languageCode);
-                queueDownloadTask(chatId, videoId, TaskType.FULL_PROCESSING_ZIP, languageCode);
+                responseText = queueDownloadTask(chatId, videoId, TaskType.FULL_PROCESSING_ZIP, languageCode);
                 break;
             case "donate":
                 handleDonateCallback(chatId, messageId, videoId, languageCode, callbackQuery.getId());
@@ -294,7 +349,12 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
         }
     }
 
-    private boolean queueDownloadTask(long chatId, String videoId, TaskType type, String languageCode) {
+    /**
+     * Ставит задачу в очередь, если её пропускает контроль приёма.
+     *
+     * @return текст ответа пользователю
+     */
+    private String queueDownloadTask(long chatId, String videoId, TaskType type, String languageCode) {
         java.util.Optional<DownloadTask> existingTaskOpt = downloadTaskRepository.findByVideoIdAndType(videoId, type);
 
         if (existingTaskOpt.isPresent()) {
@@ -317,14 +377,14 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
                     downloadTaskRepository.save(existingTask);
                     notificationService.sendMessage(chatId,
                             messageService.getMessage("bot.task_restarted", languageCode));
-                    return true;
+                    return messageService.getMessage("bot.task_scheduled", languageCode);
                 } else {
                     // Task was recently set to PROCESSING - notify user to wait
                     log.info("Task already in processing, waiting...");
                     notificationService.sendMessage(chatId,
                             messageService.getMessage("bot.task_already_processing", languageCode));
                     downloadTaskRepository.save(existingTask);
-                    return true;
+                    return messageService.getMessage("bot.task_scheduled", languageCode);
                 }
             }
 
@@ -333,10 +393,17 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
                 log.info("Restarting task for videoId: {}, type: {}", videoId, type);
                 existingTask.setStatus(TaskStatus.PENDING);
                 existingTask.setErrorMessage(null);
+                taskCostEstimator.prioritize(existingTask);
+                AdmissionDecision decision = admissionControlService.admit(existingTask);
+                if (!decision.admitted()) {
+                    return rejectionText(decision, languageCode);
+                }
+                downloadTaskRepository.save(existingTask);
+                return scheduledText(decision, languageCode);
             }
 
             downloadTaskRepository.save(existingTask);
-            return true;
+            return messageService.getMessage("bot.task_scheduled", languageCode);
         }
 
         DownloadTask task = new DownloadTask();
@@ -345,9 +412,36 @@ public class YouTubeLizerBot implements LongPollingSingleThreadUpdateConsumer {
         task.setType(type);
         task.setStatus(TaskStatus.PENDING);
         task.setLanguageCode(languageCode);
+        taskCostEstimator.prioritize(task);
+        AdmissionDecision decision = admissionControlService.admit(task);
+        if (!decision.admitted()) {
+            log.info("Task rejected: videoId={}, type={}, reason={}", videoId, type, decision.reason());
+            return rejectionText(decision, languageCode);
+        }
         downloadTaskRepository.save(task);
         log.info("Task queued: videoId={}, type={}, lang={}", videoId, type, languageCode);
-        return true;
+        return scheduledText(decision, languageCode);
+    }
+
+    private String scheduledText(AdmissionDecision decision, String languageCode) {
+        if (decision.waitSeconds() < WAIT_NOTICE_SECONDS) {
+            return messageService.getMessage("bot.task_scheduled", languageCode);
+        }
+        return String.format(messageService.getMessage("bot.task_scheduled_wait", languageCode),
+                waitMinutes(decision));
+    }
+
+    private String rejectionText(AdmissionDecision decision, String languageCode) {
+        return switch (decision.reason()) {
+            case USER_LIMIT -> messageService.getMessage("admission.user_limit", languageCode);
+            case QUEUE_FULL -> String.format(messageService.getMessage("admission.queue_full", languageCode),
+                    waitMinutes(decision));
+            case DISK_FULL -> messageService.getMessage("admission.disk_full", languageCode);
+        };
+    }
+
+    private static long waitMinutes(AdmissionDecision decision) {
+        return Math.max(1, (decision.waitSeconds() + 59) / 60);
     }
 
     /**
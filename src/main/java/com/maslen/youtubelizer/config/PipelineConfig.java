@@ -0,0 +1,32 @@
+package com.maslen.youtubelizer.config;
+
+import com.maslen.youtubelizer.service.FairTaskSelector;
+import com.maslen.youtubelizer.service.TaskCostEstimator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Пул для параллельных стадий обработки задач (скачивание, транскрипция,
+ * нормализация). Стадии почти всё время ждут внешние процессы и HTTP,
+ * поэтому используются виртуальные потоки.
+ */
+@Configuration
+public class PipelineConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService pipelineExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("pipeline-", 0).factory());
+    }
+
+    /**
+     * Справедливый выбор задач планировщиком; стоимость задачи — её ожидаемое
+     * время по {@link TaskCostEstimator}.
+     */
+    @Bean
+    public FairTaskSelector fairTaskSelector(TaskCostEstimator taskCostEstimator) {
+        return new FairTaskSelector(taskCostEstimator::expectedSeconds);
+    }
+}
@@ -0,0 +1,75 @@
+package com.maslen.youtubelizer.controller;
+
+import com.maslen.youtubelizer.model.StageLatency;
+import com.maslen.youtubelizer.model.TaskStageView;
+import com.maslen.youtubelizer.repository.TaskStageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Служебные эндпоинты для разбора задержек по этапам задач.
+ * Доступ по заголовку {@code X-Admin-Token}, равному {@code app.admin.token};
+ * без настроенного токена эндпоинты отключены.
+ * <ul>
+ * <li>{@code GET /api/admin/stages?days=7} — p50/p95/p99 длительности этапов
+ * по типу задачи;</li>
+ * <li>{@code GET /api/admin/tasks/{id}/stages} — хронология этапов задачи.</li>
+ * </ul>
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private static final int MAX_DAYS = 90;
+
+    private final TaskStageRepository taskStageRepository;
+
+    @Value("${app.admin.token:}")
+    private String adminToken;
+
+    @GetMapping("/stages")
+    public ResponseEntity<List<StageLatency>> stageLatency(
+            @RequestHeader(name = "X-Admin-Token", required = false) String token,
+            @RequestParam(name = "days", defaultValue = "7") int days) {
+        if (days < 1 || days > MAX_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return authorized(token, () -> taskStageRepository.summarizeLatency(LocalDateTime.now().minusDays(days)));
+    }
+
+    @GetMapping("/tasks/{id}/stages")
+    public ResponseEntity<List<TaskStageView>> taskTimeline(
+            @RequestHeader(name = "X-Admin-Token", required = false) String token,
+            @PathVariable long id) {
+        return authorized(token, () -> taskStageRepository.findTimeline(id));
+    }
+
+    private <T> ResponseEntity<T> authorized(String token, Supplier<T> body) {
+        if (adminToken.isBlank()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (token == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                adminToken.getBytes(StandardCharsets.UTF_8))) {
+            log.debug("[ADMIN] Rejected request with a wrong token");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(body.get());
+    }
+}
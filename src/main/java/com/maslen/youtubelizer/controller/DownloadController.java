@@ -0,0 +1,55 @@
+package com.maslen.youtubelizer.controller;
+
+import com.maslen.youtubelizer.service.DownloadLinkService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Отдаёт файлы, опубликованные через {@link DownloadLinkService}.
+ * Для {@link Resource} Spring MVC сам обрабатывает заголовок Range,
+ * поэтому загрузку можно докачивать.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/files")
+@RequiredArgsConstructor
+public class DownloadController {
+
+    private final DownloadLinkService downloadLinkService;
+
+    @GetMapping("/{id}/{fileName:.+}")
+    public ResponseEntity<Resource> download(@PathVariable String id,
+            @PathVariable String fileName,
+            @RequestParam long expires,
+            @RequestParam String signature) {
+        Optional<Path> file = downloadLinkService.resolve(id, fileName, expires, signature);
+        if (file.isEmpty()) {
+            log.debug("[DELIVERY] Rejected download request for {}/{}", id, fileName);
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .body(new FileSystemResource(file.get()));
+    }
+}
@@ -0,0 +1,34 @@
+package com.maslen.youtubelizer.controller;
+
+import com.maslen.youtubelizer.model.SearchResult;
+import com.maslen.youtubelizer.service.VideoSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST доступ к полнотекстовому поиску по транскрипциям.
+ * Пример: {@code GET /api/search?q=нейросети&lang=ru&limit=10}
+ */
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final VideoSearchService videoSearchService;
+
+    @GetMapping
+    public ResponseEntity<List<SearchResult>> search(@RequestParam("q") String query,
+            @RequestParam(name = "lang", required = false) String languageCode,
+            @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        if (query.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(videoSearchService.search(query.strip(), languageCode, limit));
+    }
+}
@@ -0,0 +1,76 @@
+package com.maslen.youtubelizer.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Прозрачное сжатие больших текстов (транскрипция, нормализованный текст) в
+ * колонку {@code bytea}. Формат — zlib (Deflate), распаковка идёт потоково
+ * через {@link InflaterInputStream} без промежуточного массива байтов.
+ * Пустая строка хранится как {@code NULL}.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    private static final int COMPRESSION_LEVEL = 6;
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        return compress(text);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] data) {
+        return decompress(data);
+    }
+
+    public static byte[] compress(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater, BUFFER_SIZE)) {
+                deflate.write(raw);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress text", e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        // Russian/Ukrainian text compresses about 3-4x; start with a close guess
+        StringBuilder sb = new StringBuilder(data.length * 3);
+        char[] buffer = new char[BUFFER_SIZE];
+        try (Reader reader = new InputStreamReader(
+                new InflaterInputStream(new ByteArrayInputStream(data)), StandardCharsets.UTF_8)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decompress text", e);
+        }
+        return sb.toString();
+    }
+}
@@ -38,6 +38,19 @@ public class DownloadTask {
     @Column(name = "language_code", length = 10)
     private String languageCode;
 
+    // Scheduling metadata, filled by TaskCostEstimator when the task is queued
+    @Column(name = "priority", nullable = false)
+    private int priority;
+
+    @Column(name = "estimated_seconds")
+    private Integer estimatedSeconds;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
     @CreationTimestamp
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -11,8 +11,11 @@ import java.time.LocalDateTime;
 @Data
 public class Request {
 
+    // Sequence ids (not IDENTITY) so that RequestLogWriter batches inserts;
+    // requests_seq is created in V4__requests_sequence.sql
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "requests_seq")
+    @SequenceGenerator(name = "requests_seq", sequenceName = "requests_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id")
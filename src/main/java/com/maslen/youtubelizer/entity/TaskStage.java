@@ -0,0 +1,51 @@
+package com.maslen.youtubelizer.entity;
+
+import com.maslen.youtubelizer.model.TaskStageName;
+import com.maslen.youtubelizer.model.TaskType;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "task_stages")
+@Data
+public class TaskStage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "task_type", nullable = false)
+    private TaskType taskType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "stage", nullable = false)
+    private TaskStageName stage;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at", nullable = false)
+    private LocalDateTime finishedAt;
+
+    @Column(name = "duration_ms", nullable = false)
+    private long durationMs;
+
+    // Stage volume, whichever applies
+    @Column(name = "bytes")
+    private Long bytes;
+
+    @Column(name = "audio_seconds")
+    private Integer audioSeconds;
+
+    @Column(name = "tokens")
+    private Integer tokens;
+
+    @Column(name = "outcome", nullable = false, length = 20)
+    private String outcome;
+}
@@ -2,6 +2,8 @@ package com.maslen.youtubelizer.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -44,10 +46,23 @@ public class Video {
     @Column(name = "original_language", length = 10)
     private String originalLanguage;
 
-    @Column(name = "transcription_text", columnDefinition = "TEXT")
+    // Large texts are loaded on first access only (requires bytecode enhancement,
+    // see hibernate-enhance-maven-plugin); use VideoRepository projections for
+    // status checks. Stored deflate-compressed, legacy TEXT columns
+    // transcription_text/normalized_text are migrated by
+    // TextCompressionMigrationRunner
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = CompressedTextConverter.class)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "transcription_data", columnDefinition = "bytea")
     private String transcriptionText;
 
-    @Column(name = "normalized_text", columnDefinition = "TEXT")
+    @Basic(fetch = FetchType.LAZY)
+    @Convert(converter = CompressedTextConverter.class)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "normalized_data", columnDefinition = "bytea")
     private String normalizedText;
 
     @Column(name = "word_count")
@@ -0,0 +1,28 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Решение о приёме задачи в очередь.
+ *
+ * @param admitted    Принята ли задача
+ * @param reason      Причина отказа ({@code null}, если принята)
+ * @param waitSeconds Ожидаемое время ожидания в очереди, секунды
+ */
+public record AdmissionDecision(boolean admitted, Reason reason, long waitSeconds) {
+
+    public enum Reason {
+        /** У пользователя слишком много незавершённых задач */
+        USER_LIMIT,
+        /** Очередь слишком длинная или ожидание слишком долгое */
+        QUEUE_FULL,
+        /** Мало места на диске для загрузок */
+        DISK_FULL
+    }
+
+    public static AdmissionDecision admit(long waitSeconds) {
+        return new AdmissionDecision(true, null, waitSeconds);
+    }
+
+    public static AdmissionDecision reject(Reason reason, long waitSeconds) {
+        return new AdmissionDecision(false, reason, waitSeconds);
+    }
+}
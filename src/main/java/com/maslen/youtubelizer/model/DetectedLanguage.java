@@ -0,0 +1,10 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Язык, определённый предварительным проходом whisper-cli по началу аудио.
+ *
+ * @param language    Код языка (ru, en, ...)
+ * @param probability Вероятность языка по оценке whisper
+ */
+public record DetectedLanguage(String language, double probability) {
+}
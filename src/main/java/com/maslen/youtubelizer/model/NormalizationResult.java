@@ -0,0 +1,11 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Результат нормализации текста.
+ *
+ * @param text   нормализованный текст
+ * @param tokens число сгенерированных токенов по данным llama-server, 0 если
+ *               сервер его не сообщил
+ */
+public record NormalizationResult(String text, int tokens) {
+}
@@ -0,0 +1,16 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Сводка ожидающих задач одного чата, приоритета и типа для оценки времени
+ * ожидания.
+ *
+ * @param chatId           Чат, поставивший задачи
+ * @param priority         Приоритет задач
+ * @param type             Тип задачи
+ * @param tasks            Количество задач в очереди
+ * @param estimatedTasks   Сколько из них имеют оценку времени
+ * @param estimatedSeconds Сумма оценок времени (может быть {@code null})
+ */
+public record QueueLoad(Long chatId, int priority, TaskType type, long tasks, long estimatedTasks,
+        Long estimatedSeconds) {
+}
@@ -0,0 +1,12 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Результат поиска по архиву транскрипций.
+ *
+ * @param videoId    YouTube ID видео
+ * @param videoTitle Название видео (может отсутствовать)
+ * @param score      Релевантность ({@code ts_rank_cd})
+ * @param snippet    Фрагмент транскрипции вокруг найденного слова
+ */
+public record SearchResult(String videoId, String videoTitle, float score, String snippet) {
+}
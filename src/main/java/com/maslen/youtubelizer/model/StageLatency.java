@@ -0,0 +1,26 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Перцентили длительности этапа по типу задачи (проекция нативного запроса
+ * {@code TaskStageRepository.summarizeLatency}).
+ */
+public interface StageLatency {
+
+    String getTaskType();
+
+    String getStage();
+
+    Long getSamples();
+
+    Double getP50Ms();
+
+    Double getP95Ms();
+
+    Double getP99Ms();
+
+    Long getTotalBytes();
+
+    Long getTotalAudioSeconds();
+
+    Long getTotalTokens();
+}
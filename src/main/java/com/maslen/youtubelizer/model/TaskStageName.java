@@ -0,0 +1,29 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Этапы обработки задачи, из которых складывается её время.
+ */
+public enum TaskStageName {
+    /** Ожидание в очереди до начала обработки */
+    QUEUE,
+    /** Скачивание с YouTube (yt-dlp) */
+    DOWNLOAD,
+    /**
+     * Скачивание лёгкой аудиодорожки только для распознавания (yt-dlp);
+     * отдельно от {@link #DOWNLOAD}, чтобы перцентили полной загрузки и
+     * загрузки речи не смешивались
+     */
+    AUDIO_DOWNLOAD,
+    /** Перекодирование ffmpeg (извлечение дорожки, WAV 16 кГц) */
+    CONVERSION,
+    /** Определение языка по началу аудио (whisper) */
+    LANGUAGE_DETECTION,
+    /** Распознавание речи (whisper) */
+    TRANSCRIPTION,
+    /** Нормализация текста (llama) */
+    NORMALIZATION,
+    /** Упаковка ZIP */
+    PACKAGING,
+    /** Отправка файла пользователю */
+    UPLOAD
+}
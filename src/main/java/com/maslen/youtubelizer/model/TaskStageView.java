@@ -0,0 +1,19 @@
+package com.maslen.youtubelizer.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Этап задачи в хронологии {@code GET /api/admin/tasks/{id}/stages}.
+ *
+ * @param stage        Этап
+ * @param startedAt    Начало этапа
+ * @param finishedAt   Окончание этапа
+ * @param durationMs   Длительность, мс
+ * @param bytes        Объём данных этапа (может быть {@code null})
+ * @param audioSeconds Длительность аудио (может быть {@code null})
+ * @param tokens       Число токенов (может быть {@code null})
+ * @param outcome      success, failure или interrupted
+ */
+public record TaskStageView(TaskStageName stage, LocalDateTime startedAt, LocalDateTime finishedAt,
+        long durationMs, Long bytes, Integer audioSeconds, Integer tokens, String outcome) {
+}
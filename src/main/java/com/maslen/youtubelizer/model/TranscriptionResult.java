@@ -1,10 +1,21 @@
 package com.maslen.youtubelizer.model;
 
+import java.util.List;
+
 /**
  * Результат транскрипции аудиофайла.
  *
- * @param text     Транскрибированный текст
- * @param language Обнаруженный язык аудио
+ * @param text                Транскрибированный текст
+ * @param language            Обнаруженный язык аудио
+ * @param durationSeconds     Длительность аудио в секундах ({@code 0}, если неизвестна)
+ * @param languageProbability Вероятность обнаруженного языка ({@code 0}, если неизвестна)
+ * @param segments            Сегменты с токенами и вероятностями; пустой список,
+ *                            если whisper-cli не записал JSON
  */
-public record TranscriptionResult(String text, String language) {
+public record TranscriptionResult(String text, String language, int durationSeconds, double languageProbability,
+        List<WhisperSegment> segments) {
+
+    public TranscriptionResult(String text, String language, int durationSeconds) {
+        this(text, language, durationSeconds, 0, List.of());
+    }
 }
@@ -0,0 +1,14 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Строка результата полнотекстового поиска (проекция нативного запроса
+ * {@code VideoRepository.search}).
+ */
+public interface VideoSearchHit {
+
+    String getVideoId();
+
+    String getVideoTitle();
+
+    Float getScore();
+}
@@ -0,0 +1,17 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Лёгкое представление видео без текстовых колонок — для проверок кэша и
+ * статуса, где сами тексты не нужны.
+ *
+ * @param videoId             YouTube ID видео
+ * @param originalLanguage    Обнаруженный язык аудио
+ * @param wordCount           Количество слов в транскрипции
+ * @param durationSeconds     Длительность аудио в секундах
+ * @param transcriptionStatus Статус транскрипции
+ * @param hasTranscription    Есть ли непустая транскрипция
+ * @param hasNormalizedText   Есть ли непустой нормализованный текст
+ */
+public record VideoStatusView(String videoId, String originalLanguage, Integer wordCount, Integer durationSeconds,
+        String transcriptionStatus, boolean hasTranscription, boolean hasNormalizedText) {
+}
@@ -0,0 +1,10 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Текст транскрипции видео (распакованный).
+ *
+ * @param videoId YouTube ID видео
+ * @param text    Текст транскрипции
+ */
+public record VideoText(String videoId, String text) {
+}
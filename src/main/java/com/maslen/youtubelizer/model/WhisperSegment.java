@@ -0,0 +1,40 @@
+package com.maslen.youtubelizer.model;
+
+import java.util.List;
+
+/**
+ * Сегмент транскрипции из полного JSON-вывода whisper-cli ({@code -ojf}).
+ *
+ * @param fromMs Начало, миллисекунды от начала аудио
+ * @param toMs   Конец, миллисекунды от начала аудио
+ * @param text   Текст сегмента без пробелов по краям
+ * @param tokens Текстовые токены сегмента (без служебных {@code [_BEG_]},
+ *               {@code [_TT_*]} и т.п.)
+ */
+public record WhisperSegment(long fromMs, long toMs, String text, List<WhisperToken> tokens) {
+
+    /**
+     * Средняя вероятность токенов; {@code 1}, если токенов нет.
+     */
+    public double averageProbability() {
+        if (tokens.isEmpty()) {
+            return 1;
+        }
+        double sum = 0;
+        for (WhisperToken token : tokens) {
+            sum += token.probability();
+        }
+        return sum / tokens.size();
+    }
+
+    /**
+     * Минимальная вероятность токена; {@code 1}, если токенов нет.
+     */
+    public double minProbability() {
+        double min = 1;
+        for (WhisperToken token : tokens) {
+            min = Math.min(min, token.probability());
+        }
+        return min;
+    }
+}
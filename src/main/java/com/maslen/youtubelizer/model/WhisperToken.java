@@ -0,0 +1,12 @@
+package com.maslen.youtubelizer.model;
+
+/**
+ * Токен сегмента из полного JSON-вывода whisper-cli ({@code -ojf}).
+ *
+ * @param text        Текст токена (может содержать часть многобайтового символа)
+ * @param fromMs      Начало, миллисекунды от начала аудио
+ * @param toMs        Конец, миллисекунды от начала аудио
+ * @param probability Вероятность токена по модели, от 0 до 1
+ */
+public record WhisperToken(String text, long fromMs, long toMs, float probability) {
+}
@@ -1,17 +1,61 @@
 package com.maslen.youtubelizer.repository;
 
 import com.maslen.youtubelizer.entity.DownloadTask;
-import com.maslen.youtubelizer.model.TaskStatus;
+import com.maslen.youtubelizer.model.QueueLoad;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DownloadTaskRepository extends JpaRepository<DownloadTask, Long> {
-    Optional<DownloadTask> findTopByStatusOrderByCreatedAtAsc(TaskStatus status);
+
+    // Status is an inline literal rather than a bind parameter so that the
+    // planner can always match the partial indexes from V3__hot_query_indexes.sql
+    // (a generic plan for "status = $1" cannot use them)
+
+    @Query("select t from DownloadTask t where t.status = com.maslen.youtubelizer.model.TaskStatus.PENDING "
+            + "order by t.priority desc, t.createdAt asc limit 1")
+    Optional<DownloadTask> findNextPending();
+
+    /** Head of the queue for FairTaskSelector */
+    @Query("select t from DownloadTask t where t.status = com.maslen.youtubelizer.model.TaskStatus.PENDING "
+            + "order by t.priority desc, t.createdAt asc")
+    List<DownloadTask> findPendingCandidates(Limit limit);
+
+    @Query("select t from DownloadTask t where t.status = com.maslen.youtubelizer.model.TaskStatus.PROCESSING "
+            + "and t.updatedAt < :before")
+    List<DownloadTask> findStuckProcessing(@Param("before") LocalDateTime before);
+
+    @Query("select count(t) from DownloadTask t where t.chatId = :chatId "
+            + "and t.status in (com.maslen.youtubelizer.model.TaskStatus.PENDING, "
+            + "com.maslen.youtubelizer.model.TaskStatus.PROCESSING)")
+    long countActiveByChatId(@Param("chatId") Long chatId);
+
+    @Query("select new com.maslen.youtubelizer.model.QueueLoad(t.chatId, t.priority, t.type, count(t), "
+            + "count(t.estimatedSeconds), sum(t.estimatedSeconds)) from DownloadTask t "
+            + "where t.status = com.maslen.youtubelizer.model.TaskStatus.PENDING "
+            + "group by t.chatId, t.priority, t.type")
+    List<QueueLoad> summarizePending();
+
+    @Query("select t from DownloadTask t where t.status = com.maslen.youtubelizer.model.TaskStatus.PROCESSING")
+    List<DownloadTask> findProcessing();
+
+    /**
+     * Average ratio of actual to estimated run time per task type for tasks
+     * that really did the work (cache hits are excluded).
+     *
+     * @return rows of {@code [type, ratio]}
+     */
+    @Query(value = "SELECT type, AVG(EXTRACT(EPOCH FROM (completed_at - started_at)) / estimated_seconds) "
+            + "FROM download_tasks WHERE status = 'COMPLETED' AND priority = 0 AND estimated_seconds > 0 "
+            + "AND started_at IS NOT NULL AND completed_at >= :since GROUP BY type", nativeQuery = true)
+    List<Object[]> findDurationRatios(@Param("since") LocalDateTime since);
 
     Optional<DownloadTask> findByVideoIdAndType(String videoId, com.maslen.youtubelizer.model.TaskType type);
-    
-    java.util.List<DownloadTask> findByStatusAndUpdatedAtBefore(TaskStatus status, java.time.LocalDateTime dateTime);
 }
@@ -0,0 +1,31 @@
+package com.maslen.youtubelizer.repository;
+
+import com.maslen.youtubelizer.entity.TaskStage;
+import com.maslen.youtubelizer.model.StageLatency;
+import com.maslen.youtubelizer.model.TaskStageView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TaskStageRepository extends JpaRepository<TaskStage, Long> {
+
+    @Query("select new com.maslen.youtubelizer.model.TaskStageView(s.stage, s.startedAt, s.finishedAt, "
+            + "s.durationMs, s.bytes, s.audioSeconds, s.tokens, s.outcome) from TaskStage s "
+            + "where s.taskId = :taskId order by s.startedAt")
+    List<TaskStageView> findTimeline(@Param("taskId") Long taskId);
+
+    /** Latency percentiles of successful stage runs since the given moment */
+    @Query(value = "SELECT task_type AS taskType, stage AS stage, COUNT(*) AS samples, "
+            + "percentile_cont(0.5) WITHIN GROUP (ORDER BY duration_ms) AS p50Ms, "
+            + "percentile_cont(0.95) WITHIN GROUP (ORDER BY duration_ms) AS p95Ms, "
+            + "percentile_cont(0.99) WITHIN GROUP (ORDER BY duration_ms) AS p99Ms, "
+            + "SUM(bytes) AS totalBytes, SUM(audio_seconds) AS totalAudioSeconds, SUM(tokens) AS totalTokens "
+            + "FROM task_stages WHERE started_at >= :since AND outcome = 'success' "
+            + "GROUP BY task_type, stage ORDER BY task_type, stage", nativeQuery = true)
+    List<StageLatency> summarizeLatency(@Param("since") LocalDateTime since);
+}
@@ -1,9 +1,18 @@
 package com.maslen.youtubelizer.repository;
 
 import com.maslen.youtubelizer.entity.Video;
+import com.maslen.youtubelizer.model.VideoSearchHit;
+import com.maslen.youtubelizer.model.VideoStatusView;
+import com.maslen.youtubelizer.model.VideoText;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +21,53 @@ public interface VideoRepository extends JpaRepository<Video, Long> {
     Optional<Video> findByVideoId(String videoId);
     
     boolean existsByVideoId(String videoId);
-}
\ No newline at end of file
+
+    // Text columns are lazy: the queries below read only what the caller needs.
+    // Empty texts are stored as NULL (see CompressedTextConverter)
+
+    @Query("select new com.maslen.youtubelizer.model.VideoStatusView(v.videoId, v.originalLanguage, v.wordCount, "
+            + "v.durationSeconds, v.transcriptionStatus, "
+            + "case when v.transcriptionText is not null then true else false end, "
+            + "case when v.normalizedText is not null then true else false end) "
+            + "from Video v where v.videoId = :videoId")
+    Optional<VideoStatusView> findStatusByVideoId(@Param("videoId") String videoId);
+
+    @Query("select count(v) > 0 from Video v where v.videoId = :videoId and v.transcriptionText is not null")
+    boolean existsTranscription(@Param("videoId") String videoId);
+
+    @Query("select v.transcriptionText from Video v where v.videoId = :videoId "
+            + "and v.transcriptionText is not null")
+    Optional<String> findTranscriptionTextByVideoId(@Param("videoId") String videoId);
+
+    @Query("select new com.maslen.youtubelizer.model.VideoText(v.videoId, v.transcriptionText) from Video v "
+            + "where v.videoId in :videoIds and v.transcriptionText is not null")
+    List<VideoText> findTranscriptionTexts(@Param("videoIds") Collection<String> videoIds);
+
+    @Query("select v.normalizedText from Video v where v.videoId = :videoId "
+            + "and v.normalizedText is not null")
+    Optional<String> findNormalizedTextByVideoId(@Param("videoId") String videoId);
+
+    @Transactional
+    @Modifying
+    @Query("update Video v set v.normalizedText = :text, v.updatedAt = current_timestamp where v.videoId = :videoId")
+    int updateNormalizedText(@Param("videoId") String videoId, @Param("text") String text);
+
+    // Full-text search: search_vector is not mapped on the entity, it is
+    // maintained from the plain text because the stored text is compressed
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE videos SET search_vector = to_tsvector(cast(:config AS regconfig), :text) "
+            + "|| to_tsvector('simple', :text) WHERE video_id = :videoId", nativeQuery = true)
+    int updateSearchVector(@Param("videoId") String videoId, @Param("config") String config,
+            @Param("text") String text);
+
+    @Query(value = "SELECT v.video_id AS videoId, v.video_title AS videoTitle, "
+            + "ts_rank_cd(v.search_vector, q.query) AS score "
+            + "FROM videos v, (SELECT websearch_to_tsquery(cast(:config AS regconfig), :query) "
+            + "|| websearch_to_tsquery('simple', :query) AS query) q "
+            + "WHERE v.search_vector @@ q.query "
+            + "ORDER BY score DESC LIMIT :limit", nativeQuery = true)
+    List<VideoSearchHit> search(@Param("query") String query, @Param("config") String config,
+            @Param("limit") int limit);
+}
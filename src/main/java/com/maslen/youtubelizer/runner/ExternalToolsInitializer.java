@@ -38,6 +38,14 @@ public class ExternalToolsInitializer implements ApplicationRunner {
             log.info("Проверка доступности Llama.cpp и модели Qwen...");
             llamaService.ensureAvailable();
 
+            // Model loading takes a while: start llama-server in the background right away,
+            // but only when the binary and model are in place, otherwise the pool would restart it forever
+            if (llamaService.isAvailable()) {
+                llamaService.prewarm();
+            } else {
+                log.warn("Llama.cpp или модель не найдены, llama-server не запускается заранее");
+            }
+
             log.info("Все внешние инструменты успешно инициализированы");
         } catch (IOException e) {
             log.error("Не удалось инициализировать внешние инструменты", e);
@@ -0,0 +1,58 @@
+package com.maslen.youtubelizer.runner;
+
+import com.maslen.youtubelizer.entity.CompressedTextConverter;
+import com.maslen.youtubelizer.service.VideoSearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Строит поисковый вектор для видео, транскрипции которых были сохранены до
+ * появления полнотекстового поиска. Запускается после
+ * {@link TextCompressionMigrationRunner}, так как читает сжатые колонки.
+ */
+@Slf4j
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class SearchIndexBackfillRunner implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VideoSearchService videoSearchService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long indexed = 0;
+        long lastId = 0;
+        while (true) {
+            // Keyset pagination: rows whose vector stays NULL (failed update) are not re-read forever
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, video_id, original_language, transcription_data FROM videos "
+                            + "WHERE search_vector IS NULL AND transcription_data IS NOT NULL AND id > ? "
+                            + "ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getString(2), rs.getString(3),
+                            rs.getBytes(4) },
+                    lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                String text = CompressedTextConverter.decompress((byte[]) row[3]);
+                videoSearchService.updateIndex((String) row[1], (String) row[2], text);
+                lastId = (Long) row[0];
+            }
+            indexed += rows.size();
+        }
+        if (indexed > 0) {
+            log.info("[SEARCH] Built search index for {} videos", indexed);
+        }
+    }
+}
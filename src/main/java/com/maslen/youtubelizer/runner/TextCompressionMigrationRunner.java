@@ -0,0 +1,91 @@
+package com.maslen.youtubelizer.runner;
+
+import com.maslen.youtubelizer.entity.CompressedTextConverter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Переносит тексты из старых несжатых колонок {@code videos.transcription_text}
+ * и {@code videos.normalized_text} в сжатые {@code transcription_data} и
+ * {@code normalized_data}. Работает пачками; перенесённые значения в старых
+ * колонках обнуляются, поэтому повторный запуск продолжает с места остановки.
+ * Сами старые колонки не удаляются — это можно сделать вручную после миграции.
+ */
+@Slf4j
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class TextCompressionMigrationRunner implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.storage.migrate-legacy-text:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || !legacyColumnsExist()) {
+            return;
+        }
+
+        long migrated = 0;
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        while (true) {
+            List<Object[]> batch = new ArrayList<>();
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, transcription_text, normalized_text FROM videos "
+                            + "WHERE transcription_text IS NOT NULL OR normalized_text IS NOT NULL "
+                            + "ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getString(2), rs.getString(3) },
+                    BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                byte[] transcription = CompressedTextConverter.compress((String) row[1]);
+                byte[] normalized = CompressedTextConverter.compress((String) row[2]);
+                rawBytes += utf8Length((String) row[1]) + utf8Length((String) row[2]);
+                compressedBytes += (transcription == null ? 0 : transcription.length)
+                        + (normalized == null ? 0 : normalized.length);
+                batch.add(new Object[] { transcription, normalized, row[0] });
+            }
+            // Keep already written compressed values: they are newer than the legacy ones
+            jdbcTemplate.batchUpdate(
+                    "UPDATE videos SET transcription_data = COALESCE(transcription_data, ?), "
+                            + "normalized_data = COALESCE(normalized_data, ?), "
+                            + "transcription_text = NULL, normalized_text = NULL WHERE id = ?",
+                    batch);
+            migrated += rows.size();
+        }
+
+        if (migrated > 0) {
+            log.info("[STORAGE] Compressed texts of {} videos: {} KB -> {} KB", migrated, rawBytes / 1024,
+                    compressedBytes / 1024);
+        }
+    }
+
+    private boolean legacyColumnsExist() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = current_schema() "
+                        + "AND table_name = 'videos' AND column_name IN ('transcription_text', 'normalized_text')",
+                Integer.class);
+        return count != null && count == 2;
+    }
+
+    private static long utf8Length(String text) {
+        return text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,215 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.AdmissionDecision;
+import com.maslen.youtubelizer.model.AdmissionDecision.Reason;
+import com.maslen.youtubelizer.model.QueueLoad;
+import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.repository.DownloadTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Контроль приёма задач в очередь.
+ * <p>
+ * Задача отклоняется, если у пользователя уже слишком много незавершённых
+ * задач, если очередь слишком длинная или ожидаемое ожидание превышает порог,
+ * или если на диске мало места. Задачи из кэша принимаются всегда.
+ * <p>
+ * Ожидание считается по оценкам {@link TaskCostEstimator}, поправленным на
+ * фактическую длительность выполненных задач за последние дни: для каждого
+ * типа задачи хранится среднее отношение фактического времени к оценке.
+ * Учитывается место задачи в очереди {@link FairTaskSelector}: задачи с
+ * более высоким приоритетом идут раньше, а очередь другого чата того же
+ * приоритета задерживает задачу не больше, чем на очередь её собственного
+ * чата плюс одну задачу.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AdmissionControlService {
+
+    private static final Duration CALIBRATION_WINDOW = Duration.ofDays(14);
+    private static final long BYTES_PER_MB = 1024L * 1024;
+
+    private final DownloadTaskRepository downloadTaskRepository;
+    private final TaskCostEstimator taskCostEstimator;
+    private final PipelineMetrics metrics;
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.admission.max-tasks-per-chat:3}")
+    private int maxTasksPerChat;
+
+    @Value("${app.admission.max-queue-depth:100}")
+    private int maxQueueDepth;
+
+    @Value("${app.admission.max-wait-minutes:120}")
+    private int maxWaitMinutes;
+
+    @Value("${app.admission.min-free-disk-mb:2048}")
+    private long minFreeDiskMb;
+
+    @Value("${app.download.path:./downloads}")
+    private String downloadPath;
+
+    private volatile Map<TaskType, Double> durationRatios = Map.of();
+
+    /**
+     * Решает, принять ли задачу. Задача должна быть уже оценена
+     * {@link TaskCostEstimator#prioritize(DownloadTask)}.
+     */
+    public AdmissionDecision admit(DownloadTask task) {
+        if (!enabled || task.getPriority() >= TaskCostEstimator.PRIORITY_CACHED) {
+            return AdmissionDecision.admit(0);
+        }
+
+        List<QueueLoad> pending = downloadTaskRepository.summarizePending();
+        long waitSeconds = estimateWaitSeconds(task.getChatId(), task.getPriority(), pending);
+        if (downloadTaskRepository.countActiveByChatId(task.getChatId()) >= maxTasksPerChat) {
+            return AdmissionDecision.reject(Reason.USER_LIMIT, waitSeconds);
+        }
+        long queueDepth = pending.stream().mapToLong(QueueLoad::tasks).sum();
+        if (queueDepth >= maxQueueDepth || waitSeconds > maxWaitMinutes * 60L) {
+            log.info("[ADMISSION] Rejected {} {}: queue depth {}, wait {} s", task.getVideoId(), task.getType(),
+                    queueDepth, waitSeconds);
+            return AdmissionDecision.reject(Reason.QUEUE_FULL, waitSeconds);
+        }
+        if (freeDiskMb() < minFreeDiskMb) {
+            log.warn("[ADMISSION] Rejected {} {}: less than {} MB free on disk", task.getVideoId(), task.getType(),
+                    minFreeDiskMb);
+            return AdmissionDecision.reject(Reason.DISK_FULL, waitSeconds);
+        }
+        return AdmissionDecision.admit(waitSeconds);
+    }
+
+    /**
+     * Ожидаемое время до начала обработки новой задачи обычного приоритета
+     * от чата, у которого нет задач в очереди.
+     */
+    public long estimateWaitSeconds() {
+        return estimateWaitSeconds(null, TaskCostEstimator.PRIORITY_NORMAL, downloadTaskRepository.summarizePending());
+    }
+
+    /**
+     * Ожидаемое время до начала обработки новой задачи чата {@code chatId}:
+     * оставшееся время выполняемых задач, все ожидающие задачи более высокого
+     * приоритета, очередь самого чата и доля очереди каждого другого чата того
+     * же приоритета, которую справедливое распределение обслужит раньше.
+     * Задачи более низкого приоритета не учитываются. История обслуживания
+     * чатов в {@link FairTaskSelector} не видна, поэтому это приближение.
+     */
+    long estimateWaitSeconds(Long chatId, int priority, List<QueueLoad> pending) {
+        double seconds = 0;
+        Map<Long, Double> chatSeconds = new HashMap<>();
+        Map<Long, Long> chatTasks = new HashMap<>();
+        for (QueueLoad load : pending) {
+            if (load.priority() > priority) {
+                seconds += queuedSeconds(load);
+            } else if (load.priority() == priority) {
+                chatSeconds.merge(load.chatId(), queuedSeconds(load), Double::sum);
+                chatTasks.merge(load.chatId(), load.tasks(), Long::sum);
+            }
+        }
+
+        // Equal shares: another chat is served up to the own chat's queued time, overshooting by one task
+        double own = chatSeconds.getOrDefault(chatId, 0.0);
+        seconds += own;
+        for (Map.Entry<Long, Double> chat : chatSeconds.entrySet()) {
+            if (!Objects.equals(chat.getKey(), chatId)) {
+                double oneTask = chat.getValue() / Math.max(1, chatTasks.get(chat.getKey()));
+                seconds += Math.min(chat.getValue(), own + oneTask);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (DownloadTask task : downloadTaskRepository.findProcessing()) {
+            double expected = taskCostEstimator.expectedSeconds(task) * durationRatio(task.getType());
+            long elapsed = task.getStartedAt() != null ? Duration.between(task.getStartedAt(), now).toSeconds() : 0;
+            seconds += Math.max(0, expected - elapsed);
+        }
+        return Math.round(seconds);
+    }
+
+    /** Время задач сводки с поправкой на фактическую длительность */
+    private double queuedSeconds(QueueLoad load) {
+        long estimated = load.estimatedSeconds() != null ? load.estimatedSeconds() : 0;
+        // Tasks queued before estimates existed
+        estimated += (load.tasks() - load.estimatedTasks()) * taskCostEstimator.defaultSeconds(load.type());
+        return estimated * durationRatio(load.type());
+    }
+
+    @Scheduled(fixedDelay = 15000)
+    public void publishQueueMetrics() {
+        try {
+            List<QueueLoad> pending = downloadTaskRepository.summarizePending();
+            metrics.updateQueue(pending.stream().mapToLong(QueueLoad::tasks).sum(),
+                    downloadTaskRepository.findProcessing().size(),
+                    estimateWaitSeconds(null, TaskCostEstimator.PRIORITY_NORMAL, pending));
+        } catch (Exception e) {
+            log.debug("[ADMISSION] Failed to publish queue metrics: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelay = 300000)
+    public void refreshDurationRatios() {
+        try {
+            Map<TaskType, Double> ratios = new EnumMap<>(TaskType.class);
+            List<Object[]> rows = downloadTaskRepository.findDurationRatios(
+                    LocalDateTime.now().minus(CALIBRATION_WINDOW));
+            for (Object[] row : rows) {
+                ratios.put(TaskType.valueOf((String) row[0]), ((Number) row[1]).doubleValue());
+            }
+            durationRatios = ratios;
+            log.debug("[ADMISSION] Duration ratios: {}", ratios);
+        } catch (Exception e) {
+            log.warn("[ADMISSION] Failed to refresh duration ratios: {}", e.getMessage());
+        }
+    }
+
+    private double durationRatio(TaskType type) {
+        return durationRatios.getOrDefault(type, 1.0);
+    }
+
+    /**
+     * Свободное место на самом заполненном из томов, куда пишут задачи:
+     * каталог загрузок ({@code app.download.path}) и временный каталог
+     * ({@code java.io.tmpdir}, туда пишет полная обработка).
+     */
+    private long freeDiskMb() {
+        return Math.min(freeDiskMb(Paths.get(downloadPath)),
+                freeDiskMb(Paths.get(System.getProperty("java.io.tmpdir"))));
+    }
+
+    /** Каталог может быть ещё не создан — берётся ближайший существующий родитель */
+    private static long freeDiskMb(Path path) {
+        Path store = path.toAbsolutePath().normalize();
+        while (store != null && !Files.exists(store)) {
+            store = store.getParent();
+        }
+        if (store == null) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Files.getFileStore(store).getUsableSpace() / BYTES_PER_MB;
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
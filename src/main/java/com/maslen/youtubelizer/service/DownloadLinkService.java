@@ -0,0 +1,180 @@
+package com.maslen.youtubelizer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Раздача больших файлов (больше лимита Bot API) через собственный HTTP
+ * эндпоинт приложения по подписанным ссылкам с ограниченным сроком жизни.
+ * Ссылка имеет вид {@code /files/{id}/{name}?expires=...&signature=...},
+ * подпись — HMAC-SHA256 от id, имени файла и времени истечения.
+ */
+@Slf4j
+@Service
+public class DownloadLinkService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f\\-]{36}");
+
+    @Value("${app.delivery.public-base-url:}")
+    private String publicBaseUrl;
+
+    @Value("${app.delivery.link-secret:}")
+    private String linkSecret;
+
+    @Value("${app.delivery.link-ttl-hours:24}")
+    private long linkTtlHours;
+
+    @Value("${app.delivery.storage-path:downloads/public}")
+    private String storagePath;
+
+    private Path storageDir;
+    private byte[] secretKey;
+
+    @PostConstruct
+    private void initialize() {
+        storageDir = Paths.get(storagePath).toAbsolutePath().normalize();
+        if (linkSecret == null || linkSecret.isBlank()) {
+            secretKey = new byte[32];
+            new SecureRandom().nextBytes(secretKey);
+            if (isEnabled()) {
+                log.warn("[DELIVERY] app.delivery.link-secret is not set, links will expire on restart");
+            }
+        } else {
+            secretKey = linkSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.info("[DELIVERY] Download links {}, storage: {}, TTL: {} h",
+                isEnabled() ? "enabled (" + publicBaseUrl + ")" : "disabled", storageDir, linkTtlHours);
+    }
+
+    /**
+     * Ссылки доступны, только если задан публичный адрес приложения.
+     */
+    public boolean isEnabled() {
+        return publicBaseUrl != null && !publicBaseUrl.isBlank();
+    }
+
+    public long getLinkTtlHours() {
+        return linkTtlHours;
+    }
+
+    /**
+     * Переносит файл в публичное хранилище и возвращает подписанную ссылку.
+     * Исходный файл после вызова больше не существует.
+     */
+    public String publish(File file) throws IOException {
+        if (!isEnabled()) {
+            throw new IOException("Download links are disabled (app.delivery.public-base-url is not set)");
+        }
+        String id = UUID.randomUUID().toString();
+        String fileName = file.getName();
+        Path targetDir = Files.createDirectories(storageDir.resolve(id));
+        Files.move(file.toPath(), targetDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+
+        long expires = Instant.now().plus(Duration.ofHours(linkTtlHours)).getEpochSecond();
+        String link = publicBaseUrl.replaceAll("/+$", "")
+                + "/files/" + id + "/" + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20")
+                + "?expires=" + expires
+                + "&signature=" + sign(id, fileName, expires);
+        log.info("[DELIVERY] Published {} ({} MB) as {}", fileName, Files.size(targetDir.resolve(fileName)) / (1024 * 1024), id);
+        return link;
+    }
+
+    /**
+     * Проверяет подпись и срок действия ссылки.
+     *
+     * @return путь к файлу, если ссылка действительна и файл существует
+     */
+    public Optional<Path> resolve(String id, String fileName, long expires, String signature) {
+        if (!ID_PATTERN.matcher(id).matches() || fileName.contains("/") || fileName.contains("\\")
+                || fileName.contains("..")) {
+            return Optional.empty();
+        }
+        if (Instant.now().getEpochSecond() > expires) {
+            return Optional.empty();
+        }
+        byte[] expected = sign(id, fileName, expires).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = signature == null ? new byte[0] : signature.getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Optional.empty();
+        }
+        Path file = storageDir.resolve(id).resolve(fileName).normalize();
+        if (!file.startsWith(storageDir) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    /**
+     * Удаляет опубликованные файлы, срок действия ссылок на которые истёк.
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void cleanupExpired() {
+        if (!Files.isDirectory(storageDir)) {
+            return;
+        }
+        Instant threshold = Instant.now().minus(Duration.ofHours(linkTtlHours));
+        try (Stream<Path> dirs = Files.list(storageDir)) {
+            dirs.filter(Files::isDirectory)
+                    .filter(dir -> isOlderThan(dir, threshold))
+                    .forEach(this::deleteRecursively);
+        } catch (IOException e) {
+            log.warn("[DELIVERY] Failed to clean up published files: {}", e.getMessage());
+        }
+    }
+
+    private boolean isOlderThan(Path dir, Instant threshold) {
+        try {
+            return Files.getLastModifiedTime(dir).toInstant().isBefore(threshold);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteRecursively(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+            log.debug("[DELIVERY] Removed expired published files: {}", dir.getFileName());
+        } catch (IOException e) {
+            log.warn("[DELIVERY] Failed to remove {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private String sign(String id, String fileName, long expires) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secretKey, HMAC_ALGORITHM));
+            byte[] digest = mac.doFinal((id + "/" + fileName + "/" + expires).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+}
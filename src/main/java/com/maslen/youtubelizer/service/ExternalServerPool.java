@@ -0,0 +1,393 @@
+package com.maslen.youtubelizer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул долгоживущих HTTP-серверов внешнего инструмента (llama-server): по
+ * экземпляру на порт.
+ * <p>
+ * Супервизор работает в одном фоновом потоке: запускает экземпляры (или
+ * подхватывает уже отвечающий на {@code /health} сервер), раз в
+ * {@link Settings#healthInterval()} проверяет их и перезапускает упавший,
+ * зависший или не поднявшийся за {@link Settings#startupTimeout()} процесс с
+ * экспоненциальной задержкой. Запросы получают {@link Lease} на готовый
+ * экземпляр с наименьшим числом запросов в работе; пока готовых нет, ждут.
+ */
+@Slf4j
+public class ExternalServerPool {
+
+    /** Команда запуска экземпляра на порту */
+    @FunctionalInterface
+    public interface CommandFactory {
+        List<String> command(int port) throws IOException;
+    }
+
+    /**
+     * @param healthInterval   период проверки готовых экземпляров
+     * @param startupTimeout   сколько ждать готовности запущенного процесса
+     * @param failureThreshold сколько проверок подряд должно провалиться до перезапуска
+     * @param initialBackoff   задержка перед первым перезапуском, дальше удваивается
+     * @param maxBackoff       предел задержки перезапуска
+     */
+    public record Settings(Duration healthInterval, Duration startupTimeout, int failureThreshold,
+            Duration initialBackoff, Duration maxBackoff) {
+    }
+
+    private enum State {
+        STOPPED, STARTING, HEALTHY, UNHEALTHY
+    }
+
+    /** Пока экземпляр запускается, проверки идут чаще периода здоровья */
+    private static final long TICK_MILLIS = 1000;
+    private static final int PROBE_TIMEOUT_MILLIS = 2000;
+
+    private final String tool;
+    private final String host;
+    private final List<Instance> instances;
+    private final CommandFactory commandFactory;
+    private final Settings settings;
+    private final PipelineMetrics metrics;
+    private final long tickMillis;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final ScheduledExecutorService supervisor;
+
+    public ExternalServerPool(String tool, String host, List<Integer> ports, CommandFactory commandFactory,
+            Settings settings, PipelineMetrics metrics) {
+        this(tool, host, ports, commandFactory, settings, metrics, TICK_MILLIS);
+    }
+
+    /** Такт супервизора задаётся в тестах, чтобы проверять перезапуски без секундных ожиданий */
+    ExternalServerPool(String tool, String host, List<Integer> ports, CommandFactory commandFactory,
+            Settings settings, PipelineMetrics metrics, long tickMillis) {
+        this.tool = tool;
+        this.tickMillis = tickMillis;
+        this.host = host;
+        this.commandFactory = commandFactory;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.instances = ports.stream().map(Instance::new).toList();
+        this.supervisor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, tool + "-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.registerServerPool(tool, this, ExternalServerPool::healthyInstances);
+    }
+
+    /**
+     * Запускает экземпляры и проверки в фоне; повторный вызов ничего не делает.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        log.info("[{}] Starting {} server instance(s) on ports {}", tag(), instances.size(),
+                instances.stream().map(i -> i.port).toList());
+        supervisor.scheduleWithFixedDelay(this::supervise, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Берёт готовый экземпляр с наименьшим числом запросов в работе. Если пул
+     * ещё не запущен, запускает его; если готовых экземпляров нет, ждёт.
+     *
+     * @throws IOException если за {@code timeout} ни один экземпляр не готов
+     */
+    public Lease acquire(Duration timeout) throws IOException, InterruptedException {
+        start();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (this) {
+            while (true) {
+                Instance best = null;
+                for (Instance instance : instances) {
+                    if (instance.isAvailable()
+                            && (best == null || instance.inFlight.get() < best.inFlight.get())) {
+                        best = instance;
+                    }
+                }
+                if (best != null) {
+                    best.inFlight.incrementAndGet();
+                    return new Lease(best);
+                }
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    throw new IOException(tool + " server is not ready within " + timeout.toMillis() + " ms");
+                }
+                wait(Math.min(remainingMillis, tickMillis));
+            }
+        }
+    }
+
+    public int healthyInstances() {
+        int healthy = 0;
+        for (Instance instance : instances) {
+            if (instance.state == State.HEALTHY) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * Останавливает супервизор и запущенные им процессы.
+     */
+    public void stop() {
+        supervisor.shutdownNow();
+        try {
+            supervisor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Instance instance : instances) {
+            instance.state = State.STOPPED;
+            if (instance.process != null && instance.process.isAlive()) {
+                log.info("[{}] Stopping server on port {}...", tag(), instance.port);
+                destroy(instance);
+            }
+        }
+    }
+
+    /**
+     * Экземпляр, выданный запросу; {@link #close()} возвращает его в пул.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final Instance instance;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Instance instance) {
+            this.instance = instance;
+        }
+
+        public String baseUrl() {
+            return String.format("http://%s:%d", host, instance.port);
+        }
+
+        /**
+         * Запрос к экземпляру не удался: проверить его на ближайшем такте, а не
+         * через период здоровья.
+         */
+        public void reportFailure() {
+            instance.checkNow = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                instance.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Instance {
+        final int port;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile State state = State.STOPPED;
+        volatile boolean checkNow;
+        long nextCheckNanos;
+        /** Процесс, запущенный пулом; {@code null} для подхваченного сервера */
+        volatile Process process;
+        long startedNanos;
+        long launchAtNanos;
+        /** С этого момента экземпляр готов без единой проваленной проверки */
+        long stableSinceNanos;
+        int failures;
+        /** Перезапуски подряд; сбрасываются, когда экземпляр проработал период здоровья без сбоев */
+        int restarts;
+
+        Instance(int port) {
+            this.port = port;
+        }
+
+        /** Готов и, если запущен пулом, ещё жив — не ждём такта супервизора */
+        boolean isAvailable() {
+            Process current = process;
+            return state == State.HEALTHY && (current == null || current.isAlive());
+        }
+    }
+
+    /** Один такт супервизора; все переходы состояний — только здесь */
+    private void supervise() {
+        for (Instance instance : instances) {
+            try {
+                superviseInstance(instance);
+            } catch (RuntimeException e) {
+                log.error("[{}] Supervisor error for port {}", tag(), instance.port, e);
+            }
+        }
+    }
+
+    private void superviseInstance(Instance instance) {
+        long now = System.nanoTime();
+        switch (instance.state) {
+            case STOPPED -> launch(instance);
+            case UNHEALTHY -> {
+                if (now - instance.launchAtNanos >= 0) {
+                    launch(instance);
+                }
+            }
+            case STARTING -> {
+                if (instance.process != null && !instance.process.isAlive()) {
+                    restart(instance, "exited", "exited with code " + instance.process.exitValue());
+                } else if (probe(instance.port)) {
+                    markHealthy(instance);
+                } else if (now - instance.startedNanos > settings.startupTimeout().toNanos()) {
+                    restart(instance, "startup_timeout",
+                            "not ready within " + settings.startupTimeout().toSeconds() + " seconds");
+                }
+            }
+            case HEALTHY -> {
+                if (instance.process != null && !instance.process.isAlive()) {
+                    restart(instance, "exited", "exited with code " + instance.process.exitValue());
+                } else if (instance.checkNow || now - instance.nextCheckNanos >= 0) {
+                    instance.checkNow = false;
+                    instance.nextCheckNanos = now + settings.healthInterval().toNanos();
+                    if (probe(instance.port)) {
+                        instance.failures = 0;
+                        resetBackoffIfStable(instance, now);
+                    } else if (++instance.failures >= settings.failureThreshold()) {
+                        restart(instance, "unhealthy",
+                                "failed " + instance.failures + " health checks in a row");
+                    } else {
+                        // Re-check on the next tick instead of waiting a full interval
+                        instance.stableSinceNanos = now;
+                        instance.checkNow = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private void launch(Instance instance) {
+        if (probe(instance.port)) {
+            log.info("[{}] Server already running on port {}, using it", tag(), instance.port);
+            instance.process = null;
+            markHealthy(instance);
+            return;
+        }
+        try {
+            List<String> command = new ArrayList<>(commandFactory.command(instance.port));
+            log.info("[{}] Starting server on port {}...", tag(), instance.port);
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(true);
+            Process process = pb.start();
+            readOutput(process, instance.port);
+            instance.process = process;
+            instance.startedNanos = System.nanoTime();
+            instance.state = State.STARTING;
+        } catch (IOException e) {
+            log.warn("[{}] Failed to start server on port {}: {}", tag(), instance.port, e.getMessage());
+            scheduleLaunch(instance);
+        }
+    }
+
+    private void markHealthy(Instance instance) {
+        if (instance.restarts > 0) {
+            log.info("[{}] Server on port {} is ready again after {} restart(s)", tag(), instance.port,
+                    instance.restarts);
+        } else {
+            log.info("[{}] Server on port {} is ready", tag(), instance.port);
+        }
+        long now = System.nanoTime();
+        instance.failures = 0;
+        // Restarts are not forgiven yet: a server that dies right after start-up keeps backing off
+        instance.stableSinceNanos = now;
+        instance.nextCheckNanos = now + settings.healthInterval().toNanos();
+        instance.state = State.HEALTHY;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void resetBackoffIfStable(Instance instance, long now) {
+        if (instance.restarts > 0 && now - instance.stableSinceNanos >= settings.healthInterval().toNanos()) {
+            log.info("[{}] Server on port {} is stable after {} restart(s)", tag(), instance.port, instance.restarts);
+            instance.restarts = 0;
+        }
+    }
+
+    private void restart(Instance instance, String reason, String details) {
+        log.warn("[{}] Server on port {} {}, restarting", tag(), instance.port, details);
+        metrics.recordServerRestart(tool, reason);
+        if (instance.process != null) {
+            destroy(instance);
+            instance.process = null;
+        }
+        scheduleLaunch(instance);
+    }
+
+    /** Следующий запуск через {@code initialBackoff × 2^restarts}, не больше {@code maxBackoff} */
+    private void scheduleLaunch(Instance instance) {
+        long backoff = backoffMillis(settings, instance.restarts);
+        instance.restarts++;
+        instance.launchAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+        instance.state = State.UNHEALTHY;
+        log.info("[{}] Next start on port {} in {} ms (attempt {})", tag(), instance.port, backoff,
+                instance.restarts);
+    }
+
+    static long backoffMillis(Settings settings, int restarts) {
+        long backoff = settings.initialBackoff().toMillis() << Math.min(restarts, 20);
+        return Math.min(backoff, settings.maxBackoff().toMillis());
+    }
+
+    private void destroy(Instance instance) {
+        instance.process.destroy();
+        try {
+            if (!instance.process.waitFor(10, TimeUnit.SECONDS)) {
+                instance.process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            instance.process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean probe(int port) {
+        try {
+            URL url = new URL(String.format("http://%s:%d/health", host, port));
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod("GET");
+            conn.setConnectTimeout(PROBE_TIMEOUT_MILLIS);
+            conn.setReadTimeout(PROBE_TIMEOUT_MILLIS);
+            int responseCode = conn.getResponseCode();
+            conn.disconnect();
+            return responseCode == 200;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void readOutput(Process process, int port) {
+        String prefix = tool.toUpperCase() + "-SERVER:" + port;
+        Thread logReader = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.debug("[{}] {}", prefix, line);
+                }
+            } catch (IOException e) {
+                log.debug("[{}] Server output closed: {}", prefix, e.getMessage());
+            }
+        }, prefix + "-log");
+        logReader.setDaemon(true);
+        logReader.start();
+    }
+
+    private String tag() {
+        return tool.toUpperCase();
+    }
+}
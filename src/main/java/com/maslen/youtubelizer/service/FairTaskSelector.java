@@ -0,0 +1,82 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Выбор следующей задачи из головы очереди.
+ * <p>
+ * Порядок: сначала высший приоритет (задачи из кэша), затем справедливое
+ * распределение между чатами — start-time fair queuing с равными весами, где
+ * стоимость обслуживания равна ожидаемому времени задачи, — и внутри чата
+ * самая короткая задача. Пользователь с 30 тяжёлыми задачами получает свою
+ * долю времени, но не задерживает остальных больше, чем на одну задачу.
+ * <p>
+ * Состояние (виртуальное время и теги чатов) хранится в памяти и после
+ * перезапуска начинается заново.
+ */
+public class FairTaskSelector {
+
+    private static final Comparator<DownloadTask> OLDEST_FIRST = Comparator.comparing(DownloadTask::getCreatedAt,
+            Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()));
+
+    private final ToIntFunction<DownloadTask> cost;
+    private final Map<Long, Long> finishTags = new HashMap<>();
+    private long virtualTime;
+
+    /**
+     * @param cost ожидаемое время задачи в секундах
+     */
+    public FairTaskSelector(ToIntFunction<DownloadTask> cost) {
+        this.cost = cost;
+    }
+
+    /**
+     * Выбирает задачу и учитывает её стоимость за её чатом.
+     *
+     * @return выбранная задача или {@code null}, если кандидатов нет
+     */
+    public synchronized DownloadTask select(List<DownloadTask> candidates) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        int topPriority = candidates.stream().mapToInt(DownloadTask::getPriority).max().getAsInt();
+
+        // Shortest job of every chat within the top priority class
+        Comparator<DownloadTask> shortestFirst = Comparator.<DownloadTask>comparingInt(cost).thenComparing(OLDEST_FIRST);
+        Map<Long, DownloadTask> headOfChat = new HashMap<>();
+        for (DownloadTask task : candidates) {
+            if (task.getPriority() == topPriority) {
+                headOfChat.merge(task.getChatId(), task,
+                        (current, other) -> shortestFirst.compare(other, current) < 0 ? other : current);
+            }
+        }
+
+        DownloadTask selected = null;
+        long selectedTag = Long.MAX_VALUE;
+        for (DownloadTask task : headOfChat.values()) {
+            long tag = startTag(task.getChatId());
+            if (selected == null || tag < selectedTag
+                    || (tag == selectedTag && shortestFirst.compare(task, selected) < 0)) {
+                selected = task;
+                selectedTag = tag;
+            }
+        }
+
+        virtualTime = selectedTag;
+        finishTags.put(selected.getChatId(), selectedTag + Math.max(1, cost.applyAsInt(selected)));
+        // Chats that are not ahead of the virtual time start from it anyway
+        finishTags.values().removeIf(finish -> finish <= virtualTime);
+        return selected;
+    }
+
+    private long startTag(Long chatId) {
+        return Math.max(virtualTime, finishTags.getOrDefault(chatId, 0L));
+    }
+}
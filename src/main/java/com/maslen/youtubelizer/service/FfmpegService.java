@@ -1,6 +1,8 @@
 package com.maslen.youtubelizer.service;
 
 import com.maslen.youtubelizer.util.PathUtils;
+import com.maslen.youtubelizer.util.ProcessUtils;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -8,11 +10,18 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class FfmpegService {
 
+    private final PipelineMetrics metrics;
+
     @Value("${app.ffmpeg.path:}")
     private String ffmpegPath;
 
@@ -59,35 +68,14 @@ public class FfmpegService {
 
         log.info("[FFMPEG] Converting {} -> WAV 16kHz mono...", inputFile.getName());
 
-        ProcessBuilder pb = new ProcessBuilder(
-                ffmpegPath,
+        runFfmpeg(List.of(
                 "-i", inputPath,
+                "-vn", // ignore video stream if present
                 "-ar", "16000", // 16kHz sample rate
                 "-ac", "1", // mono channel
                 "-c:a", "pcm_s16le", // 16-bit PCM
                 "-y", // overwrite output
-                wavPath);
-        pb.redirectErrorStream(true);
-        Process p = pb.start();
-
-        // Read output to prevent pipe blocking
-        try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                new java.io.InputStreamReader(p.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.debug("[FFMPEG] {}", line);
-            }
-        }
-
-        boolean finished = p.waitFor(5, java.util.concurrent.TimeUnit.MINUTES);
-        if (!finished) {
-            p.destroyForcibly();
-            throw new IOException("ffmpeg conversion timed out after 5 minutes");
-        }
-
-        if (p.exitValue() != 0) {
-            throw new IOException("ffmpeg conversion failed with exit code: " + p.exitValue());
-        }
+                wavPath), "conversion");
 
         if (!wavFile.exists() || wavFile.length() == 0) {
             throw new IOException("ffmpeg did not create WAV file: " + wavPath);
@@ -99,6 +87,97 @@ public class FfmpegService {
         return wavFile;
     }
 
+    /**
+     * Извлекает аудиодорожку из уже скачанного видео без перекодирования
+     * ({@code -c:a copy}). Для mp4 от yt-dlp это AAC, поэтому результат — .m4a.
+     * Если копирование потока невозможно, аудио перекодируется в MP3.
+     *
+     * @param videoFile          исходный видеофайл
+     * @param outputDir          каталог для результата
+     * @param fileNameWithoutExt имя файла без расширения
+     * @return файл с аудиодорожкой
+     */
+    public File extractAudio(File videoFile, Path outputDir, String fileNameWithoutExt)
+            throws IOException, InterruptedException {
+        File copied = outputDir.resolve(fileNameWithoutExt + ".m4a").toFile();
+        log.info("[FFMPEG] Extracting audio track {} -> {} (stream copy)", videoFile.getName(), copied.getName());
+        try {
+            runFfmpeg(List.of(
+                    "-i", videoFile.getAbsolutePath(),
+                    "-vn",
+                    "-c:a", "copy",
+                    "-y",
+                    copied.getAbsolutePath()), "audio extraction");
+            if (copied.exists() && copied.length() > 0) {
+                return copied;
+            }
+        } catch (IOException e) {
+            log.warn("[FFMPEG] Stream copy failed, falling back to MP3 encode: {}", e.getMessage());
+        }
+        Files.deleteIfExists(copied.toPath());
+
+        File encoded = outputDir.resolve(fileNameWithoutExt + ".mp3").toFile();
+        runFfmpeg(List.of(
+                "-i", videoFile.getAbsolutePath(),
+                "-vn",
+                "-c:a", "libmp3lame",
+                "-q:a", "2",
+                "-y",
+                encoded.getAbsolutePath()), "audio extraction");
+        if (!encoded.exists() || encoded.length() == 0) {
+            throw new IOException("ffmpeg did not create audio file: " + encoded.getAbsolutePath());
+        }
+        return encoded;
+    }
+
+    /**
+     * Вырезает начало WAV без перекодирования ({@code -c copy}) — короткий
+     * образец для определения языка.
+     *
+     * @param wavFile WAV 16 кГц mono
+     * @param seconds длина образца в секундах
+     * @return файл {@code <имя>_sample.wav} рядом с исходным
+     */
+    public File extractWavSample(File wavFile, int seconds) throws IOException, InterruptedException {
+        String samplePath = wavFile.getAbsolutePath().replaceAll("\\.[^.]+$", "") + "_sample.wav";
+        File sampleFile = new File(samplePath);
+
+        runFfmpeg(List.of(
+                "-i", wavFile.getAbsolutePath(),
+                "-t", String.valueOf(seconds),
+                "-c", "copy",
+                "-y",
+                samplePath), "sample extraction");
+
+        if (!sampleFile.exists() || sampleFile.length() == 0) {
+            throw new IOException("ffmpeg did not create WAV sample: " + samplePath);
+        }
+        return sampleFile;
+    }
+
+    private void runFfmpeg(List<String> args, String operation) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ffmpegPath);
+        command.addAll(args);
+
+        metrics.timeProcess("ffmpeg", operation.replace(' ', '_'), PipelineMetrics.NO_MODEL, () -> {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+
+            boolean finished = ProcessUtils.awaitProcess(p, line -> log.debug("[FFMPEG] {}", line),
+                    5, java.util.concurrent.TimeUnit.MINUTES);
+            if (!finished) {
+                throw new IOException("ffmpeg " + operation + " timed out after 5 minutes");
+            }
+
+            if (p.exitValue() != 0) {
+                throw new IOException("ffmpeg " + operation + " failed with exit code: " + p.exitValue());
+            }
+            return null;
+        });
+    }
+
     public String getFfmpegPath() {
         return ffmpegPath;
     }
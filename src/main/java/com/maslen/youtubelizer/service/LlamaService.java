@@ -2,6 +2,7 @@ package com.maslen.youtubelizer.service;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.maslen.youtubelizer.model.NormalizationResult;
 import com.maslen.youtubelizer.util.PathUtils;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,9 +21,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
@@ -36,12 +38,18 @@ public class LlamaService {
     private final int serverTimeout;
     private final int threads;
     private final String extraParams;
+    private final PipelineMetrics metrics;
+    private final int poolSize;
+    private final boolean prewarm;
+    private final ExternalServerPool.Settings poolSettings;
 
     private String llamaPath;
     private String modelPath;
 
-    private Process serverProcess;
-    private volatile boolean serverStarting = false;
+    private ExternalServerPool serverPool;
+
+    /** Сколько запрос ждёт готового llama-server (холодный старт модели) */
+    private static final Duration SERVER_STARTUP_TIMEOUT = Duration.ofSeconds(120);
 
     private static final String NORMALIZATION_PROMPT = """
             Ты - корректор текста. Твоя задача - нормализовать и исправить входной текст.
@@ -72,8 +80,16 @@ public class LlamaService {
             @Value("${app.llama.server.host:localhost}") String serverHost,
             @Value("${app.llama.server.timeout:300000}") int serverTimeout,
             @Value("${app.llama.threads:20}") int threads,
-            @Value("${app.llama.extra-params:}") String extraParams) {
+            @Value("${app.llama.extra-params:}") String extraParams,
+            @Value("${app.llama.pool.size:1}") int poolSize,
+            @Value("${app.llama.pool.prewarm:true}") boolean prewarm,
+            @Value("${app.llama.pool.health-interval-ms:10000}") long healthIntervalMs,
+            @Value("${app.llama.pool.failure-threshold:3}") int failureThreshold,
+            @Value("${app.llama.pool.restart-backoff-ms:1000}") long restartBackoffMs,
+            @Value("${app.llama.pool.max-restart-backoff-ms:60000}") long maxRestartBackoffMs,
+            PipelineMetrics metrics) {
         this.objectMapper = objectMapper;
+        this.metrics = metrics;
         this.llamaPathConfigured = llamaPathConfigured;
         this.modelPathConfigured = modelPathConfigured;
         this.serverPort = serverPort;
@@ -81,6 +97,11 @@ public class LlamaService {
         this.serverTimeout = serverTimeout;
         this.threads = threads;
         this.extraParams = extraParams;
+        this.poolSize = Math.max(1, poolSize);
+        this.prewarm = prewarm;
+        this.poolSettings = new ExternalServerPool.Settings(Duration.ofMillis(healthIntervalMs),
+                SERVER_STARTUP_TIMEOUT, Math.max(1, failureThreshold), Duration.ofMillis(restartBackoffMs),
+                Duration.ofMillis(maxRestartBackoffMs));
     }
 
     @PostConstruct
@@ -96,6 +117,11 @@ public class LlamaService {
         modelPath = PathUtils.resolvePath(modelPathConfigured, defaultModelPath);
 
         log.info("[LLAMA] Initialized paths - server: {}, model: {}", llamaPath, modelPath);
+
+        // Instances listen on consecutive ports starting from app.llama.server.port
+        List<Integer> ports = IntStream.range(serverPort, serverPort + poolSize).boxed().toList();
+        serverPool = new ExternalServerPool("llama", serverHost, ports, this::buildServerCommand, poolSettings,
+                metrics);
     }
 
     public void ensureAvailable() throws IOException {
@@ -120,120 +146,60 @@ public class LlamaService {
     }
 
     /**
-     * Запускает llama-server если он ещё не запущен
+     * Запускает пул llama-server в фоне, чтобы первый запрос после деплоя не
+     * ждал загрузки модели. При {@code app.llama.pool.prewarm=false} пул
+     * запускается первым запросом нормализации.
      */
-    public synchronized void ensureServerRunning() throws IOException, InterruptedException {
-        if (isServerRunning()) {
-            log.debug("[LLAMA] Server already running on port {}", serverPort);
-            return;
-        }
-
-        if (serverStarting) {
-            log.info("[LLAMA] Server is starting, waiting...");
-            waitForServer(60);
-            return;
-        }
-
-        // Check if binary exists before attempting to start
-        Path exePath = Paths.get(llamaPath);
-        if (Files.notExists(exePath)) {
-            throw new IOException("[LLAMA] Binary not found at: " + llamaPath +
-                    ". Please install llama.cpp or provide the binary path.");
-        }
-
-        serverStarting = true;
-        try {
-            log.info("[LLAMA] Starting llama-server on port {}...", serverPort);
-
-            List<String> command = new ArrayList<>();
-            command.add(llamaPath);
-            command.add("-m");
-            command.add(modelPath);
-            command.add("--port");
-            command.add(String.valueOf(serverPort));
-            command.add("--host");
-            command.add("0.0.0.0");
-            command.add("-c");
-            command.add("1024");
-            command.add("-t");
-            command.add(String.valueOf(threads));
-            command.add("--flash-attn");
-            command.add("off");
-            command.add("--no-mmap");
-
-            // Add extra params if present
-            if (extraParams != null && !extraParams.isBlank()) {
-                String[] parts = extraParams.split("\\s+");
-                for (String part : parts) {
-                    if (!part.isBlank()) {
-                        command.add(part);
-                    }
-                }
-            }
-
-            ProcessBuilder pb = new ProcessBuilder(command);
-
-            pb.redirectErrorStream(true);
-            serverProcess = pb.start();
-
-            // Read server logs in a separate thread
-            Thread logReader = new Thread(() -> {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(serverProcess.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        log.debug("[LLAMA-SERVER] {}", line);
-                    }
-                } catch (IOException e) {
-                    log.error("[LLAMA] Error reading server output", e);
-                }
-            });
-            logReader.setDaemon(true);
-            logReader.start();
-
-            // Wait for server to start
-            if (!waitForServer(120)) {
-                throw new IOException("llama-server failed to start within 120 seconds");
-            }
-
-            log.info("[LLAMA] Server successfully started on port {}", serverPort);
-        } finally {
-            serverStarting = false;
+    public void prewarm() {
+        if (prewarm) {
+            serverPool.start();
         }
     }
 
     /**
-     * Проверяет доступность сервера
+     * Проверяет, есть ли готовый экземпляр сервера
      */
     public boolean isServerRunning() {
-        try {
-            URL url = new URL(String.format("http://%s:%d/health", serverHost, serverPort));
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(2000);
-            conn.setReadTimeout(2000);
-            int responseCode = conn.getResponseCode();
-            conn.disconnect();
-            return responseCode == 200;
-        } catch (Exception e) {
-            return false;
-        }
+        return serverPool.healthyInstances() > 0;
     }
 
     /**
-     * Ожидает запуска сервера
+     * Команда запуска llama-server на порту
      */
-    private boolean waitForServer(int timeoutSeconds) throws InterruptedException {
-        long startTime = System.currentTimeMillis();
-        long timeout = timeoutSeconds * 1000L;
+    private List<String> buildServerCommand(int port) throws IOException {
+        // Check if binary exists before attempting to start
+        Path exePath = Paths.get(llamaPath);
+        if (Files.notExists(exePath)) {
+            throw new IOException("[LLAMA] Binary not found at: " + llamaPath +
+                    ". Please install llama.cpp or provide the binary path.");
+        }
 
-        while (System.currentTimeMillis() - startTime < timeout) {
-            if (isServerRunning()) {
-                return true;
+        List<String> command = new ArrayList<>();
+        command.add(llamaPath);
+        command.add("-m");
+        command.add(modelPath);
+        command.add("--port");
+        command.add(String.valueOf(port));
+        command.add("--host");
+        command.add("0.0.0.0");
+        command.add("-c");
+        command.add("1024");
+        command.add("-t");
+        command.add(String.valueOf(threads));
+        command.add("--flash-attn");
+        command.add("off");
+        command.add("--no-mmap");
+
+        // Add extra params if present
+        if (extraParams != null && !extraParams.isBlank()) {
+            String[] parts = extraParams.split("\\s+");
+            for (String part : parts) {
+                if (!part.isBlank()) {
+                    command.add(part);
+                }
             }
-            Thread.sleep(1000);
         }
-        return false;
+        return command;
     }
 
     /**
@@ -244,13 +210,34 @@ public class LlamaService {
      * @return Нормализованный текст
      */
     public String normalizeText(String text, String language) throws IOException, InterruptedException {
+        return normalize(text, language).text();
+    }
+
+    /**
+     * Нормализует текст и возвращает число сгенерированных токенов
+     * ({@code usage.completion_tokens} из ответа llama-server).
+     */
+    public NormalizationResult normalize(String text, String language) throws IOException, InterruptedException {
         if (text == null || text.trim().isEmpty()) {
-            return text;
+            return new NormalizationResult(text, 0);
         }
 
-        // Убеждаемся что сервер запущен
-        ensureServerRunning();
+        // Наименее загруженный готовый экземпляр; ждём, если сервер ещё запускается
+        try (ExternalServerPool.Lease lease = serverPool.acquire(SERVER_STARTUP_TIMEOUT)) {
+            return metrics.timeProcess("llama", "normalize", Paths.get(modelPath).getFileName().toString(),
+                    () -> {
+                        try {
+                            return requestNormalization(lease.baseUrl(), text, language);
+                        } catch (IOException e) {
+                            lease.reportFailure();
+                            throw e;
+                        }
+                    });
+        }
+    }
 
+    private NormalizationResult requestNormalization(String baseUrl, String text, String language)
+            throws IOException {
         String prompt = String.format(NORMALIZATION_PROMPT, text);
 
         ChatCompletionRequest request = ChatCompletionRequest.builder()
@@ -267,7 +254,7 @@ public class LlamaService {
                 text.length(), language);
 
         // Отправляем запрос
-        URL url = new URL(String.format("http://%s:%d/v1/chat/completions", serverHost, serverPort));
+        URL url = new URL(baseUrl + "/v1/chat/completions");
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
         conn.setRequestMethod("POST");
         conn.setRequestProperty("Content-Type", "application/json");
@@ -300,13 +287,15 @@ public class LlamaService {
         if (completionResponse.getChoices() == null || completionResponse.getChoices().isEmpty() ||
                 completionResponse.getChoices().get(0).getMessage() == null) {
             log.warn("[LLAMA] Empty response from server");
-            return "";
+            return new NormalizationResult("", 0);
         }
 
         String normalizedText = completionResponse.getChoices().get(0).getMessage().getContent();
-        log.info("[LLAMA] Нормализация завершена, результат: {} символов", normalizedText.length());
+        int tokens = completionResponse.getUsage() != null ? completionResponse.getUsage().getCompletionTokens() : 0;
+        log.info("[LLAMA] Нормализация завершена, результат: {} символов, {} токенов",
+                normalizedText != null ? normalizedText.length() : 0, tokens);
 
-        return normalizedText != null ? normalizedText.trim() : "";
+        return new NormalizationResult(normalizedText != null ? normalizedText.trim() : "", tokens);
     }
 
     /**
@@ -327,17 +316,8 @@ public class LlamaService {
 
     @PreDestroy
     public void stopServer() {
-        if (serverProcess != null && serverProcess.isAlive()) {
-            log.info("[LLAMA] Остановка llama-server...");
-            serverProcess.destroy();
-            try {
-                if (!serverProcess.waitFor(10, TimeUnit.SECONDS)) {
-                    serverProcess.destroyForcibly();
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
+        log.info("[LLAMA] Остановка llama-server...");
+        serverPool.stop();
     }
 
     public String getLlamaPath() {
@@ -352,12 +332,12 @@ public class LlamaService {
         return Files.exists(Paths.get(llamaPath)) && Files.exists(Paths.get(modelPath));
     }
 
-    // DTO Helper Classes
+    // DTO Helper Classes (package-private for LlamaDtoBenchmark)
     @Data
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
-    private static class ChatCompletionRequest {
+    static class ChatCompletionRequest {
         private String model;
         private List<Message> messages;
         private double temperature;
@@ -369,7 +349,7 @@ public class LlamaService {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    private static class Message {
+    static class Message {
         private String role;
         private String content;
     }
@@ -377,14 +357,25 @@ public class LlamaService {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    private static class ChatCompletionResponse {
+    static class ChatCompletionResponse {
         private List<Choice> choices;
+        private Usage usage;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Usage {
+        @JsonProperty("prompt_tokens")
+        private int promptTokens;
+        @JsonProperty("completion_tokens")
+        private int completionTokens;
     }
 
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
-    private static class Choice {
+    static class Choice {
         private Message message;
     }
 }
@@ -0,0 +1,181 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.TaskStageName;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Доставка медиафайлов с учётом лимита Bot API на загрузку (50 МБ).
+ * <ul>
+ * <li>до скачивания оценивает размер по метаданным yt-dlp и, если ссылки
+ * отключены, подбирает меньшее разрешение, которое помещается в лимит, а если
+ * не помещается ни одно — отказывает сразу, не скачивая файл (для аудио —
+ * только проверка размера);</li>
+ * <li>после скачивания отправляет файл в чат или, если он всё равно больше
+ * лимита, публикует его по подписанной ссылке.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class MediaDeliveryService {
+
+    /** Разрешения, к которым откатываемся, если лучший формат не помещается */
+    private static final int[] FALLBACK_HEIGHTS = { 720, 480, 360 };
+
+    private final YtDlpService ytDlpService;
+    private final DownloadLinkService downloadLinkService;
+    private final TelegramNotificationService notificationService;
+    private final MessageService messageService;
+    private final TaskStageRecorder taskStageRecorder;
+    private final long uploadLimitBytes;
+
+    public MediaDeliveryService(YtDlpService ytDlpService,
+            DownloadLinkService downloadLinkService,
+            TelegramNotificationService notificationService,
+            MessageService messageService,
+            TaskStageRecorder taskStageRecorder,
+            @Value("${app.telegram.upload-limit-bytes:52428800}") long uploadLimitBytes) {
+        this.ytDlpService = ytDlpService;
+        this.downloadLinkService = downloadLinkService;
+        this.notificationService = notificationService;
+        this.messageService = messageService;
+        this.taskStageRecorder = taskStageRecorder;
+        this.uploadLimitBytes = uploadLimitBytes;
+    }
+
+    /**
+     * Выбирает формат видео до скачивания.
+     *
+     * @param budgetRatio доля лимита, доступная под видео (для ZIP часть лимита
+     *                    уходит на аудиодорожку и тексты)
+     * @return формат yt-dlp
+     * @throws IOException с текстом {@code delivery.too_large}, если ссылки
+     *                     отключены и ни один формат не помещается в лимит; если
+     *                     размер оценить не удалось, возвращается формат по умолчанию
+     */
+    public String chooseVideoFormat(DownloadTask task, String url, double budgetRatio) throws IOException {
+        long budget = (long) (uploadLimitBytes * budgetRatio);
+        long smallestSize;
+        try {
+            long bestSize = ytDlpService.estimateSize(url, YtDlpService.DEFAULT_VIDEO_FORMAT);
+            if (bestSize < 0 || bestSize <= budget) {
+                return YtDlpService.DEFAULT_VIDEO_FORMAT;
+            }
+            if (downloadLinkService.isEnabled()) {
+                log.info("[DELIVERY] Estimated {} MB for {}, will deliver via link",
+                        bestSize / (1024 * 1024), task.getVideoId());
+                return YtDlpService.DEFAULT_VIDEO_FORMAT;
+            }
+
+            smallestSize = bestSize;
+            for (int height : FALLBACK_HEIGHTS) {
+                String format = "bestvideo[ext=mp4][height<=" + height + "]+bestaudio[ext=m4a]/mp4[height<=" + height
+                        + "]";
+                long size = ytDlpService.estimateSize(url, format);
+                if (size >= 0 && size <= budget) {
+                    log.info("[DELIVERY] Using {}p for {} ({} MB instead of {} MB)", height, task.getVideoId(),
+                            size / (1024 * 1024), bestSize / (1024 * 1024));
+                    notificationService.sendMessage(task.getChatId(), String.format(
+                            messageService.getMessage("delivery.reduced_quality", task.getLanguageCode()), height));
+                    return format;
+                }
+                if (size >= 0) {
+                    smallestSize = Math.min(smallestSize, size);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return YtDlpService.DEFAULT_VIDEO_FORMAT;
+        } catch (IOException e) {
+            log.warn("[DELIVERY] Failed to estimate size for {}: {}", task.getVideoId(), e.getMessage());
+            return YtDlpService.DEFAULT_VIDEO_FORMAT;
+        }
+
+        // Nothing fits and there is no link fallback: fail before downloading, not after the upload attempt
+        log.warn("[DELIVERY] No format of {} fits into {} MB", task.getVideoId(), budget / (1024 * 1024));
+        throw new IOException(String.format(messageService.getMessage("delivery.too_large", task.getLanguageCode()),
+                smallestSize / (1024 * 1024)));
+    }
+
+    /**
+     * Проверяет до скачивания, что MP3 поместится в лимит. Размер оценивается
+     * по лучшей аудиодорожке: MP3 с качеством yt-dlp по умолчанию (VBR около
+     * 130 кбит/с) получается сопоставимым с ней. Если ссылки включены или размер
+     * оценить не удалось, проверка пропускается — решение примет {@link #deliver}.
+     *
+     * @throws IOException с текстом {@code delivery.too_large}, если файл заведомо
+     *                     больше лимита, а ссылки отключены
+     */
+    public void checkAudioSize(DownloadTask task, String url) throws IOException {
+        if (downloadLinkService.isEnabled()) {
+            return;
+        }
+        long size;
+        try {
+            size = ytDlpService.estimateSize(url, YtDlpService.DEFAULT_AUDIO_FORMAT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException e) {
+            log.warn("[DELIVERY] Failed to estimate audio size for {}: {}", task.getVideoId(), e.getMessage());
+            return;
+        }
+        if (size > uploadLimitBytes) {
+            log.warn("[DELIVERY] Audio of {} is about {} MB, over the upload limit", task.getVideoId(),
+                    size / (1024 * 1024));
+            throw new IOException(String.format(
+                    messageService.getMessage("delivery.too_large", task.getLanguageCode()), size / (1024 * 1024)));
+        }
+    }
+
+    /**
+     * Отправляет файл пользователю: документом, если он помещается в лимит, иначе
+     * ссылкой на собственный HTTP эндпоинт.
+     *
+     * @return {@code true}, если файл опубликован по ссылке (он перенесён в
+     *         публичное хранилище и удалять его нельзя)
+     * @throws IOException если файл больше лимита, а ссылки отключены
+     */
+    public boolean deliver(DownloadTask task, File file, String caption) throws IOException {
+        try {
+            return taskStageRecorder.record(task, TaskStageName.UPLOAD, stage -> {
+                stage.bytes(file);
+                return deliverFile(task, file, caption);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Delivery interrupted", e);
+        }
+    }
+
+    private boolean deliverFile(DownloadTask task, File file, String caption) throws IOException {
+        if (file.length() <= uploadLimitBytes) {
+            // Wait for the upload: the caller deletes the file afterwards
+            try {
+                notificationService.sendDocument(task.getChatId(), file, caption).join();
+            } catch (CompletionException e) {
+                throw new IOException("Failed to send " + file.getName() + ": " + e.getCause().getMessage(),
+                        e.getCause());
+            }
+            return false;
+        }
+
+        long sizeMb = file.length() / (1024 * 1024);
+        if (!downloadLinkService.isEnabled()) {
+            throw new IOException(String.format(
+                    messageService.getMessage("delivery.too_large", task.getLanguageCode()), sizeMb));
+        }
+
+        String link = downloadLinkService.publish(file);
+        notificationService.sendMessage(task.getChatId(), caption + "\n\n" + String.format(
+                messageService.getMessage("delivery.link", task.getLanguageCode()),
+                sizeMb, link, downloadLinkService.getLinkTtlHours()));
+        return true;
+    }
+}
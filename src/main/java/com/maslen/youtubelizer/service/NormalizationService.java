@@ -1,7 +1,11 @@
 package com.maslen.youtubelizer.service;
 
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.NormalizationResult;
+import com.maslen.youtubelizer.model.TaskStageName;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -15,12 +19,22 @@ import java.nio.file.Paths;
 public class NormalizationService {
 
     private final LlamaService llamaService;
+    private final TaskStageRecorder taskStageRecorder;
+
+    /** Дублировать нормализованный текст в downloads/*.txt (в БД он хранится сжатым) */
+    @Value("${app.storage.write-text-files:false}")
+    private boolean writeTextFiles;
 
     /**
-     * Normalizes text using Llama service.
+     * Normalizes text using Llama service (recorded as the task's NORMALIZATION stage).
      */
-    public String normalizeText(String text, String language) throws IOException, InterruptedException {
-        String normalizedText = llamaService.normalizeText(text, language);
+    public String normalizeText(DownloadTask task, String text, String language)
+            throws IOException, InterruptedException {
+        String normalizedText = taskStageRecorder.record(task, TaskStageName.NORMALIZATION, stage -> {
+            NormalizationResult result = llamaService.normalize(text, language);
+            stage.tokens(result.tokens());
+            return result.text();
+        });
 
         if (normalizedText == null || normalizedText.trim().isEmpty()) {
             return null;
@@ -31,9 +45,12 @@ public class NormalizationService {
     }
 
     /**
-     * Save normalized text to file.
+     * Save normalized text to file (only if app.storage.write-text-files is set).
      */
     public void saveNormalizedTextToFile(String videoId, String normalizedText) {
+        if (!writeTextFiles) {
+            return;
+        }
         try {
             Path downloadsDir = Paths.get("downloads");
             Files.createDirectories(downloadsDir);
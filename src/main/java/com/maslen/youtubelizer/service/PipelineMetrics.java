@@ -0,0 +1,183 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.model.TaskType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Метрики конвейера обработки (Micrometer, экспорт в Prometheus через
+ * {@code /actuator/prometheus}).
+ * <p>
+ * Все имена начинаются с {@code youtubelizer.}: длительность внешних процессов
+ * (yt-dlp, ffmpeg, whisper-cli, llama-server) с тегами инструмента, операции,
+ * модели и результата; длительность задач и ожидания в очереди по типу задачи;
+ * попадания в кэш; отправки в Telegram; глубина очереди и коэффициент
+ * скорости Whisper (секунды аудио на секунду работы); готовые экземпляры и
+ * перезапуски долгоживущих серверов (llama-server).
+ * <p>
+ * Тег {@code outcome} во всех метриках (и {@code task_stages.outcome})
+ * принимает одни и те же значения: {@link #OUTCOME_SUCCESS},
+ * {@link #OUTCOME_FAILURE} или {@link #OUTCOME_INTERRUPTED}. Подробности
+ * ошибки, например код ответа Telegram, пишутся в отдельный тег.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+    public static final String OUTCOME_INTERRUPTED = "interrupted";
+    /** Значение тега error для успешного вызова Telegram */
+    public static final String NO_ERROR = "none";
+    /** Значение тега model для инструментов без модели */
+    public static final String NO_MODEL = "none";
+
+    @FunctionalInterface
+    public interface ProcessCall<T> {
+        T call() throws IOException, InterruptedException;
+    }
+
+    private final MeterRegistry registry;
+    private final AtomicLong pendingTasks = new AtomicLong();
+    private final AtomicLong processingTasks = new AtomicLong();
+    private final AtomicLong estimatedWaitSeconds = new AtomicLong();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("youtubelizer.queue.tasks", pendingTasks, AtomicLong::get)
+                .description("Tasks in the download queue")
+                .tag("status", "pending")
+                .register(registry);
+        Gauge.builder("youtubelizer.queue.tasks", processingTasks, AtomicLong::get)
+                .description("Tasks in the download queue")
+                .tag("status", "processing")
+                .register(registry);
+        Gauge.builder("youtubelizer.queue.wait", estimatedWaitSeconds, AtomicLong::get)
+                .description("Estimated wait for a newly queued task")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Выполняет вызов внешнего процесса и записывает его длительность.
+     *
+     * @param tool      yt-dlp, ffmpeg, whisper, llama
+     * @param operation что делает процесс (download, convert, transcribe, ...)
+     * @param model     модель или {@link #NO_MODEL}
+     */
+    public <T> T timeProcess(String tool, String operation, String model, ProcessCall<T> call)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        String outcome = OUTCOME_FAILURE;
+        try {
+            T result = call.call();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } catch (InterruptedException e) {
+            outcome = OUTCOME_INTERRUPTED;
+            throw e;
+        } finally {
+            recordProcess(tool, operation, model, outcome, System.nanoTime() - start);
+        }
+    }
+
+    public void recordProcess(String tool, String operation, String model, String outcome, long nanos) {
+        Timer.builder("youtubelizer.process.duration")
+                .description("Run time of external tools")
+                .tags("tool", tool, "operation", operation, "model", model, "outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учитывает транскрипцию: объём аудио и скорость относительно реального
+     * времени.
+     */
+    public void recordTranscription(String model, int audioSeconds, Duration wallTime) {
+        if (audioSeconds <= 0 || wallTime.isZero() || wallTime.isNegative()) {
+            return;
+        }
+        registry.counter("youtubelizer.whisper.audio", "model", model).increment(audioSeconds);
+        DistributionSummary.builder("youtubelizer.whisper.realtime.factor")
+                .description("Audio seconds transcribed per wall-clock second")
+                .tag("model", model)
+                .register(registry)
+                .record(audioSeconds / (wallTime.toNanos() / 1e9));
+    }
+
+    /**
+     * @param outcome {@link #OUTCOME_SUCCESS} для выполненной задачи, иначе
+     *                {@link #OUTCOME_FAILURE}
+     */
+    public void recordTask(TaskType type, String outcome, Duration duration) {
+        Timer.builder("youtubelizer.task.duration")
+                .description("Run time of download tasks")
+                .tags("type", type.name(), "outcome", outcome)
+                .register(registry)
+                .record(duration);
+    }
+
+    public void recordQueueWait(TaskType type, Duration wait) {
+        Timer.builder("youtubelizer.task.queue.wait")
+                .description("Time a task spent in the queue before it started")
+                .tag("type", type.name())
+                .register(registry)
+                .record(wait);
+    }
+
+    public void recordCacheLookup(TaskType type, boolean hit) {
+        registry.counter("youtubelizer.cache.lookups", "type", type.name(), "result", hit ? "hit" : "miss")
+                .increment();
+    }
+
+    /**
+     * @param error {@link #NO_ERROR}, {@code http_<код>} для ответа Bot API с
+     *              ошибкой, {@code network} или {@code internal}
+     */
+    public void recordTelegramCall(String method, String outcome, String error, long nanos) {
+        Timer.builder("youtubelizer.telegram.calls")
+                .description("Telegram Bot API calls, one per attempt")
+                .tags("method", method, "outcome", outcome, "error", error)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTelegramDelivery(String method, String outcome, long nanos) {
+        Timer.builder("youtubelizer.telegram.delivery")
+                .description("Time from queuing a Telegram call to its final result, including rate limiting")
+                .tags("method", method, "outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Регистрирует число готовых экземпляров пула серверов инструмента.
+     */
+    public <T> void registerServerPool(String tool, T pool, ToDoubleFunction<T> healthyInstances) {
+        Gauge.builder("youtubelizer.server.instances", pool, healthyInstances)
+                .description("Healthy instances of long-running external servers")
+                .tag("tool", tool)
+                .register(registry);
+    }
+
+    /**
+     * @param reason exited, unhealthy или startup_timeout
+     */
+    public void recordServerRestart(String tool, String reason) {
+        registry.counter("youtubelizer.server.restarts", "tool", tool, "reason", reason).increment();
+    }
+
+    public void updateQueue(long pending, long processing, long waitSeconds) {
+        pendingTasks.set(pending);
+        processingTasks.set(processing);
+        estimatedWaitSeconds.set(waitSeconds);
+    }
+}
@@ -0,0 +1,126 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.Request;
+import com.maslen.youtubelizer.repository.RequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная запись журнала запросов пользователей.
+ * <p>
+ * Поток бота только кладёт запись в ограниченный кольцевой буфер и никогда не
+ * ждёт БД; фоновый поток раз в {@code app.requests.flush-interval-ms} (или
+ * при наборе полной пачки) сохраняет записи пакетным INSERT. При
+ * переполнении вытесняются самые старые записи, поэтому при аварийном
+ * завершении теряется не больше содержимого буфера.
+ */
+@Slf4j
+@Component
+public class RequestLogWriter {
+
+    private static final long RETRY_DELAY_MILLIS = 5000;
+
+    private final RequestRepository requestRepository;
+    private final BlockingQueue<Request> buffer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public RequestLogWriter(RequestRepository requestRepository,
+            @Value("${app.requests.buffer-size:8192}") int bufferSize,
+            @Value("${app.requests.batch-size:50}") int batchSize,
+            @Value("${app.requests.flush-interval-ms:1000}") long flushIntervalMillis) {
+        this.requestRepository = requestRepository;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    void start() {
+        writer = Thread.ofPlatform().name("request-log-writer").daemon().start(this::run);
+    }
+
+    /**
+     * Ставит запись в очередь на сохранение. Не блокируется.
+     */
+    public void append(Request request) {
+        while (!buffer.offer(request)) {
+            // Ring buffer semantics: the oldest entry makes room for the new one
+            if (buffer.poll() != null && dropped.incrementAndGet() % 1000 == 1) {
+                log.warn("[REQUESTS] Buffer is full, dropped {} requests so far", dropped.get());
+            }
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Request first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Shutdown: give the unsaved batch back, stop() flushes the buffer
+                batch.forEach(this::append);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Request> batch) throws InterruptedException {
+        try {
+            requestRepository.saveAll(batch);
+        } catch (Exception e) {
+            log.warn("[REQUESTS] Failed to write {} requests, retrying in {} ms: {}", batch.size(),
+                    RETRY_DELAY_MILLIS, e.getMessage());
+            Thread.sleep(RETRY_DELAY_MILLIS);
+            try {
+                requestRepository.saveAll(batch);
+            } catch (Exception retryError) {
+                dropped.addAndGet(batch.size());
+                log.error("[REQUESTS] Dropped {} requests: {}", batch.size(), retryError.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        List<Request> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        for (int from = 0; from < rest.size(); from += batchSize) {
+            try {
+                requestRepository.saveAll(rest.subList(from, Math.min(rest.size(), from + batchSize)));
+            } catch (Exception e) {
+                log.error("[REQUESTS] Failed to flush {} requests on shutdown: {}", rest.size() - from,
+                        e.getMessage());
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.maslen.youtubelizer.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Обслуживание истории: месячные партиции {@code requests}, суточная сводка
+ * и удаление старых данных.
+ * <p>
+ * Раз в сутки создаются партиции на текущий и следующие месяцы (чтобы строки
+ * не попадали в партицию по умолчанию), пересчитывается сводка за последние
+ * дни, а партиции старше {@code app.retention.requests-months} отсоединяются
+ * от таблицы — остаются архивными таблицами или удаляются. Завершённые задачи
+ * {@code download_tasks} старше {@code app.retention.tasks-days} удаляются
+ * после попадания в сводку {@code task_daily_stats}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RetentionService {
+
+    private static final String REQUESTS_TABLE = "requests";
+    private static final int MONTHS_AHEAD = 2;
+    /** Сводка пересчитывается за несколько дней: запись журнала запросов асинхронная */
+    private static final int SUMMARY_DAYS = 3;
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.retention.requests-months:12}")
+    private int requestsMonths;
+
+    @Value("${app.retention.drop-detached:false}")
+    private boolean dropDetached;
+
+    @Value("${app.retention.tasks-days:90}")
+    private int tasksDays;
+
+    @Scheduled(cron = "${app.retention.cron:0 30 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Timestamps are stored in UTC (hibernate.jdbc.time_zone), so days and months are UTC as well
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            ensurePartitions(YearMonth.from(today));
+            summarizeRequests(today.minusDays(SUMMARY_DAYS), today);
+            summarizeTasks(today.minusDays(SUMMARY_DAYS), today);
+            detachOldPartitions(YearMonth.from(today).minusMonths(requestsMonths));
+            deleteOldTasks(today.minusDays(tasksDays));
+        } catch (Exception e) {
+            log.error("[RETENTION] Maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    void ensurePartitions(YearMonth current) {
+        for (int i = 0; i <= MONTHS_AHEAD; i++) {
+            jdbcTemplate.queryForList("SELECT ensure_monthly_partition(?, ?)", REQUESTS_TABLE,
+                    current.plusMonths(i).atDay(1));
+        }
+    }
+
+    /**
+     * Пересчитывает сводку запросов за дни {@code [from, to)}.
+     */
+    void summarizeRequests(LocalDate from, LocalDate to) {
+        jdbcTemplate.update("""
+                INSERT INTO request_daily_stats (day, total_requests, valid_requests, unique_users)
+                SELECT created_at::date, COUNT(*), COUNT(*) FILTER (WHERE is_valid_link), COUNT(DISTINCT user_id)
+                FROM requests
+                WHERE created_at >= ? AND created_at < ?
+                GROUP BY created_at::date
+                ON CONFLICT (day) DO UPDATE SET total_requests = EXCLUDED.total_requests,
+                    valid_requests = EXCLUDED.valid_requests, unique_users = EXCLUDED.unique_users
+                """, from.atStartOfDay(), to.atStartOfDay());
+    }
+
+    /**
+     * Пересчитывает сводку завершённых задач за дни {@code [from, to)} по дате
+     * создания задачи. Она у строки не меняется, поэтому перезапущенная задача
+     * (строка переиспользуется) попадает в сводку одного дня — с результатом на
+     * момент последнего пересчёта этого дня, а не в день каждого изменения.
+     */
+    void summarizeTasks(LocalDate from, LocalDate to) {
+        jdbcTemplate.update("""
+                INSERT INTO task_daily_stats (day, type, status, task_count)
+                SELECT created_at::date, type, status, COUNT(*)
+                FROM download_tasks
+                WHERE status IN ('COMPLETED', 'FAILED') AND created_at >= ? AND created_at < ?
+                GROUP BY created_at::date, type, status
+                ON CONFLICT (day, type, status) DO UPDATE SET task_count = EXCLUDED.task_count
+                """, from.atStartOfDay(), to.atStartOfDay());
+        // A restarted task may have left its old status group: drop groups that no longer have tasks
+        jdbcTemplate.update("""
+                DELETE FROM task_daily_stats
+                WHERE day >= ? AND day < ?
+                  AND (day, type, status) NOT IN (
+                      SELECT created_at::date, type, status
+                      FROM download_tasks
+                      WHERE status IN ('COMPLETED', 'FAILED') AND created_at >= ? AND created_at < ?)
+                """, from, to, from.atStartOfDay(), to.atStartOfDay());
+    }
+
+    /**
+     * Добавляет в сводку дни до {@code before}, которых в ней ещё нет (например,
+     * обслуживание не запускалось). Уже посчитанные дни не пересчитываются: их
+     * задачи могли быть удалены раньше, и пересчёт по оставшимся занизил бы
+     * сводку.
+     */
+    void summarizeMissingTaskDays(LocalDate before) {
+        jdbcTemplate.update("""
+                INSERT INTO task_daily_stats (day, type, status, task_count)
+                SELECT t.created_at::date, t.type, t.status, COUNT(*)
+                FROM download_tasks t
+                WHERE t.status IN ('COMPLETED', 'FAILED') AND t.created_at < ?
+                  AND NOT EXISTS (SELECT 1 FROM task_daily_stats s WHERE s.day = t.created_at::date)
+                GROUP BY t.created_at::date, t.type, t.status
+                """, before.atStartOfDay());
+    }
+
+    void detachOldPartitions(YearMonth cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = ?::regclass ORDER BY c.relname
+                """, String.class, REQUESTS_TABLE);
+
+        for (String partition : partitions) {
+            YearMonth month = partitionMonth(partition);
+            if (month == null || !month.isBefore(cutoff)) {
+                continue;
+            }
+            // The summary must exist before the detailed rows leave the table
+            summarizeRequests(month.atDay(1), month.plusMonths(1).atDay(1));
+            jdbcTemplate.execute("ALTER TABLE " + REQUESTS_TABLE + " DETACH PARTITION " + partition);
+            if (dropDetached) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("[RETENTION] Dropped partition {}", partition);
+            } else {
+                log.info("[RETENTION] Detached partition {} (kept as archive table)", partition);
+            }
+        }
+    }
+
+    void deleteOldTasks(LocalDate before) {
+        // The cutoff is a day boundary, so every day before it is still complete here.
+        // A deleted row was last updated before the cutoff, so it was also created before it
+        summarizeMissingTaskDays(before);
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM download_tasks WHERE status IN ('COMPLETED', 'FAILED') AND updated_at < ?",
+                before.atStartOfDay());
+        if (deleted > 0) {
+            log.info("[RETENTION] Deleted {} finished tasks older than {}", deleted, before);
+        }
+        // Stages of deleted tasks go with them (ON DELETE CASCADE); this trims reruns of live tasks
+        int stages = jdbcTemplate.update("DELETE FROM task_stages WHERE started_at < ?", before.atStartOfDay());
+        if (stages > 0) {
+            log.info("[RETENTION] Deleted {} task stages older than {}", stages, before);
+        }
+    }
+
+    /**
+     * Месяц партиции по имени {@code requests_YYYY_MM}; {@code null} для
+     * партиции по умолчанию и посторонних имён.
+     */
+    static YearMonth partitionMonth(String partition) {
+        String prefix = REQUESTS_TABLE + "_";
+        if (!partition.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(prefix.length()), PARTITION_SUFFIX);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
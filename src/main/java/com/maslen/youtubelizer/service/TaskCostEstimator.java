@@ -0,0 +1,122 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.model.VideoStatusView;
+import com.maslen.youtubelizer.repository.VideoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Оценка стоимости задачи для планировщика.
+ * <p>
+ * Задачи, результат которых уже есть в БД (готовая транскрипция или
+ * нормализованный текст), получают повышенный приоритет и обслуживаются вне
+ * очереди. Для остальных ожидаемое время считается по длительности аудио
+ * (или по числу слов, если длительность неизвестна) и относительной
+ * скорости обработки каждого типа задачи.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TaskCostEstimator {
+
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_CACHED = 10;
+
+    private static final int CACHED_SECONDS = 2;
+    private static final int OVERHEAD_SECONDS = 15;
+    /** Длительность видео, о котором ещё ничего не известно */
+    private static final int DEFAULT_AUDIO_SECONDS = 600;
+    /** Средний темп речи: 150 слов в минуту */
+    private static final double WORDS_PER_SECOND = 2.5;
+
+    private final VideoRepository videoRepository;
+    private final PipelineMetrics metrics;
+
+    /**
+     * Заполняет приоритет и ожидаемое время задачи перед постановкой в очередь.
+     */
+    public void prioritize(DownloadTask task) {
+        Optional<VideoStatusView> status = findStatus(task.getVideoId());
+        boolean cached = status.isPresent() && isCached(task.getType(), status.get());
+        if (hasCache(task.getType())) {
+            metrics.recordCacheLookup(task.getType(), cached);
+        }
+        if (cached) {
+            task.setPriority(PRIORITY_CACHED);
+            task.setEstimatedSeconds(CACHED_SECONDS);
+        } else {
+            task.setPriority(PRIORITY_NORMAL);
+            task.setEstimatedSeconds(estimateSeconds(task.getType(), status.map(TaskCostEstimator::audioSeconds)
+                    .orElse(DEFAULT_AUDIO_SECONDS)));
+        }
+        log.debug("Task {} {} estimated at {} s, priority {}", task.getVideoId(), task.getType(),
+                task.getEstimatedSeconds(), task.getPriority());
+    }
+
+    /**
+     * Ожидаемое время задачи; для задач, поставленных до появления оценок, —
+     * оценка по типу для видео средней длины.
+     */
+    public int expectedSeconds(DownloadTask task) {
+        Integer estimated = task.getEstimatedSeconds();
+        return estimated != null ? estimated : defaultSeconds(task.getType());
+    }
+
+    /**
+     * Оценка задачи указанного типа для видео средней длины.
+     */
+    public int defaultSeconds(TaskType type) {
+        return estimateSeconds(type, DEFAULT_AUDIO_SECONDS);
+    }
+
+    private static boolean hasCache(TaskType type) {
+        return type == TaskType.SPEECH_RECOGNITION || type == TaskType.TEXT_NORMALIZATION;
+    }
+
+    static boolean isCached(TaskType type, VideoStatusView status) {
+        return switch (type) {
+            case SPEECH_RECOGNITION -> status.hasTranscription();
+            case TEXT_NORMALIZATION -> status.hasNormalizedText();
+            default -> false;
+        };
+    }
+
+    /**
+     * Ожидаемое время обработки в секундах для аудио указанной длительности.
+     */
+    static int estimateSeconds(TaskType type, int audioSeconds) {
+        double secondsPerAudioSecond = switch (type) {
+            case VIDEO -> 0.05;
+            case AUDIO -> 0.03;
+            case SPEECH_RECOGNITION -> 0.5;
+            // LLM normalization of the transcript, plus transcription when it is missing
+            case TEXT_NORMALIZATION -> 0.8;
+            case FULL_PROCESSING_ZIP -> 1.4;
+        };
+        return OVERHEAD_SECONDS + (int) Math.ceil(audioSeconds * secondsPerAudioSecond);
+    }
+
+    private static int audioSeconds(VideoStatusView status) {
+        if (status.durationSeconds() != null && status.durationSeconds() > 0) {
+            return status.durationSeconds();
+        }
+        if (status.wordCount() != null && status.wordCount() > 0) {
+            return (int) (status.wordCount() / WORDS_PER_SECOND);
+        }
+        return DEFAULT_AUDIO_SECONDS;
+    }
+
+    private Optional<VideoStatusView> findStatus(String videoId) {
+        try {
+            return videoRepository.findStatusByVideoId(videoId);
+        } catch (Exception e) {
+            log.warn("Failed to read video status for {}: {}", videoId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
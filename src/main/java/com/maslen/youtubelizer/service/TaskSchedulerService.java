@@ -6,6 +6,8 @@ import com.maslen.youtubelizer.repository.DownloadTaskRepository;
 import com.maslen.youtubelizer.service.handler.TaskHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.invoices.SendInvoice;
@@ -14,8 +16,8 @@ import org.telegram.telegrambots.meta.api.objects.payments.LabeledPrice;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,14 +32,23 @@ public class TaskSchedulerService {
     private final TelegramNotificationService notificationService;
     private final MessageService messageService;
     private final List<TaskHandler> taskHandlers;
+    private final FairTaskSelector fairTaskSelector;
+    private final PipelineMetrics metrics;
+    private final TaskStageRecorder taskStageRecorder;
 
-    @Scheduled(fixedDelay = 10000)
+    /** false — строгая очередь по приоритету и времени постановки */
+    @Value("${app.scheduler.fair-scheduling:true}")
+    private boolean fairScheduling;
+
+    @Value("${app.scheduler.candidate-limit:200}")
+    private int candidateLimit;
+
+    @Scheduled(fixedDelayString = "${app.scheduler.interval-ms:10000}")
     public void processNextTask() {
         try {
             resetStuckTasks();
 
-            Optional<DownloadTask> taskOpt = downloadTaskRepository
-                    .findTopByStatusOrderByCreatedAtAsc(TaskStatus.PENDING);
+            Optional<DownloadTask> taskOpt = nextTask();
 
             if (taskOpt.isPresent()) {
                 DownloadTask task = taskOpt.get();
@@ -53,11 +64,18 @@ public class TaskSchedulerService {
         }
     }
 
+    private Optional<DownloadTask> nextTask() {
+        if (!fairScheduling) {
+            return downloadTaskRepository.findNextPending();
+        }
+        return Optional.ofNullable(
+                fairTaskSelector.select(downloadTaskRepository.findPendingCandidates(Limit.of(candidateLimit))));
+    }
+
     private void resetStuckTasks() {
         try {
             LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-            List<DownloadTask> stuckTasks = downloadTaskRepository.findByStatusAndUpdatedAtBefore(TaskStatus.PROCESSING,
-                    oneHourAgo);
+            List<DownloadTask> stuckTasks = downloadTaskRepository.findStuckProcessing(oneHourAgo);
 
             if (!stuckTasks.isEmpty()) {
                 log.info("Found {} stuck tasks, resetting to PENDING", stuckTasks.size());
@@ -78,7 +96,15 @@ public class TaskSchedulerService {
     private void processTask(DownloadTask task) {
         log.info("Processing task id: {} type: {}", task.getId(), task.getType());
 
+        LocalDateTime startedAt = LocalDateTime.now();
+        if (task.getUpdatedAt() != null) {
+            // updated_at is the moment the task became PENDING
+            metrics.recordQueueWait(task.getType(), Duration.between(task.getUpdatedAt(), startedAt));
+            taskStageRecorder.recordQueued(task, task.getUpdatedAt(), startedAt);
+        }
         task.setStatus(TaskStatus.PROCESSING);
+        task.setStartedAt(startedAt);
+        task.setCompletedAt(null);
         downloadTaskRepository.save(task);
 
         try {
@@ -88,6 +114,9 @@ public class TaskSchedulerService {
                     .orElseThrow(() -> new IllegalArgumentException("Unknown task type: " + task.getType()));
 
             handler.handle(task);
+            metrics.recordTask(task.getType(), task.getStatus() == TaskStatus.COMPLETED
+                    ? PipelineMetrics.OUTCOME_SUCCESS
+                    : PipelineMetrics.OUTCOME_FAILURE, Duration.between(startedAt, LocalDateTime.now()));
 
             // Send donation menu only for successfully completed tasks
             if (task.getStatus() == TaskStatus.COMPLETED) {
@@ -96,7 +125,10 @@ public class TaskSchedulerService {
 
         } catch (Exception e) {
             log.error("Error processing task {}", task.getId(), e);
+            metrics.recordTask(task.getType(), PipelineMetrics.OUTCOME_FAILURE,
+                    Duration.between(startedAt, LocalDateTime.now()));
             task.setStatus(TaskStatus.FAILED);
+            task.setCompletedAt(LocalDateTime.now());
             task.setErrorMessage(truncateErrorMessage(e.getMessage()));
             downloadTaskRepository.save(task);
 
@@ -115,57 +147,49 @@ public class TaskSchedulerService {
     }
 
     private void sendDonationMenu(long chatId, String languageCode) {
-        try {
-            List<InlineKeyboardRow> keyboard = new ArrayList<>();
-
-            // Row 1: 10, 50, 100 stars
-            InlineKeyboardRow row1 = new InlineKeyboardRow();
-            row1.add(InlineKeyboardButton.builder().text("⭐ 10").callbackData("donate:10").build());
-            row1.add(InlineKeyboardButton.builder().text("⭐ 50").callbackData("donate:50").build());
-            row1.add(InlineKeyboardButton.builder().text("⭐ 100").callbackData("donate:100").build());
-            keyboard.add(row1);
-
-            // Row 2: Custom amount
-            InlineKeyboardRow row2 = new InlineKeyboardRow();
-            row2.add(InlineKeyboardButton.builder()
-                    .text(messageService.getMessage("donation.custom", languageCode))
-                    .callbackData("donate:custom")
-                    .build());
-            keyboard.add(row2);
-
-            InlineKeyboardMarkup markup = InlineKeyboardMarkup.builder().keyboard(keyboard).build();
-
-            SendMessage message = SendMessage.builder()
-                    .chatId(chatId)
-                    .text(messageService.getMessage("donation.choose_amount", languageCode))
-                    .replyMarkup(markup)
-                    .build();
-
-            notificationService.getClient().execute(message);
-            log.info("Donation menu sent to chat {}", chatId);
-        } catch (TelegramApiException e) {
-            log.warn("Failed to send donation menu: {}", e.getMessage());
-        }
+        List<InlineKeyboardRow> keyboard = new ArrayList<>();
+
+        // Row 1: 10, 50, 100 stars
+        InlineKeyboardRow row1 = new InlineKeyboardRow();
+        row1.add(InlineKeyboardButton.builder().text("⭐ 10").callbackData("donate:10").build());
+        row1.add(InlineKeyboardButton.builder().text("⭐ 50").callbackData("donate:50").build());
+        row1.add(InlineKeyboardButton.builder().text("⭐ 100").callbackData("donate:100").build());
+        keyboard.add(row1);
+
+        // Row 2: Custom amount
+        InlineKeyboardRow row2 = new InlineKeyboardRow();
+        row2.add(InlineKeyboardButton.builder()
+                .text(messageService.getMessage("donation.custom", languageCode))
+                .callbackData("donate:custom")
+                .build());
+        keyboard.add(row2);
+
+        InlineKeyboardMarkup markup = InlineKeyboardMarkup.builder().keyboard(keyboard).build();
+
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId)
+                .text(messageService.getMessage("donation.choose_amount", languageCode))
+                .replyMarkup(markup)
+                .build();
+
+        notificationService.execute(chatId, message)
+                .thenRun(() -> log.info("Donation menu sent to chat {}", chatId));
     }
 
     public void sendDonationInvoice(long chatId, int amount, String languageCode) {
-        try {
-            String label = "⭐ " + amount + " Stars";
-            SendInvoice sendInvoice = SendInvoice.builder()
-                    .chatId(chatId)
-                    .title(messageService.getMessage("donation.title", languageCode))
-                    .description(messageService.getMessage("donation.description", languageCode))
-                    .payload("donation_" + amount + "_stars_" + System.currentTimeMillis())
-                    .currency("XTR")
-                    .providerToken("")
-                    .price(new LabeledPrice(label, amount))
-                    .startParameter("donate")
-                    .build();
-
-            notificationService.getClient().execute(sendInvoice);
-            log.info("Donation invoice for {} stars sent to chat {}", amount, chatId);
-        } catch (TelegramApiException e) {
-            log.warn("Failed to send donation invoice: {}", e.getMessage());
-        }
+        String label = "⭐ " + amount + " Stars";
+        SendInvoice sendInvoice = SendInvoice.builder()
+                .chatId(chatId)
+                .title(messageService.getMessage("donation.title", languageCode))
+                .description(messageService.getMessage("donation.description", languageCode))
+                .payload("donation_" + amount + "_stars_" + System.currentTimeMillis())
+                .currency("XTR")
+                .providerToken("")
+                .price(new LabeledPrice(label, amount))
+                .startParameter("donate")
+                .build();
+
+        notificationService.execute(chatId, sendInvoice)
+                .thenRun(() -> log.info("Donation invoice for {} stars sent to chat {}", amount, chatId));
     }
 }
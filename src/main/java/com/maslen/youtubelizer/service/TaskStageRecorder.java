@@ -0,0 +1,127 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.entity.TaskStage;
+import com.maslen.youtubelizer.model.TaskStageName;
+import com.maslen.youtubelizer.repository.TaskStageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Запись хронологии этапов задачи в таблицу {@code task_stages}.
+ * <p>
+ * Каждый этап сохраняется отдельной строкой с началом, концом, результатом и
+ * объёмом работы (байты, секунды аудио, токены), чтобы по жалобе «задача шла
+ * 50 минут» было видно, куда ушло время, а по всем задачам — перцентили этапов
+ * (см. {@code GET /api/admin/stages}). Ошибка записи только логируется и на
+ * задачу не влияет.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TaskStageRecorder {
+
+    @FunctionalInterface
+    public interface StageCall<T> {
+        T call(Measurements stage) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Объём работы этапа; этап заполняет то, что к нему относится.
+     */
+    public static final class Measurements {
+        private Long bytes;
+        private Integer audioSeconds;
+        private Integer tokens;
+
+        public void bytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        /** Размер файла, если он существует */
+        public void bytes(File file) {
+            if (file != null && file.exists()) {
+                this.bytes = file.length();
+            }
+        }
+
+        public void audioSeconds(int audioSeconds) {
+            if (audioSeconds > 0) {
+                this.audioSeconds = audioSeconds;
+            }
+        }
+
+        public void tokens(int tokens) {
+            if (tokens > 0) {
+                this.tokens = tokens;
+            }
+        }
+    }
+
+    private final TaskStageRepository taskStageRepository;
+
+    @Value("${app.stages.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Выполняет этап и сохраняет его длительность и результат (в том числе при
+     * ошибке или прерывании).
+     */
+    public <T> T record(DownloadTask task, TaskStageName stage, StageCall<T> call)
+            throws IOException, InterruptedException {
+        Measurements measurements = new Measurements();
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        String outcome = PipelineMetrics.OUTCOME_FAILURE;
+        try {
+            T result = call.call(measurements);
+            outcome = PipelineMetrics.OUTCOME_SUCCESS;
+            return result;
+        } catch (InterruptedException e) {
+            outcome = PipelineMetrics.OUTCOME_INTERRUPTED;
+            throw e;
+        } finally {
+            save(task, stage, startedAt, Duration.ofNanos(System.nanoTime() - start), measurements, outcome);
+        }
+    }
+
+    /**
+     * Сохраняет ожидание в очереди: от постановки задачи до начала обработки.
+     */
+    public void recordQueued(DownloadTask task, LocalDateTime queuedAt, LocalDateTime startedAt) {
+        save(task, TaskStageName.QUEUE, queuedAt, Duration.between(queuedAt, startedAt), new Measurements(),
+                PipelineMetrics.OUTCOME_SUCCESS);
+    }
+
+    private void save(DownloadTask task, TaskStageName stage, LocalDateTime startedAt, Duration duration,
+            Measurements measurements, String outcome) {
+        if (!enabled || task.getId() == null) {
+            return;
+        }
+        try {
+            TaskStage row = new TaskStage();
+            row.setTaskId(task.getId());
+            row.setTaskType(task.getType());
+            row.setStage(stage);
+            row.setStartedAt(startedAt);
+            row.setFinishedAt(startedAt.plus(duration));
+            row.setDurationMs(Math.max(0, duration.toMillis()));
+            row.setBytes(measurements.bytes);
+            row.setAudioSeconds(measurements.audioSeconds);
+            row.setTokens(measurements.tokens);
+            row.setOutcome(outcome);
+            taskStageRepository.save(row);
+            log.debug("[STAGES] Task {} {} {}: {} ms, {}", task.getId(), task.getType(), stage,
+                    row.getDurationMs(), outcome);
+        } catch (Exception e) {
+            log.warn("[STAGES] Failed to record {} of task {}: {}", stage, task.getId(), e.getMessage());
+        }
+    }
+}
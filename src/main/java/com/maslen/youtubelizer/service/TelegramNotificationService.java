@@ -3,18 +3,27 @@ package com.maslen.youtubelizer.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Централизованный сервис для отправки сообщений и файлов в Telegram.
  * Устраняет дублирование sendMessage/sendDocument между YouTubeLizerBot и
  * TaskSchedulerService.
+ * <p>
+ * Все отправки идут через {@link TelegramOutboundQueue}: методы возвращаются
+ * сразу, а результат доступен через {@link CompletableFuture}. Ошибки
+ * логируются здесь; вызывающему коду достаточно дождаться future, если ему
+ * важен факт доставки (например, перед удалением отправленного файла).
  */
 @Slf4j
 @Service
@@ -22,38 +31,78 @@ import java.io.File;
 public class TelegramNotificationService {
 
     private final TelegramClient telegramClient;
+    private final TelegramOutboundQueue outboundQueue;
 
     /**
      * Отправляет текстовое сообщение в чат.
      */
-    public void sendMessage(long chatId, String text) {
+    public CompletableFuture<Message> sendMessage(long chatId, String text) {
         SendMessage message = SendMessage.builder()
                 .chatId(chatId)
                 .text(text)
                 .build();
-        try {
-            telegramClient.execute(message);
-            log.debug("[TELEGRAM] Сообщение отправлено в чат {}", chatId);
-        } catch (TelegramApiException e) {
-            log.error("[TELEGRAM] Не удалось отправить сообщение в чат {}: {}", chatId, e.getMessage(), e);
-        }
+        return outboundQueue.submit(chatId, "message", () -> telegramClient.execute(message))
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        log.debug("[TELEGRAM] Сообщение отправлено в чат {}", chatId);
+                    } else {
+                        log.error("[TELEGRAM] Не удалось отправить сообщение в чат {}: {}", chatId, e.getMessage(), e);
+                    }
+                });
     }
 
     /**
      * Отправляет файл (документ) в чат с подписью.
      */
-    public void sendDocument(long chatId, File file, String caption) {
+    public CompletableFuture<Message> sendDocument(long chatId, File file, String caption) {
         SendDocument sendDocument = SendDocument.builder()
                 .chatId(chatId)
                 .document(new InputFile(file))
                 .caption(caption)
                 .build();
-        try {
-            telegramClient.execute(sendDocument);
-            log.debug("[TELEGRAM] Документ отправлен в чат {}", chatId);
-        } catch (TelegramApiException e) {
-            log.error("[TELEGRAM] Не удалось отправить документ в чат {}: {}", chatId, e.getMessage(), e);
-        }
+        return outboundQueue.submit(chatId, "document", () -> telegramClient.execute(sendDocument))
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        log.debug("[TELEGRAM] Документ отправлен в чат {}", chatId);
+                    } else {
+                        log.error("[TELEGRAM] Не удалось отправить документ в чат {}: {}", chatId, e.getMessage(), e);
+                    }
+                });
+    }
+
+    /**
+     * Отправляет документ, сформированный в памяти (без временного файла на
+     * диске). Поток создаётся заново на каждую попытку, поэтому повтор после 429
+     * отправляет тот же контент.
+     */
+    public CompletableFuture<Message> sendDocument(long chatId, byte[] content, String fileName, String caption) {
+        return outboundQueue.submit(chatId, "document", () -> telegramClient.execute(SendDocument.builder()
+                .chatId(chatId)
+                .document(new InputFile(new ByteArrayInputStream(content), fileName))
+                .caption(caption)
+                .build()))
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        log.debug("[TELEGRAM] Документ {} отправлен в чат {}", fileName, chatId);
+                    } else {
+                        log.error("[TELEGRAM] Не удалось отправить документ {} в чат {}: {}", fileName, chatId,
+                                e.getMessage(), e);
+                    }
+                });
+    }
+
+    /**
+     * Выполняет произвольный метод Bot API (inline-клавиатуры, invoice и т.д.)
+     * через общую очередь с лимитами.
+     */
+    public <T extends Serializable> CompletableFuture<T> execute(long chatId, BotApiMethod<T> method) {
+        return outboundQueue.submit(chatId, method.getMethod(), () -> telegramClient.execute(method))
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        log.warn("[TELEGRAM] Не удалось выполнить {} для чата {}: {}", method.getMethod(), chatId,
+                                e.getMessage());
+                    }
+                });
     }
 
     /**
@@ -0,0 +1,303 @@
+package com.maslen.youtubelizer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь исходящих запросов к Telegram Bot API с учётом лимитов:
+ * <ul>
+ * <li>глобальный темп ~30 сообщений в секунду;</li>
+ * <li>не чаще одного сообщения в секунду в один чат;</li>
+ * <li>ответ 429 — повтор через {@code retry_after}, сетевые ошибки и 5xx —
+ * повтор с экспоненциальной задержкой.</li>
+ * </ul>
+ * У каждого чата своя FIFO-очередь: следующий запрос отправляется только
+ * после завершения предыдущего, а повтор (429 или задержка после ошибки)
+ * занимает голову очереди, так что порядок сообщений в чате сохраняется.
+ * Глобальный темп распределяется слотами времени (GCRA); вызывающий поток не
+ * блокируется.
+ */
+@Slf4j
+@Component
+public class TelegramOutboundQueue {
+
+    /** Вызов Telegram API, который может бросить {@link TelegramApiException} */
+    @FunctionalInterface
+    public interface TelegramCall<T> {
+        T execute() throws TelegramApiException;
+    }
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final int CHAT_QUEUES_CLEANUP_THRESHOLD = 10_000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final long globalIntervalNanos;
+    private final long chatIntervalNanos;
+    private final int maxAttempts;
+    private final PipelineMetrics metrics;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("telegram-outbound-scheduler").daemon().factory());
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("telegram-outbound-", 0).factory());
+
+    // Guarded by this
+    private long globalNextSlot = System.nanoTime();
+    private final Map<Long, ChatQueue> chats = new HashMap<>();
+
+    public TelegramOutboundQueue(
+            @Value("${app.telegram.outbound.global-per-second:30}") int globalPerSecond,
+            @Value("${app.telegram.outbound.chat-interval-ms:1000}") long chatIntervalMillis,
+            @Value("${app.telegram.outbound.max-attempts:5}") int maxAttempts,
+            PipelineMetrics metrics) {
+        this.metrics = metrics;
+        this.globalIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, globalPerSecond);
+        this.chatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(chatIntervalMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Ставит вызов в очередь чата.
+     *
+     * @param chatId      чат, в который адресован запрос (для лимита и порядка в чате)
+     * @param description краткое описание для логов
+     * @param call        сам вызов Telegram API
+     * @return future с результатом вызова; завершается с ошибкой, если попытки
+     *         исчерпаны или ошибка не подлежит повтору
+     */
+    public <T> CompletableFuture<T> submit(long chatId, String description, TelegramCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queued = System.nanoTime();
+        result.whenComplete((value, error) -> metrics.recordTelegramDelivery(description,
+                error == null ? PipelineMetrics.OUTCOME_SUCCESS : PipelineMetrics.OUTCOME_FAILURE,
+                System.nanoTime() - queued));
+
+        Attempt<T> attempt = new Attempt<>(chatId, description, call, result);
+        synchronized (this) {
+            if (chats.size() > CHAT_QUEUES_CLEANUP_THRESHOLD) {
+                long now = System.nanoTime();
+                chats.values().removeIf(chat -> !chat.busy && chat.nextSlot - now < 0);
+            }
+            ChatQueue chat = chats.computeIfAbsent(chatId, id -> new ChatQueue(System.nanoTime()));
+            chat.pending.addLast(attempt);
+            if (!chat.busy) {
+                chat.busy = true;
+                dispatch(chat, 0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Планирует отправку головы очереди чата. Вызывается под {@code this},
+     * когда в чате нет отправки в работе.
+     */
+    private void dispatch(ChatQueue chat, long notBeforeNanos) {
+        long now = System.nanoTime();
+        long ready = now;
+        if (notBeforeNanos - ready > 0) {
+            ready = notBeforeNanos;
+        }
+        if (chat.nextSlot - ready > 0) {
+            ready = chat.nextSlot;
+        }
+        try {
+            if (ready - globalNextSlot > 0 && ready - now > 0) {
+                // Waiting for the chat (retry_after, backoff): take a global slot only when ready,
+                // so a far-off retry does not hold back other chats
+                scheduler.schedule(() -> redispatch(chat), ready - now, TimeUnit.NANOSECONDS);
+                return;
+            }
+            long slot = globalNextSlot - ready > 0 ? globalNextSlot : ready;
+            globalNextSlot = slot + globalIntervalNanos;
+            scheduler.schedule(() -> senders.execute(() -> run(chat)), Math.max(0, slot - now),
+                    TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            // Executor is shutting down
+            for (Attempt<?> attempt : chat.pending) {
+                attempt.result.completeExceptionally(e);
+            }
+            chat.pending.clear();
+            chat.busy = false;
+        }
+    }
+
+    private synchronized void redispatch(ChatQueue chat) {
+        dispatch(chat, 0);
+    }
+
+    /** Завершает голову очереди чата и отправляет следующий запрос */
+    private synchronized void advance(ChatQueue chat, long sentAtNanos) {
+        chat.pending.pollFirst();
+        long next = sentAtNanos + chatIntervalNanos;
+        if (next - chat.nextSlot > 0) {
+            chat.nextSlot = next;
+        }
+        // Skip requests whose callers have already given up
+        while (!chat.pending.isEmpty() && chat.pending.peekFirst().result.isDone()) {
+            chat.pending.pollFirst();
+        }
+        if (chat.pending.isEmpty()) {
+            chat.busy = false;
+        } else {
+            dispatch(chat, 0);
+        }
+    }
+
+    /** Повторяет голову очереди не раньше {@code notBeforeNanos}; запросы за ней ждут */
+    private synchronized void retryHead(ChatQueue chat, long notBeforeNanos) {
+        if (notBeforeNanos - chat.nextSlot > 0) {
+            chat.nextSlot = notBeforeNanos;
+        }
+        dispatch(chat, notBeforeNanos);
+    }
+
+    private void run(ChatQueue chat) {
+        Attempt<?> attempt;
+        synchronized (this) {
+            attempt = chat.pending.peekFirst();
+        }
+        long start = System.nanoTime();
+        if (attempt == null || attempt.result.isDone()) {
+            advance(chat, start);
+            return;
+        }
+        attempt.number++;
+        try {
+            attempt.execute();
+            metrics.recordTelegramCall(attempt.description, PipelineMetrics.OUTCOME_SUCCESS, PipelineMetrics.NO_ERROR,
+                    System.nanoTime() - start);
+            advance(chat, start);
+        } catch (TelegramApiRequestException e) {
+            Integer errorCode = e.getErrorCode();
+            metrics.recordTelegramCall(attempt.description, PipelineMetrics.OUTCOME_FAILURE,
+                    errorCode != null ? "http_" + errorCode : "network", System.nanoTime() - start);
+            if (errorCode != null && errorCode == 429) {
+                int retryAfter = e.getParameters() != null && e.getParameters().getRetryAfter() != null
+                        ? e.getParameters().getRetryAfter()
+                        : 1;
+                log.warn("[TELEGRAM] 429 for {} in chat {}, retry after {} s", attempt.description,
+                        attempt.chatId, retryAfter);
+                retryOrFail(chat, attempt, e, start, System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfter));
+            } else if (errorCode != null && errorCode >= 400 && errorCode < 500) {
+                // Bad request, bot blocked by user, etc. — repeating will not help
+                attempt.result.completeExceptionally(e);
+                advance(chat, start);
+            } else {
+                retryWithBackoff(chat, attempt, e, start);
+            }
+        } catch (TelegramApiException e) {
+            metrics.recordTelegramCall(attempt.description, PipelineMetrics.OUTCOME_FAILURE, "network",
+                    System.nanoTime() - start);
+            retryWithBackoff(chat, attempt, e, start);
+        } catch (RuntimeException e) {
+            metrics.recordTelegramCall(attempt.description, PipelineMetrics.OUTCOME_FAILURE, "internal",
+                    System.nanoTime() - start);
+            attempt.result.completeExceptionally(e);
+            advance(chat, start);
+        }
+    }
+
+    private void retryWithBackoff(ChatQueue chat, Attempt<?> attempt, Exception e, long sentAtNanos) {
+        if (attempt.number >= maxAttempts) {
+            log.warn("[TELEGRAM] {} to chat {} failed after {} attempts: {}", attempt.description, attempt.chatId,
+                    attempt.number, e.getMessage());
+            retryOrFail(chat, attempt, e, sentAtNanos, 0);
+            return;
+        }
+        long backoffMillis = INITIAL_BACKOFF_MILLIS << Math.min(attempt.number - 1, 6);
+        log.warn("[TELEGRAM] {} to chat {} failed (attempt {}/{}): {}, retrying in {} ms", attempt.description,
+                attempt.chatId, attempt.number, maxAttempts, e.getMessage(), backoffMillis);
+        retryOrFail(chat, attempt, e, sentAtNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis));
+    }
+
+    private void retryOrFail(ChatQueue chat, Attempt<?> attempt, Exception e, long sentAtNanos,
+            long notBeforeNanos) {
+        if (attempt.number >= maxAttempts) {
+            attempt.result.completeExceptionally(e);
+            advance(chat, sentAtNanos);
+        } else {
+            retryHead(chat, notBeforeNanos);
+        }
+    }
+
+    /**
+     * Останавливает очередь: запросы в отправке дорабатывают (до
+     * {@link #SHUTDOWN_TIMEOUT_SECONDS} с), остальные, включая ждущие повтора,
+     * завершаются с ошибкой, чтобы вызывающие не ждали вечно.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        senders.shutdown();
+        try {
+            if (!senders.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("[TELEGRAM] Requests in flight did not finish within {} s", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IllegalStateException error = new IllegalStateException("Telegram outbound queue is shut down");
+        int dropped = 0;
+        synchronized (this) {
+            for (ChatQueue chat : chats.values()) {
+                for (Attempt<?> attempt : chat.pending) {
+                    if (attempt.result.completeExceptionally(error)) {
+                        dropped++;
+                    }
+                }
+                chat.pending.clear();
+                chat.busy = false;
+            }
+        }
+        if (dropped > 0) {
+            log.warn("[TELEGRAM] Dropped {} unsent request(s) on shutdown", dropped);
+        }
+    }
+
+    /** Очередь одного чата; поля защищены монитором {@link TelegramOutboundQueue} */
+    private static final class ChatQueue {
+        private final Deque<Attempt<?>> pending = new ArrayDeque<>();
+        /** Голова запланирована или отправляется */
+        private boolean busy;
+        /** Не раньше этого момента — следующая отправка в чат */
+        private long nextSlot;
+
+        private ChatQueue(long nextSlot) {
+            this.nextSlot = nextSlot;
+        }
+    }
+
+    private static final class Attempt<T> {
+        private final long chatId;
+        private final String description;
+        private final TelegramCall<T> call;
+        private final CompletableFuture<T> result;
+        private int number;
+
+        private Attempt(long chatId, String description, TelegramCall<T> call, CompletableFuture<T> result) {
+            this.chatId = chatId;
+            this.description = description;
+            this.call = call;
+            this.result = result;
+        }
+
+        private void execute() throws TelegramApiException {
+            result.complete(call.execute());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.util.TextSplitter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Доставка длинных текстов (транскрипция, нормализованный текст) в чат.
+ * <ul>
+ * <li>текст, помещающийся в одно сообщение, отправляется как есть;</li>
+ * <li>текст до порога {@code app.delivery.text-document-threshold}
+ * разбивается на несколько сообщений;</li>
+ * <li>более длинный текст отправляется одним {@code .txt} документом,
+ * сформированным в памяти, с коротким превью в подписи.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class TextDeliveryService {
+
+    /** Лимит длины текстового сообщения Bot API (4096) с запасом под заголовок */
+    public static final int MESSAGE_LIMIT = 4000;
+
+    /** Лимит длины подписи к документу Bot API */
+    private static final int CAPTION_LIMIT = 1024;
+
+    private final TelegramNotificationService notificationService;
+    private final int documentThreshold;
+    private final int previewLength;
+
+    public TextDeliveryService(TelegramNotificationService notificationService,
+            @Value("${app.delivery.text-document-threshold:8000}") int documentThreshold,
+            @Value("${app.delivery.text-preview-length:600}") int previewLength) {
+        this.notificationService = notificationService;
+        this.documentThreshold = Math.max(MESSAGE_LIMIT, documentThreshold);
+        this.previewLength = previewLength;
+    }
+
+    /**
+     * Отправляет текст в чат согласно политике доставки.
+     *
+     * @param header   заголовок, например {@code "🎙️ Text dQw4w9WgXcQ"}
+     * @param fileName имя документа для длинного текста
+     */
+    public void deliver(long chatId, String header, String text, String fileName) {
+        if (text.length() <= MESSAGE_LIMIT) {
+            notificationService.sendMessage(chatId, header + ":\n\n" + text);
+        } else if (text.length() <= documentThreshold) {
+            List<CharSequence> parts = TextSplitter.split(text, MESSAGE_LIMIT);
+            for (int i = 0; i < parts.size(); i++) {
+                // The outbound queue paces messages per chat, no need to sleep here
+                notificationService.sendMessage(chatId,
+                        String.format("%s (%d/%d):\n\n%s", header, i + 1, parts.size(), parts.get(i)));
+            }
+        } else {
+            log.info("[DELIVERY] Sending {} chars as document {} to chat {}", text.length(), fileName, chatId);
+            notificationService.sendDocument(chatId, text.getBytes(StandardCharsets.UTF_8), fileName,
+                    buildCaption(header, text));
+        }
+    }
+
+    private String buildCaption(String header, String text) {
+        int budget = Math.min(previewLength, CAPTION_LIMIT - header.length() - 4);
+        if (budget <= 0) {
+            return header.length() > CAPTION_LIMIT ? header.substring(0, CAPTION_LIMIT) : header;
+        }
+        // Cut at a sentence or word boundary so the preview does not end mid-word
+        int end = TextSplitter.nextCut(text, 0, budget);
+        return header + ":\n\n" + text.substring(0, end).stripTrailing() + "…";
+    }
+}
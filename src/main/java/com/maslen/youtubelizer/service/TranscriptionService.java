@@ -3,11 +3,14 @@ package com.maslen.youtubelizer.service;
 import com.maslen.youtubelizer.entity.DownloadTask;
 import com.maslen.youtubelizer.entity.Request;
 import com.maslen.youtubelizer.entity.Video;
+import com.maslen.youtubelizer.model.DetectedLanguage;
+import com.maslen.youtubelizer.model.TaskStageName;
 import com.maslen.youtubelizer.model.TranscriptionResult;
 import com.maslen.youtubelizer.repository.RequestRepository;
 import com.maslen.youtubelizer.repository.VideoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
@@ -17,6 +20,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -24,19 +28,41 @@ import java.util.Optional;
 public class TranscriptionService {
 
     private final YtDlpService ytDlpService;
+    private final FfmpegService ffmpegService;
     private final WhisperService whisperService;
     private final VideoRepository videoRepository;
     private final RequestRepository requestRepository;
     private final TelegramNotificationService notificationService;
     private final MessageService messageService;
+    private final VideoSearchService videoSearchService;
+    private final TaskStageRecorder taskStageRecorder;
+
+    /** Дублировать транскрипцию в downloads/*.txt (в БД она хранится сжатой) */
+    @Value("${app.storage.write-text-files:false}")
+    private boolean writeTextFiles;
 
     /**
      * Выполняет транскрипцию для задачи: скачивает аудио (если нужно),
      * транскрибирует, сохраняет.
      */
     public Video performTranscription(DownloadTask task, String url) throws IOException, InterruptedException {
-        // Шаг 1: Временное скачивание аудио
-        File audioFile = ytDlpService.downloadAudio(url, Paths.get("temp"), "temp_" + task.getVideoId());
+        return performTranscription(task, url, null);
+    }
+
+    /**
+     * То же, что {@link #performTranscription(DownloadTask, String)}; в
+     * двухпроходном режиме {@code draftListener} получает текст черновика до
+     * того, как неуверенные места будут перераспознаны.
+     */
+    public Video performTranscription(DownloadTask task, String url, Consumer<String> draftListener)
+            throws IOException, InterruptedException {
+        // Шаг 1: Временное скачивание самой лёгкой аудиодорожки (без перекодирования в MP3)
+        File audioFile = taskStageRecorder.record(task, TaskStageName.AUDIO_DOWNLOAD, stage -> {
+            File file = ytDlpService.downloadAudioForTranscription(url, Paths.get("temp"),
+                    "temp_" + task.getVideoId());
+            stage.bytes(file);
+            return file;
+        });
 
         if (audioFile == null || !audioFile.exists()) {
             // Task status update should be handled by the caller or exception thrown?
@@ -48,7 +74,7 @@ public class TranscriptionService {
         }
 
         try {
-            return transcribeFile(task, audioFile);
+            return transcribeFile(task, audioFile, draftListener);
         } finally {
             // Шаг 4: Очистка временного аудио файла
             try {
@@ -66,20 +92,61 @@ public class TranscriptionService {
      * Transcribe any audio file and save result related to the task.
      */
     public Video transcribeFile(DownloadTask task, File audioFile) throws IOException, InterruptedException {
-        // Step 2: Transcribe the audio using Whisper with language detection
-        log.info("Starting transcription with language detection for video: {}", task.getVideoId());
-        TranscriptionResult result = whisperService.transcribeWithLanguage(audioFile);
+        return transcribeFile(task, audioFile, null);
+    }
+
+    private Video transcribeFile(DownloadTask task, File audioFile, Consumer<String> draftListener)
+            throws IOException, InterruptedException {
+        // Step 2: Convert to WAV 16kHz mono up front so conversion and recognition are timed
+        // as separate stages (Whisper takes a *_16k.wav as-is)
+        File wavFile = taskStageRecorder.record(task, TaskStageName.CONVERSION, stage -> {
+            stage.bytes(audioFile);
+            return ffmpegService.convertToWav(audioFile);
+        });
+
+        TranscriptionResult result;
+        try {
+            // Step 3: Detect the language on the first 30 s, so the main pass runs with it pinned
+            DetectedLanguage language = null;
+            if (whisperService.isLanguageDetectionEnabled()) {
+                language = taskStageRecorder.record(task, TaskStageName.LANGUAGE_DETECTION,
+                        stage -> whisperService.detectLanguage(wavFile));
+                if (language != null) {
+                    saveDetectedLanguage(task, language.language());
+                }
+            }
+
+            // Step 4: Transcribe the audio using Whisper
+            log.info("Starting transcription (language: {}) for video: {}",
+                    language != null ? language.language() : "auto", task.getVideoId());
+            DetectedLanguage pinned = language;
+            result = taskStageRecorder.record(task, TaskStageName.TRANSCRIPTION, stage -> {
+                TranscriptionResult transcribed = whisperService.transcribeWithLanguage(wavFile, pinned,
+                        draftListener == null ? null
+                                : draft -> draftListener.accept(normalizeTranscriptionText(draft.text())));
+                stage.audioSeconds(transcribed.durationSeconds());
+                return transcribed;
+            });
+        } finally {
+            if (!wavFile.equals(audioFile) && wavFile.exists() && !wavFile.delete()) {
+                log.warn("Не удалось удалить временный WAV: {}", wavFile.getAbsolutePath());
+            }
+        }
         String transcription = result.text();
         String detectedLanguage = result.language();
 
         // Clean and normalize transcription text
         transcription = normalizeTranscriptionText(transcription);
 
-        // Step 3: Save transcription result to database and return the Video entity
-        Video video = saveTranscriptionResult(task, transcription, detectedLanguage);
+        // Step 5: Save transcription result to database and return the Video entity
+        Video video = saveTranscriptionResult(task, transcription, detectedLanguage, result.durationSeconds());
 
-        // Step 4: Save transcription to file
         if (video != null) {
+            videoSearchService.updateIndex(task.getVideoId(), detectedLanguage, transcription);
+        }
+
+        // Step 6: Save transcription to file
+        if (video != null && writeTextFiles) {
             saveTranscriptionToFile(task.getVideoId(), transcription);
         }
 
@@ -91,10 +158,11 @@ public class TranscriptionService {
             return transcription;
         }
         // Remove excessive whitespace
-        return transcription.replaceAll("\\s+", " ").trim();
+        return WhisperOutputParser.normalizeWhitespace(transcription);
     }
 
-    private Video saveTranscriptionResult(DownloadTask task, String transcription, String detectedLanguage) {
+    private Video saveTranscriptionResult(DownloadTask task, String transcription, String detectedLanguage,
+            int durationSeconds) {
         try {
             Optional<Video> existingVideo = videoRepository.findByVideoId(task.getVideoId());
 
@@ -105,21 +173,18 @@ public class TranscriptionService {
                 video.setOriginalLanguage(detectedLanguage);
                 video.setWordCount(transcription.split("\\s+").length);
                 video.setTranscriptionStatus("COMPLETED");
+                if (durationSeconds > 0) {
+                    video.setDurationSeconds(durationSeconds);
+                }
                 log.info("Updated existing video record with transcription for video: {}", task.getVideoId());
             } else {
-                video = new Video();
-                video.setVideoId(task.getVideoId());
+                video = newVideo(task);
                 video.setTranscriptionText(transcription);
                 video.setOriginalLanguage(detectedLanguage);
                 video.setWordCount(transcription.split("\\s+").length);
                 video.setTranscriptionStatus("COMPLETED");
-
-                Optional<Request> requestOpt = findRequestByVideoIdSafely(task.getVideoId());
-                if (requestOpt.isPresent()) {
-                    Request request = requestOpt.get();
-                    if (request.getChannel() != null) {
-                        video.setChannel(request.getChannel());
-                    }
+                if (durationSeconds > 0) {
+                    video.setDurationSeconds(durationSeconds);
                 }
                 log.info("Created new video record with transcription for video: {}", task.getVideoId());
             }
@@ -131,6 +196,36 @@ public class TranscriptionService {
         }
     }
 
+    /**
+     * Сохраняет язык из предварительного прохода до основной транскрипции;
+     * ошибка записи не прерывает транскрипцию.
+     */
+    private void saveDetectedLanguage(DownloadTask task, String language) {
+        try {
+            Video video = videoRepository.findByVideoId(task.getVideoId()).orElseGet(() -> newVideo(task));
+            video.setOriginalLanguage(language);
+            videoRepository.save(video);
+            log.info("Saved detected language {} for video: {}", language, task.getVideoId());
+        } catch (Exception e) {
+            log.warn("Failed to save detected language for video {}: {}", task.getVideoId(), e.getMessage());
+        }
+    }
+
+    /** Новая запись Video с каналом из запроса, если он известен */
+    private Video newVideo(DownloadTask task) {
+        Video video = new Video();
+        video.setVideoId(task.getVideoId());
+
+        Optional<Request> requestOpt = findRequestByVideoIdSafely(task.getVideoId());
+        if (requestOpt.isPresent()) {
+            Request request = requestOpt.get();
+            if (request.getChannel() != null) {
+                video.setChannel(request.getChannel());
+            }
+        }
+        return video;
+    }
+
     private Optional<Request> findRequestByVideoIdSafely(String videoId) {
         try {
             return requestRepository.findByVideoId(videoId);
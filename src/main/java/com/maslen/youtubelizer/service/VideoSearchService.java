@@ -0,0 +1,160 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.model.SearchResult;
+import com.maslen.youtubelizer.model.VideoSearchHit;
+import com.maslen.youtubelizer.model.VideoText;
+import com.maslen.youtubelizer.repository.VideoRepository;
+import com.maslen.youtubelizer.util.TextSplitter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Полнотекстовый поиск по архиву транскрипций.
+ * <p>
+ * Индекс — колонка {@code videos.search_vector} с GIN индексом: вектор
+ * строится по конфигурации языка видео и дополнительно по {@code simple}, чтобы
+ * находились и формы слов, и точные совпадения на языках без словаря в
+ * Postgres (например, украинском). Фрагменты (snippets) строятся в приложении,
+ * потому что текст в БД хранится сжатым и недоступен для {@code ts_headline};
+ * тексты всех найденных видео читаются одним запросом.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VideoSearchService {
+
+    private static final int MAX_LIMIT = 50;
+    private static final int SNIPPET_LENGTH = 240;
+    private static final int SNIPPET_CONTEXT_BEFORE = 80;
+    private static final Pattern QUERY_TERM = Pattern.compile("(-?)([\\p{L}\\p{N}]+)");
+
+    /** Языки Whisper/Telegram → встроенные конфигурации полнотекстового поиска Postgres */
+    private static final Map<String, String> TEXT_SEARCH_CONFIGS = Map.ofEntries(
+            Map.entry("ru", "russian"),
+            Map.entry("en", "english"),
+            Map.entry("de", "german"),
+            Map.entry("fr", "french"),
+            Map.entry("es", "spanish"),
+            Map.entry("it", "italian"),
+            Map.entry("pt", "portuguese"),
+            Map.entry("nl", "dutch"),
+            Map.entry("sv", "swedish"),
+            Map.entry("fi", "finnish"),
+            Map.entry("tr", "turkish"));
+
+    private final VideoRepository videoRepository;
+
+    /**
+     * Возвращает конфигурацию Postgres для языка; для неизвестных — {@code simple}.
+     */
+    public static String textSearchConfig(String languageCode) {
+        if (languageCode == null || languageCode.length() < 2) {
+            return "simple";
+        }
+        return TEXT_SEARCH_CONFIGS.getOrDefault(languageCode.substring(0, 2).toLowerCase(), "simple");
+    }
+
+    /**
+     * Обновляет поисковый вектор видео. Ошибки не прерывают сохранение
+     * транскрипции — индекс будет достроен при следующем запуске.
+     */
+    public void updateIndex(String videoId, String language, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        try {
+            videoRepository.updateSearchVector(videoId, textSearchConfig(language), text);
+        } catch (Exception e) {
+            log.warn("[SEARCH] Failed to index video {}: {}", videoId, e.getMessage());
+        }
+    }
+
+    /**
+     * Ищет видео по тексту транскрипции.
+     *
+     * @param query        запрос в синтаксисе websearch ("фраза в кавычках",
+     *                     or, -исключение)
+     * @param languageCode язык запроса (определяет морфологию)
+     */
+    public List<SearchResult> search(String query, String languageCode, int limit) {
+        long start = System.nanoTime();
+        List<VideoSearchHit> hits = videoRepository.search(query, textSearchConfig(languageCode),
+                Math.max(1, Math.min(limit, MAX_LIMIT)));
+
+        // One query for all hits instead of one per hit
+        Map<String, String> texts = new HashMap<>();
+        if (!hits.isEmpty()) {
+            for (VideoText text : videoRepository.findTranscriptionTexts(
+                    hits.stream().map(VideoSearchHit::getVideoId).toList())) {
+                texts.put(text.videoId(), text.text());
+            }
+        }
+
+        List<String> terms = extractTerms(query);
+        List<SearchResult> results = new ArrayList<>(hits.size());
+        for (VideoSearchHit hit : hits) {
+            String text = texts.get(hit.getVideoId());
+            String snippet = text != null ? buildSnippet(text, terms) : "";
+            results.add(new SearchResult(hit.getVideoId(), hit.getVideoTitle(),
+                    hit.getScore() != null ? hit.getScore() : 0f, snippet));
+        }
+        log.debug("[SEARCH] '{}' -> {} results in {} ms", query, results.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return results;
+    }
+
+    static List<String> extractTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = QUERY_TERM.matcher(query);
+        while (matcher.find()) {
+            String term = matcher.group(2);
+            if (!matcher.group(1).isEmpty() || term.length() < 2 || term.equalsIgnoreCase("or")) {
+                continue;
+            }
+            // Crude stemming: match "транскрипции" for "транскрипция"
+            terms.add(term.length() >= 6 ? term.substring(0, term.length() - 2) : term);
+        }
+        return terms;
+    }
+
+    static String buildSnippet(String text, List<String> terms) {
+        int match = -1;
+        for (String term : terms) {
+            int index = indexOfIgnoreCase(text, term, match < 0 ? text.length() : match);
+            if (index >= 0 && (match < 0 || index < match)) {
+                match = index;
+            }
+        }
+
+        int start = 0;
+        if (match > SNIPPET_CONTEXT_BEFORE) {
+            start = match - SNIPPET_CONTEXT_BEFORE;
+            // Start at the beginning of a word
+            while (start < match && !Character.isWhitespace(text.charAt(start - 1))) {
+                start++;
+            }
+        }
+        int end = TextSplitter.nextCut(text, start, SNIPPET_LENGTH);
+        String snippet = text.substring(start, end).strip();
+        return (start > 0 ? "…" : "") + snippet + (end < text.length() ? "…" : "");
+    }
+
+    /** Поиск без копирования текста в нижний регистр; ищет только до {@code limit} */
+    static int indexOfIgnoreCase(String text, String term, int limit) {
+        int last = Math.min(limit, text.length() - term.length());
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, term, 0, term.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
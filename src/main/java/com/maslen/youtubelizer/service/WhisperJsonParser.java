@@ -0,0 +1,167 @@
+package com.maslen.youtubelizer.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.maslen.youtubelizer.model.WhisperSegment;
+import com.maslen.youtubelizer.model.WhisperToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Потоковый разбор полного JSON-вывода whisper-cli ({@code -ojf}):
+ * <pre>
+ * {"result": {"language": "ru"},
+ *  "transcription": [{"offsets": {"from": 0, "to": 3000}, "text": " Привет",
+ *                     "tokens": [{"text": " При", "offsets": {...}, "p": 0.98}, ...]}, ...]}
+ * </pre>
+ * Остальные поля пропускаются без построения дерева.
+ */
+final class WhisperJsonParser {
+
+    /**
+     * Язык из {@code result.language} (или {@code null}) и сегменты.
+     */
+    record Result(String language, List<WhisperSegment> segments) {
+
+        /** Текст всех сегментов через пробел */
+        String text() {
+            return segments.stream().map(WhisperSegment::text).filter(t -> !t.isEmpty())
+                    .collect(Collectors.joining(" "));
+        }
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private WhisperJsonParser() {
+        // Utility class
+    }
+
+    static Result parse(Path file) throws IOException {
+        // whisper.cpp writes token text byte by byte, so a token may hold half of a
+        // multi-byte character; a Reader replaces it instead of failing the whole file
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    static Result parse(Reader reader) throws IOException {
+        String language = null;
+        List<WhisperSegment> segments = new ArrayList<>();
+        try (JsonParser parser = JSON.createParser(reader)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("result".equals(field) && value == JsonToken.START_OBJECT) {
+                    language = readLanguage(parser);
+                } else if ("transcription".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        segments.add(readSegment(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Result(language, segments);
+    }
+
+    private static String readLanguage(JsonParser parser) throws IOException {
+        String language = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("language".equals(field)) {
+                language = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return language;
+    }
+
+    private static WhisperSegment readSegment(JsonParser parser) throws IOException {
+        long[] offsets = { 0, 0 };
+        String text = "";
+        List<WhisperToken> tokens = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "offsets" -> readOffsets(parser, offsets);
+                case "text" -> text = parser.getValueAsString("").strip();
+                case "tokens" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        WhisperToken token = readToken(parser);
+                        if (!isSpecial(token.text())) {
+                            tokens.add(token);
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new WhisperSegment(offsets[0], offsets[1], text, tokens);
+    }
+
+    private static WhisperToken readToken(JsonParser parser) throws IOException {
+        long[] offsets = { 0, 0 };
+        String text = "";
+        float probability = 1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "offsets" -> readOffsets(parser, offsets);
+                case "text" -> text = parser.getValueAsString("");
+                case "p" -> probability = (float) parser.getValueAsDouble(1);
+                default -> parser.skipChildren();
+            }
+        }
+        return new WhisperToken(text, offsets[0], offsets[1], probability);
+    }
+
+    /** {@code {"from": 0, "to": 3000}} в миллисекундах */
+    private static void readOffsets(JsonParser parser, long[] offsets) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("from".equals(field)) {
+                offsets[0] = parser.getValueAsLong();
+            } else if ("to".equals(field)) {
+                offsets[1] = parser.getValueAsLong();
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /** Служебные токены: {@code [_BEG_]}, {@code [_TT_150]}, {@code [_SOT_]} и т.п. */
+    private static boolean isSpecial(String text) {
+        return text.startsWith("[_") && text.endsWith("]");
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.maslen.youtubelizer.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.StringJoiner;
+
+/**
+ * Потоковый разбор консольного вывода whisper-cli: строки сегментов
+ * {@code [HH:MM:SS.mmm --> HH:MM:SS.mmm] Text}, строка с обнаруженным языком и его
+ * вероятностью и прогресс ({@code --print-progress}). Экземпляр разбирает вывод одного запуска;
+ * строки подаются по мере чтения через {@link #accept(String)}.
+ * <p>
+ * Разбор ручной, по индексам, без регулярных выражений: из строки копируется
+ * только текст сегмента. Весь вывод не хранится — для сообщений об ошибках
+ * остаются последние {@link #DIAGNOSTIC_LINES} строк, а запасной парсинг
+ * (временные метки другого формата, затем любой текст, кроме служебных строк)
+ * накапливается по ходу разбора.
+ */
+@Slf4j
+public class WhisperOutputParser {
+
+    /** Сколько последних строк вывода хранится для диагностики */
+    static final int DIAGNOSTIC_LINES = 50;
+
+    private static final String LANGUAGE_MARKER = "auto-detected";
+    private static final String LANGUAGE_KEY = "language:";
+    private static final String LANGUAGE_PROBABILITY_MARKER = "p =";
+    private static final String PROGRESS_MARKER = "progress =";
+
+    /** Служебные строки whisper-cli, которые не попадают в запасной парсинг */
+    private static final String[] LOG_PREFIXES = { "whisper_", "ggml_", "main:", "system_info:", "-", "error:",
+            "options:", "supported" };
+
+    private final String[] recentLines = new String[DIAGNOSTIC_LINES];
+    private int lineCount;
+
+    private final StringBuilder transcription = new StringBuilder();
+    /** Сегменты с временными метками другого формата */
+    private final StringBuilder looseTranscription = new StringBuilder();
+    private int looseSegments;
+    /** Текст вне сегментов — только пока не найдено ни одного сегмента */
+    private final StringBuilder plainText = new StringBuilder();
+
+    private boolean sawUsage;
+    private boolean sawHelp;
+    private String language = "unknown";
+    private double languageProbability;
+    private int progress = -1;
+
+    /**
+     * Обрабатывает очередную строку вывода.
+     */
+    public void accept(String line) {
+        recentLines[lineCount++ % DIAGNOSTIC_LINES] = line;
+
+        // Help/usage output means whisper-cli got wrong arguments
+        sawUsage |= line.contains("usage:");
+        sawHelp |= line.contains("--help");
+
+        // The language line is not a segment, but the fallback still looks at it
+        boolean languageLine = parseLanguage(line);
+        if (!languageLine && parseProgress(line)) {
+            return;
+        }
+
+        // Transcription segments
+        if (!languageLine && appendSegment(line, transcription, true)) {
+            if (!plainText.isEmpty()) {
+                plainText.setLength(0);
+                plainText.trimToSize();
+            }
+            return;
+        }
+        if (appendSegment(line, looseTranscription, false)) {
+            looseSegments++;
+            return;
+        }
+        if (transcription.isEmpty() && looseSegments == 0) {
+            appendPlainText(line);
+        }
+    }
+
+    public String language() {
+        return language;
+    }
+
+    /** Вероятность обнаруженного языка или 0 */
+    public double languageProbability() {
+        return languageProbability;
+    }
+
+    /** Последний выведенный процент выполнения или -1 */
+    public int progress() {
+        return progress;
+    }
+
+    /** Последние строки вывода процесса (для сообщений об ошибках) */
+    public String recentOutput() {
+        StringJoiner joiner = new StringJoiner("\n");
+        if (lineCount > DIAGNOSTIC_LINES) {
+            joiner.add("... (" + (lineCount - DIAGNOSTIC_LINES) + " строк пропущено)");
+        }
+        for (int i = Math.max(0, lineCount - DIAGNOSTIC_LINES); i < lineCount; i++) {
+            joiner.add(recentLines[i % DIAGNOSTIC_LINES]);
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Текст транскрипции с нормализованными пробелами; если сегментов не
+     * нашлось — результат запасного парсинга.
+     */
+    public String transcription() {
+        String text = transcription.toString().trim();
+        if (text.isEmpty()) {
+            text = fallbackText();
+        }
+        return normalizeWhitespace(text);
+    }
+
+    /**
+     * Запасной парсинг, если основной формат сегментов не встретился.
+     */
+    private String fallbackText() {
+        log.warn("[WHISPER] Основной парсинг не нашёл текста, пробуем запасной...");
+
+        if (sawUsage && sawHelp) {
+            log.error("[WHISPER] Вывод содержит usage/help — whisper-cli получил неверные аргументы");
+            return "";
+        }
+        if (looseSegments > 0) {
+            log.info("[WHISPER] Запасной парсинг нашёл {} сегментов", looseSegments);
+            return looseTranscription.toString().trim();
+        }
+        String text = plainText.toString().trim();
+        if (text.isEmpty()) {
+            log.warn("[WHISPER] Все паттерны вернули пусто, последние строки вывода:\n{}", recentOutput());
+        }
+        return text;
+    }
+
+    /**
+     * {@code auto-detected language: xx (p = 0.97)} в любом месте строки.
+     */
+    private boolean parseLanguage(String line) {
+        for (int marker = line.indexOf(LANGUAGE_MARKER); marker >= 0;
+                marker = line.indexOf(LANGUAGE_MARKER, marker + 1)) {
+            int i = marker + LANGUAGE_MARKER.length();
+            int key = skipSpaces(line, i);
+            if (key == i || !line.startsWith(LANGUAGE_KEY, key)) {
+                continue;
+            }
+            int value = key + LANGUAGE_KEY.length();
+            int start = skipSpaces(line, value);
+            int end = start;
+            while (end < line.length() && isWordChar(line.charAt(end))) {
+                end++;
+            }
+            if (start == value || end == start) {
+                continue;
+            }
+            language = line.substring(start, end);
+            languageProbability = parseLanguageProbability(line, end);
+            log.info("[WHISPER] Обнаружен язык: {} (p = {})", language, languageProbability);
+            return true;
+        }
+        return false;
+    }
+
+    private static double parseLanguageProbability(String line, int from) {
+        int marker = line.indexOf(LANGUAGE_PROBABILITY_MARKER, from);
+        if (marker < 0) {
+            return 0;
+        }
+        int start = skipSpaces(line, marker + LANGUAGE_PROBABILITY_MARKER.length());
+        int end = start;
+        while (end < line.length() && (isDigit(line.charAt(end)) || line.charAt(end) == '.')) {
+            end++;
+        }
+        try {
+            return end > start ? Double.parseDouble(line.substring(start, end)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * {@code whisper_print_progress_callback: progress =  42%}
+     */
+    private boolean parseProgress(String line) {
+        if (!line.startsWith("whisper_")) {
+            return false;
+        }
+        int marker = line.indexOf(PROGRESS_MARKER);
+        if (marker < 0) {
+            return false;
+        }
+        int i = skipSpaces(line, marker + PROGRESS_MARKER.length());
+        int value = 0;
+        int digits = 0;
+        while (i < line.length() && isDigit(line.charAt(i)) && digits < 3) {
+            value = value * 10 + (line.charAt(i++) - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (value != progress) {
+            progress = value;
+            log.info("[WHISPER] Прогресс: {}%", value);
+        }
+        return true;
+    }
+
+    /**
+     * Ищет в строке сегмент и дописывает его текст (без пробелов по краям) в
+     * {@code target}.
+     *
+     * @param strict {@code true} — только {@code [HH:MM:SS.mmm --> HH:MM:SS.mmm]},
+     *               иначе любые метки вида {@code [MM:SS... --> MM:SS...]}
+     * @return {@code true}, если найден сегмент с непустым текстом
+     */
+    private static boolean appendSegment(String line, StringBuilder target, boolean strict) {
+        int bracket = line.indexOf('[');
+        while (bracket >= 0) {
+            int end = strict ? strictHeaderEnd(line, bracket) : looseHeaderEnd(line, bracket);
+            if (end >= 0) {
+                int start = end;
+                int stop = line.length();
+                while (start < stop && line.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (stop > start && line.charAt(stop - 1) <= ' ') {
+                    stop--;
+                }
+                if (start == stop) {
+                    return false;
+                }
+                target.append(line, start, stop).append(' ');
+                return true;
+            }
+            bracket = line.indexOf('[', bracket + 1);
+        }
+        return false;
+    }
+
+    /** Конец {@code [HH:MM:SS.mmm --> HH:MM:SS.mmm]} или -1 */
+    private static int strictHeaderEnd(String line, int bracket) {
+        int i = strictTimestampEnd(line, bracket + 1);
+        if (i < 0) {
+            return -1;
+        }
+        i = skipSpaces(line, i);
+        if (!line.startsWith("-->", i)) {
+            return -1;
+        }
+        i = strictTimestampEnd(line, skipSpaces(line, i + 3));
+        return i >= 0 && i < line.length() && line.charAt(i) == ']' ? i + 1 : -1;
+    }
+
+    /** Конец {@code HH:MM:SS.mmm} или -1 */
+    private static int strictTimestampEnd(String line, int i) {
+        if (i + 12 > line.length()
+                || !digits(line, i, 2) || line.charAt(i + 2) != ':'
+                || !digits(line, i + 3, 2) || line.charAt(i + 5) != ':'
+                || !digits(line, i + 6, 2) || line.charAt(i + 8) != '.'
+                || !digits(line, i + 9, 3)) {
+            return -1;
+        }
+        return i + 12;
+    }
+
+    /** Конец {@code [DD:DD[:.\d]+ -->\s*DD:DD[:.\d]+]} или -1 */
+    private static int looseHeaderEnd(String line, int bracket) {
+        int i = looseTimestampEnd(line, bracket + 1);
+        if (i < 0 || !line.startsWith(" -->", i)) {
+            return -1;
+        }
+        i = looseTimestampEnd(line, skipSpaces(line, i + 4));
+        return i >= 0 && i < line.length() && line.charAt(i) == ']' ? i + 1 : -1;
+    }
+
+    /** Конец {@code DD:DD[:.\d]+} или -1 */
+    private static int looseTimestampEnd(String line, int i) {
+        if (i + 6 > line.length() || !digits(line, i, 2) || line.charAt(i + 2) != ':' || !digits(line, i + 3, 2)) {
+            return -1;
+        }
+        int end = i + 5;
+        while (end < line.length() && (isDigit(line.charAt(end)) || line.charAt(end) == ':'
+                || line.charAt(end) == '.')) {
+            end++;
+        }
+        return end > i + 5 ? end : -1;
+    }
+
+    /**
+     * Текст вне сегментов, кроме служебных строк и описаний опций.
+     */
+    private void appendPlainText(String line) {
+        int start = 0;
+        int stop = line.length();
+        while (start < stop && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (stop > start && line.charAt(stop - 1) <= ' ') {
+            stop--;
+        }
+        if (start == stop) {
+            return;
+        }
+        for (String prefix : LOG_PREFIXES) {
+            if (line.startsWith(prefix, start)) {
+                return;
+            }
+        }
+        if (line.contains(LANGUAGE_MARKER) || line.contains("processing") || line.contains("--")) {
+            return;
+        }
+        plainText.append(line, start, stop).append(' ');
+    }
+
+    private static boolean digits(String line, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            if (!isDigit(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipSpaces(String line, int i) {
+        while (i < line.length() && isRegexSpace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** Символы класса {@code \w} без флага UNICODE_CHARACTER_CLASS */
+    private static boolean isWordChar(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    /**
+     * То же, что {@code text.replaceAll("\\s+", " ").trim()}, за один проход
+     * без регулярного выражения; строка без лишних пробелов возвращается как
+     * есть.
+     */
+    public static String normalizeWhitespace(String text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        StringBuilder sb = null;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (!isRegexSpace(c)) {
+                if (sb != null) {
+                    sb.append(c);
+                }
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && isRegexSpace(text.charAt(end))) {
+                end++;
+            }
+            if (sb == null && (c != ' ' || end - i > 1)) {
+                sb = new StringBuilder(length);
+                sb.append(text, 0, i);
+            }
+            if (sb != null) {
+                sb.append(' ');
+            }
+            i = end;
+        }
+        return (sb != null ? sb.toString() : text).trim();
+    }
+
+    /** Символы класса {@code \s} без флага UNICODE_CHARACTER_CLASS */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
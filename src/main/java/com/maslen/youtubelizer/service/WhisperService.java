@@ -1,30 +1,35 @@
 package com.maslen.youtubelizer.service;
 
+import com.maslen.youtubelizer.model.DetectedLanguage;
 import com.maslen.youtubelizer.model.TranscriptionResult;
+import com.maslen.youtubelizer.model.WhisperSegment;
 import com.maslen.youtubelizer.util.PathUtils;
+import com.maslen.youtubelizer.util.ProcessUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class WhisperService {
 
     private final FfmpegService ffmpegService;
+    private final PipelineMetrics metrics;
 
     @Value("${app.whisper.path:}")
     private String whisperPath;
@@ -47,22 +52,49 @@ public class WhisperService {
     @Value("${app.whisper.gpu-device:0}")
     private int gpuDevice;
 
-    /**
-     * Regex для парсинга временных меток whisper.cpp: [HH:MM:SS.mmm -->
-     * HH:MM:SS.mmm] Text
-     */
-    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile(
-            "\\[\\d{2}:\\d{2}:\\d{2}\\.\\d{3}\\s*-->\\s*\\d{2}:\\d{2}:\\d{2}\\.\\d{3}]\\s*(.+)");
+    @Value("${app.whisper.two-pass.enabled:false}")
+    private boolean twoPass;
+
+    /** Модель черновика; пусто — основная модель */
+    @Value("${app.whisper.two-pass.draft-model.path:}")
+    private String draftModelPath;
+
+    @Value("${app.whisper.two-pass.min-probability:0.6}")
+    private double minProbability;
+
+    @Value("${app.whisper.two-pass.max-redecode-fraction:0.5}")
+    private double maxRedecodeFraction;
+
+    @Value("${app.whisper.language-detection.enabled:false}")
+    private boolean languageDetection;
 
-    /** Regex для определения языка из вывода whisper.cpp */
-    private static final Pattern LANGUAGE_PATTERN = Pattern.compile(
-            "auto-detected\\s+language:\\s+(\\w+)");
+    /** Модель для определения языка; пусто — основная модель */
+    @Value("${app.whisper.language-detection.model.path:}")
+    private String languageModelPath;
+
+    @Value("${app.whisper.language-detection.min-probability:0.5}")
+    private double minLanguageProbability;
+
+    /** Модели под конкретные языки: {@code ru=/path/a.bin,en=/path/b.bin} */
+    @Value("${app.whisper.language-models:}")
+    private String languageModelsSpec;
+
+    private Map<String, String> languageModels = Map.of();
 
     /** Таймаут транскрипции — 30 минут */
     private static final long TRANSCRIPTION_TIMEOUT_MINUTES = 30;
-
-    public WhisperService(FfmpegService ffmpegService) {
+    private static final int WAV_HEADER_BYTES = 44;
+    /** 16 000 сэмплов × 2 байта, один канал */
+    private static final int WAV_BYTES_PER_SECOND = 32000;
+    /** Неуверенные сегменты ближе этого промежутка перераспознаются одним запуском */
+    private static final long REDECODE_MERGE_GAP_MS = 3000;
+    /** Whisper определяет язык по первому 30-секундному окну */
+    private static final int LANGUAGE_SAMPLE_SECONDS = 30;
+    private static final long LANGUAGE_DETECTION_TIMEOUT_SECONDS = 120;
+
+    public WhisperService(FfmpegService ffmpegService, PipelineMetrics metrics) {
         this.ffmpegService = ffmpegService;
+        this.metrics = metrics;
     }
 
     @PostConstruct
@@ -74,6 +106,61 @@ public class WhisperService {
         log.info("[WHISPER] Model path: {}", modelPath);
         log.info("[WHISPER] GPU enabled: {}, device: {}", useGpu, gpuDevice);
         log.info("[WHISPER] Threads: {}, Beam size: {}, Best-of: {}", threads, beamSize, bestOf);
+
+        draftModelPath = PathUtils.resolvePath(draftModelPath, modelPath);
+        if (!draftModelPath.equals(modelPath) && !Files.exists(Paths.get(draftModelPath))) {
+            log.warn("[WHISPER] Draft model not found at {}, using the main model", draftModelPath);
+            draftModelPath = modelPath;
+        }
+        if (twoPass) {
+            log.info("[WHISPER] Two-pass: draft model {}, re-decode below p = {}, whole file above {} of audio",
+                    draftModelPath, minProbability, maxRedecodeFraction);
+        }
+
+        languageModelPath = PathUtils.resolvePath(languageModelPath, modelPath);
+        if (!languageModelPath.equals(modelPath) && !Files.exists(Paths.get(languageModelPath))) {
+            log.warn("[WHISPER] Language detection model not found at {}, using the main model", languageModelPath);
+            languageModelPath = modelPath;
+        }
+        Map<String, String> models = new LinkedHashMap<>();
+        parseLanguageModels(languageModelsSpec).forEach((language, path) -> {
+            if (Files.exists(Paths.get(path))) {
+                models.put(language, path);
+            } else {
+                log.warn("[WHISPER] Model for language {} not found at {}, using the main model", language, path);
+            }
+        });
+        languageModels = Map.copyOf(models);
+        if (languageDetection) {
+            log.info("[WHISPER] Language detection: model {}, min p = {}, per-language models: {}",
+                    languageModelPath, minLanguageProbability, languageModels);
+        }
+    }
+
+    /**
+     * Разбирает {@code ru=/path/a.bin, en=/path/b.bin}; записи без языка или пути
+     * пропускаются, коды языков приводятся к нижнему регистру.
+     */
+    static Map<String, String> parseLanguageModels(String spec) {
+        Map<String, String> models = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return models;
+        }
+        for (String entry : spec.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                if (!entry.isBlank()) {
+                    log.warn("[WHISPER] Ignoring malformed language model entry: {}", entry.strip());
+                }
+                continue;
+            }
+            String language = entry.substring(0, eq).strip().toLowerCase();
+            String path = entry.substring(eq + 1).strip();
+            if (!language.isEmpty() && !path.isEmpty()) {
+                models.put(language, path);
+            }
+        }
+        return models;
     }
 
     public void ensureAvailable() throws IOException {
@@ -136,31 +223,321 @@ public class WhisperService {
         return result.text();
     }
 
+    /**
+     * Транскрибирует аудиофайл с использованием whisper.cpp и возвращает
+     * транскрипцию и обнаруженный язык.
+     *
+     * @see #transcribeWithLanguage(File, DetectedLanguage, Consumer)
+     */
+    public TranscriptionResult transcribeWithLanguage(File audioFile) throws IOException, InterruptedException {
+        return transcribeWithLanguage(audioFile, null, null);
+    }
+
+    public boolean isLanguageDetectionEnabled() {
+        return languageDetection;
+    }
+
+    /**
+     * Определяет язык по первым 30 секундам WAV ({@code -dl}: whisper-cli
+     * останавливается после определения языка, без декодирования).
+     *
+     * @param wavFile WAV 16 кГц mono
+     * @return язык или {@code null}, если определение выключено, не удалось
+     *         или вероятность ниже {@code app.whisper.language-detection.min-probability}
+     * @throws InterruptedException Если процесс был прерван
+     */
+    public DetectedLanguage detectLanguage(File wavFile) throws InterruptedException {
+        if (!languageDetection) {
+            return null;
+        }
+        File sample = null;
+        Process process = null;
+        long start = System.nanoTime();
+        String outcome = PipelineMetrics.OUTCOME_FAILURE;
+        try {
+            // Only the first window is used, so whisper-cli need not compute the mel of the whole file
+            sample = ffmpegService.extractWavSample(wavFile, LANGUAGE_SAMPLE_SECONDS);
+
+            List<String> command = new ArrayList<>();
+            command.add(whisperPath);
+            command.add("-m");
+            command.add(languageModelPath);
+            command.add("-f");
+            command.add(sample.getAbsolutePath());
+            command.add("-t");
+            command.add(String.valueOf(threads));
+            command.add("-l");
+            command.add("auto");
+            command.add("-dl");
+            addDeviceOptions(command);
+            log.debug("[WHISPER] Команда: {}", String.join(" ", command));
+
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            process = processBuilder.start();
+
+            WhisperOutputParser parser = new WhisperOutputParser();
+            boolean finished = ProcessUtils.awaitProcess(process, line -> {
+                log.debug("[WHISPER] {}", line);
+                parser.accept(line);
+            }, LANGUAGE_DETECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!finished) {
+                throw new IOException("Определение языка превысило таймаут " + LANGUAGE_DETECTION_TIMEOUT_SECONDS
+                        + " с");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("whisper-cli завершился с кодом: " + process.exitValue() + ", вывод: "
+                        + parser.recentOutput());
+            }
+            outcome = PipelineMetrics.OUTCOME_SUCCESS;
+
+            String language = parser.language();
+            double probability = parser.languageProbability();
+            if ("unknown".equals(language) || probability < minLanguageProbability) {
+                log.info("[WHISPER] Язык не определён уверенно ({}, p = {}), основной проход с -l auto", language,
+                        probability);
+                return null;
+            }
+            log.info("[WHISPER] Определён язык: {} (p = {})", language, probability);
+            return new DetectedLanguage(language, probability);
+        } catch (InterruptedException e) {
+            outcome = PipelineMetrics.OUTCOME_INTERRUPTED;
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (IOException e) {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            log.warn("[WHISPER] Не удалось определить язык, основной проход с -l auto: {}", e.getMessage());
+            return null;
+        } finally {
+            metrics.recordProcess("whisper", "detect_language", modelName(languageModelPath), outcome,
+                    System.nanoTime() - start);
+            if (sample != null && sample.exists() && !sample.delete()) {
+                log.warn("[WHISPER] Не удалось удалить образец WAV: {}", sample.getName());
+            }
+        }
+    }
+
     /**
      * Транскрибирует аудиофайл с использованием whisper.cpp и возвращает
      * транскрипцию и обнаруженный язык.
      *
      * Процесс:
      * 1. Конвертация аудио в WAV 16kHz mono (требование whisper.cpp)
-     * 2. Запуск whisper-cli с оптимальными параметрами
-     * 3. Парсинг вывода (временные метки + текст)
+     * 2. Запуск whisper-cli: один проход с beam search или, если включён
+     * {@code app.whisper.two-pass.enabled}, жадный черновик и перераспознавание
+     * только неуверенных сегментов
+     * 3. Разбор полного JSON-вывода ({@code -ojf}): сегменты, токены, временные
+     * метки и вероятности; консольный вывод даёт язык, прогресс и запасной текст,
+     * если JSON не записан
      * 4. Очистка временных файлов
      *
-     * @param audioFile Путь к аудиофайлу для транскрипции
+     * @param audioFile     Путь к аудиофайлу для транскрипции
+     * @param language      язык из {@link #detectLanguage(File)}: закрепляется
+     *                      для всех проходов и выбирает модель из
+     *                      {@code app.whisper.language-models}; {@code null} —
+     *                      автоопределение
+     * @param draftListener получает черновик, если после него будет второй
+     *                      проход; может быть {@code null}
      * @return TranscriptionResult с транскрипцией и языком
      * @throws IOException          Если возникла проблема с файловыми операциями
      * @throws InterruptedException Если процесс был прерван
      */
-    public TranscriptionResult transcribeWithLanguage(File audioFile) throws IOException, InterruptedException {
+    public TranscriptionResult transcribeWithLanguage(File audioFile, DetectedLanguage language,
+            Consumer<TranscriptionResult> draftListener) throws IOException, InterruptedException {
         log.info("[WHISPER] Начало транскрипции: {}", audioFile.getAbsolutePath());
 
         // Step 1: Convert to WAV 16kHz mono (whisper.cpp requirement)
         File wavFile = ffmpegService.convertToWav(audioFile);
 
+        long whisperStart = System.nanoTime();
+        try {
+            int durationSeconds = wavDurationSeconds(wavFile);
+            String pinned = language != null ? language.language() : "auto";
+            Decoded decoded;
+            if (twoPass) {
+                decoded = transcribeTwoPass(wavFile, durationSeconds, pinned, draftListener);
+            } else {
+                Pass pass = qualityPass("transcribe", pinned, 0, 0);
+                decoded = new Decoded(decode(wavFile, pass, durationSeconds), modelName(pass.model()));
+            }
+            TranscriptionResult result = decoded.result();
+            if (language != null) {
+                result = new TranscriptionResult(result.text(), language.language(), result.durationSeconds(),
+                        language.probability(), result.segments());
+            }
+
+            metrics.recordTranscription(decoded.model(), durationSeconds,
+                    Duration.ofNanos(System.nanoTime() - whisperStart));
+            return result;
+        } finally {
+            // Cleanup WAV file
+            cleanupWavFile(wavFile, audioFile);
+        }
+    }
+
+    /**
+     * Результат распознавания и модель (или модели), чей текст в нём, — для
+     * тега {@code model} метрик скорости.
+     */
+    private record Decoded(TranscriptionResult result, String model) {
+    }
+
+    /**
+     * Жадный черновик, затем перераспознавание основной моделью с beam search
+     * только сегментов со средней вероятностью токенов ниже порога. Если таких
+     * сегментов слишком много, второй проход идёт по всему файлу.
+     */
+    private Decoded transcribeTwoPass(File wavFile, int durationSeconds, String pinnedLanguage,
+            Consumer<TranscriptionResult> draftListener) throws IOException, InterruptedException {
+        TranscriptionResult draft = decode(wavFile, new Pass("draft", draftModelPath, 1, 1, pinnedLanguage, 0, 0),
+                durationSeconds);
+        String language = "unknown".equals(draft.language()) ? "auto" : draft.language();
+        String qualityModel = modelFor(language);
+        if (draft.segments().isEmpty()) {
+            log.warn("[WHISPER] Черновик без JSON-сегментов, выполняем полный проход");
+            return new Decoded(decode(wavFile, qualityPass("transcribe", language, 0, 0), durationSeconds),
+                    modelName(qualityModel));
+        }
+
+        List<int[]> ranges = lowConfidenceRanges(draft.segments(), minProbability, REDECODE_MERGE_GAP_MS);
+        if (ranges.isEmpty()) {
+            log.info("[WHISPER] Все {} сегментов черновика уверенные, второй проход не нужен",
+                    draft.segments().size());
+            return new Decoded(draft, modelName(draftModelPath));
+        }
+        notifyDraft(draftListener, draft);
+
+        List<WhisperSegment> segments = draft.segments();
+        long lowMs = 0;
+        for (int[] range : ranges) {
+            lowMs += segments.get(range[1]).toMs() - segments.get(range[0]).fromMs();
+        }
+        long totalMs = Math.max(durationSeconds * 1000L, segments.get(segments.size() - 1).toMs());
+        log.info("[WHISPER] Неуверенных участков: {}, {} из {} с аудио", ranges.size(), lowMs / 1000,
+                totalMs / 1000);
+        if (lowMs > maxRedecodeFraction * totalMs) {
+            TranscriptionResult full = decode(wavFile, qualityPass("transcribe", language, 0, 0), durationSeconds);
+            return new Decoded(new TranscriptionResult(full.text(), draft.language(), durationSeconds,
+                    draft.languageProbability(), full.segments()), modelName(qualityModel));
+        }
+
+        List<WhisperSegment> patched = new ArrayList<>(segments.size());
+        int next = 0;
+        for (int[] range : ranges) {
+            patched.addAll(segments.subList(next, range[0]));
+            List<WhisperSegment> original = segments.subList(range[0], range[1] + 1);
+            patched.addAll(redecode(wavFile, original, language, durationSeconds));
+            next = range[1] + 1;
+        }
+        patched.addAll(segments.subList(next, segments.size()));
+
+        String text = WhisperOutputParser.normalizeWhitespace(patched.stream().map(WhisperSegment::text)
+                .filter(t -> !t.isEmpty()).collect(Collectors.joining(" ")));
+        // Draft text with re-decoded passages
+        String models = draftModelPath.equals(qualityModel)
+                ? modelName(qualityModel)
+                : modelName(draftModelPath) + "+" + modelName(qualityModel);
+        return new Decoded(new TranscriptionResult(text, draft.language(), durationSeconds,
+                draft.languageProbability(), patched), models);
+    }
+
+    /**
+     * Перераспознаёт участок основной моделью; при ошибке или пустом
+     * результате остаются сегменты черновика.
+     */
+    private List<WhisperSegment> redecode(File wavFile, List<WhisperSegment> original, String language,
+            int durationSeconds) throws InterruptedException {
+        long fromMs = original.get(0).fromMs();
+        long toMs = original.get(original.size() - 1).toMs();
+        try {
+            TranscriptionResult span = decode(wavFile, qualityPass("redecode", language, fromMs, toMs - fromMs),
+                    durationSeconds);
+            if (span.text().isBlank()) {
+                log.warn("[WHISPER] Участок {}-{} мс: пустой результат, оставляем черновик", fromMs, toMs);
+                return original;
+            }
+            if (!span.segments().isEmpty()) {
+                return span.segments();
+            }
+            return List.of(new WhisperSegment(fromMs, toMs, span.text(), List.of()));
+        } catch (IOException e) {
+            log.warn("[WHISPER] Участок {}-{} мс не перераспознан, оставляем черновик: {}", fromMs, toMs,
+                    e.getMessage());
+            return original;
+        }
+    }
+
+    private static void notifyDraft(Consumer<TranscriptionResult> draftListener, TranscriptionResult draft) {
+        if (draftListener == null) {
+            return;
+        }
+        try {
+            draftListener.accept(draft);
+        } catch (RuntimeException e) {
+            log.warn("[WHISPER] Не удалось передать черновик: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Диапазоны индексов сегментов {@code [first, last]} со средней
+     * вероятностью токенов ниже {@code minProbability}. Диапазоны с промежутком
+     * меньше {@code mergeGapMs} объединяются вместе с уверенными сегментами
+     * между ними — каждый запуск whisper-cli заново загружает модель.
+     */
+    static List<int[]> lowConfidenceRanges(List<WhisperSegment> segments, double minProbability, long mergeGapMs) {
+        List<int[]> ranges = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).averageProbability() >= minProbability) {
+                continue;
+            }
+            int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && segments.get(i).fromMs() - segments.get(last[1]).toMs() < mergeGapMs) {
+                last[1] = i;
+            } else {
+                ranges.add(new int[] { i, i });
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Параметры одного запуска whisper-cli.
+     *
+     * @param operation  тег operation в метриках и суффикс выходного файла
+     * @param offsetMs   начало участка ({@code -ot}), 0 — с начала
+     * @param durationMs длина участка ({@code -d}), 0 — до конца
+     */
+    private record Pass(String operation, String model, int beamSize, int bestOf, String language, long offsetMs,
+            long durationMs) {
+    }
+
+    private Pass qualityPass(String operation, String language, long offsetMs, long durationMs) {
+        return new Pass(operation, modelFor(language), beamSize, bestOf, language, offsetMs, durationMs);
+    }
+
+    /** Модель из {@code app.whisper.language-models} для языка, иначе основная */
+    private String modelFor(String language) {
+        return language == null ? modelPath : languageModels.getOrDefault(language, modelPath);
+    }
+
+    /**
+     * Один запуск whisper-cli и разбор его вывода.
+     */
+    private TranscriptionResult decode(File wavFile, Pass pass, int durationSeconds)
+            throws IOException, InterruptedException {
+        Path outputPrefix = jsonOutputPrefix(wavFile, pass);
+        Path jsonFile = Paths.get(outputPrefix + ".json");
         Process process = null;
+        long passStart = System.nanoTime();
+        String outcome = PipelineMetrics.OUTCOME_FAILURE;
         try {
             // Step 2: Build whisper-cli command
-            List<String> command = buildWhisperCommand(wavFile);
+            List<String> command = buildWhisperCommand(wavFile, outputPrefix, pass);
             log.debug("[WHISPER] Команда: {}", String.join(" ", command));
 
             // Step 3: Execute whisper-cli
@@ -168,65 +545,49 @@ public class WhisperService {
             processBuilder.redirectErrorStream(true);
             process = processBuilder.start();
 
-            // Step 4: Read and parse output
-            StringBuilder fullOutput = new StringBuilder();
-            StringBuilder transcriptionBuilder = new StringBuilder();
-            String detectedLanguage = "unknown";
-
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    log.debug("[WHISPER] {}", line);
-                    fullOutput.append(line).append("\n");
-
-                    // Parse language detection
-                    Matcher langMatcher = LANGUAGE_PATTERN.matcher(line);
-                    if (langMatcher.find()) {
-                        detectedLanguage = langMatcher.group(1).trim();
-                        log.info("[WHISPER] Обнаружен язык: {}", detectedLanguage);
-                        continue;
-                    }
-
-                    // Parse transcription segments
-                    Matcher tsMatcher = TIMESTAMP_PATTERN.matcher(line);
-                    if (tsMatcher.find()) {
-                        String segmentText = tsMatcher.group(1).trim();
-                        if (!segmentText.isEmpty()) {
-                            transcriptionBuilder.append(segmentText).append(" ");
-                        }
-                    }
-                }
-            }
+            // Step 4: Read and parse output (in a reader thread; waiting here stays interruptible)
+            WhisperOutputParser parser = new WhisperOutputParser();
 
             // Step 5: Wait for process with timeout
-            boolean finished = process.waitFor(TRANSCRIPTION_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            boolean finished = ProcessUtils.awaitProcess(process, line -> {
+                log.debug("[WHISPER] {}", line);
+                parser.accept(line);
+            }, TRANSCRIPTION_TIMEOUT_MINUTES, TimeUnit.MINUTES);
             if (!finished) {
-                process.destroyForcibly();
                 throw new IOException("Транскрипция превысила таймаут " + TRANSCRIPTION_TIMEOUT_MINUTES + " минут");
             }
+            String detectedLanguage = "auto".equals(pass.language()) ? parser.language() : pass.language();
 
             int exitCode = process.exitValue();
             if (exitCode != 0) {
                 throw new IOException(
-                        "whisper-cli завершился с кодом: " + exitCode + ", вывод: " + fullOutput);
+                        "whisper-cli завершился с кодом: " + exitCode + ", вывод: " + parser.recentOutput());
             }
 
-            String transcription = transcriptionBuilder.toString().trim();
-
-            // Fallback parsing if main pattern didn't match
-            if (transcription.isEmpty()) {
-                transcription = fallbackParsing(fullOutput.toString());
+            // JSON segments; console segments (or their fallback parsing) when the JSON is missing
+            WhisperJsonParser.Result json = readJsonOutput(jsonFile);
+            String transcription;
+            List<WhisperSegment> segments;
+            if (json != null && !json.segments().isEmpty()) {
+                transcription = WhisperOutputParser.normalizeWhitespace(json.text());
+                segments = json.segments();
+                if (json.language() != null && !json.language().isBlank()) {
+                    detectedLanguage = json.language();
+                }
+            } else {
+                transcription = parser.transcription();
+                segments = List.of();
             }
 
-            // Normalize whitespace
-            transcription = transcription.replaceAll("\\s+", " ").trim();
-
-            log.info("[WHISPER] Транскрипция завершена. Язык: {}, длина: {} символов",
-                    detectedLanguage, transcription.length());
+            log.info("[WHISPER] Проход {} завершён. Язык: {}, длина: {} символов, сегментов: {}",
+                    pass.operation(), detectedLanguage, transcription.length(), segments.size());
 
-            return new TranscriptionResult(transcription, detectedLanguage);
+            outcome = PipelineMetrics.OUTCOME_SUCCESS;
+            return new TranscriptionResult(transcription, detectedLanguage, durationSeconds,
+                    parser.languageProbability(), segments);
 
         } catch (InterruptedException e) {
+            outcome = PipelineMetrics.OUTCOME_INTERRUPTED;
             // Properly handle interruption
             if (process != null) {
                 process.destroyForcibly();
@@ -241,53 +602,92 @@ public class WhisperService {
             log.error("[WHISPER] Ошибка транскрипции: {}", e.getMessage(), e);
             throw e;
         } finally {
-            // Cleanup WAV file
-            cleanupWavFile(wavFile, audioFile);
+            metrics.recordProcess("whisper", pass.operation(), modelName(pass.model()), outcome,
+                    System.nanoTime() - passStart);
+            try {
+                Files.deleteIfExists(jsonFile);
+            } catch (IOException e) {
+                log.warn("[WHISPER] Не удалось удалить JSON-вывод: {}", jsonFile.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Читает JSON-вывод whisper-cli; {@code null}, если файла нет или он
+     * повреждён (тогда используется консольный вывод).
+     */
+    private static WhisperJsonParser.Result readJsonOutput(Path jsonFile) {
+        if (!Files.exists(jsonFile)) {
+            log.warn("[WHISPER] JSON-вывод не найден: {}, используем консольный вывод", jsonFile);
+            return null;
+        }
+        try {
+            return WhisperJsonParser.parse(jsonFile);
+        } catch (IOException e) {
+            log.warn("[WHISPER] Не удалось разобрать JSON-вывод {}: {}", jsonFile, e.getMessage());
+            return null;
         }
     }
 
+    /** Префикс выходных файлов whisper-cli: путь WAV без расширения плюс проход */
+    private static Path jsonOutputPrefix(File wavFile, Pass pass) {
+        String name = wavFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = (dot > 0 ? name.substring(0, dot) : name) + "_" + pass.operation()
+                + (pass.offsetMs() > 0 ? "_" + pass.offsetMs() : "");
+        return wavFile.toPath().toAbsolutePath().resolveSibling(base);
+    }
+
     /**
-     * Строит команду whisper-cli с оптимальными параметрами для качества.
+     * Строит команду whisper-cli для прохода.
      */
-    private List<String> buildWhisperCommand(File wavFile) {
+    private List<String> buildWhisperCommand(File wavFile, Path outputPrefix, Pass pass) {
         List<String> command = new ArrayList<>();
         command.add(whisperPath);
 
         // Model
         command.add("-m");
-        command.add(modelPath);
+        command.add(pass.model());
 
         // Input file
         command.add("-f");
         command.add(wavFile.getAbsolutePath());
 
+        // Span of the file, for re-decoding
+        if (pass.offsetMs() > 0) {
+            command.add("-ot");
+            command.add(String.valueOf(pass.offsetMs()));
+        }
+        if (pass.durationMs() > 0) {
+            command.add("-d");
+            command.add(String.valueOf(pass.durationMs()));
+        }
+
         // CPU threads
         command.add("-t");
         command.add(String.valueOf(threads));
 
-        // Quality: Beam search
-        if (beamSize > 1) {
-            command.add("-bs");
-            command.add(String.valueOf(beamSize));
-        }
-
-        // Quality: Best-of candidates
-        if (bestOf > 1) {
-            command.add("-bo");
-            command.add(String.valueOf(bestOf));
-        }
+        // Decoding: always explicit, since whisper-cli itself defaults to beam search;
+        // -bs 1 means greedy decoding
+        command.add("-bs");
+        command.add(String.valueOf(Math.max(1, pass.beamSize())));
+        command.add("-bo");
+        command.add(String.valueOf(Math.max(1, pass.bestOf())));
 
-        // Language: auto-detect
+        // Language: auto-detect, or the one found by the prepass or the draft
         command.add("-l");
-        command.add("auto");
+        command.add(pass.language());
 
         // GPU support
-        if (useGpu) {
-            command.add("--device");
-            command.add(String.valueOf(gpuDevice));
-        } else {
-            command.add("--no-gpu");
-        }
+        addDeviceOptions(command);
+
+        // Full JSON output (segments, tokens, offsets, probabilities) to <prefix>.json
+        command.add("-ojf");
+        command.add("-of");
+        command.add(outputPrefix.toString());
+
+        // Progress percentage, logged by WhisperOutputParser
+        command.add("-pp");
 
         // Output control: -np suppresses non-result output
         // command.add("-np");
@@ -295,62 +695,21 @@ public class WhisperService {
         return command;
     }
 
-    /**
-     * Запасной парсинг вывода, если основной regex не сработал.
-     */
-    private String fallbackParsing(String output) {
-        log.warn("[WHISPER] Основной парсинг не нашёл текста, пробуем запасной...");
-
-        // Detect if output is actually a help/usage message (not transcription)
-        if (output.contains("usage:") && output.contains("--help")) {
-            log.error("[WHISPER] Вывод содержит usage/help — whisper-cli получил неверные аргументы");
-            return "";
-        }
-
-        StringBuilder result = new StringBuilder();
-
-        // Pattern 1: timestamps with any format
-        Pattern altPattern = Pattern.compile(
-                "\\[\\d{2}:\\d{2}[:.\\d]+ -->\\s*\\d{2}:\\d{2}[:.\\d]+]\\s*(.+)");
-        Matcher altMatcher = altPattern.matcher(output);
-        int count = 0;
-        while (altMatcher.find()) {
-            String text = altMatcher.group(1).trim();
-            if (!text.isEmpty()) {
-                result.append(text).append(" ");
-                count++;
-            }
-        }
-
-        if (count > 0) {
-            log.info("[WHISPER] Запасной парсинг нашёл {} сегментов", count);
+    private void addDeviceOptions(List<String> command) {
+        if (useGpu) {
+            command.add("--device");
+            command.add(String.valueOf(gpuDevice));
         } else {
-            // Pattern 2: try to extract any non-log text
-            String[] lines = output.split("\n");
-            for (String line : lines) {
-                line = line.trim();
-                // Skip log lines, empty lines, and CLI option descriptions
-                if (!line.isEmpty()
-                        && !line.startsWith("whisper_")
-                        && !line.startsWith("ggml_")
-                        && !line.startsWith("main:")
-                        && !line.startsWith("system_info:")
-                        && !line.startsWith("-")
-                        && !line.startsWith("error:")
-                        && !line.startsWith("options:")
-                        && !line.startsWith("supported")
-                        && !line.contains("auto-detected")
-                        && !line.contains("processing")
-                        && !line.contains("--")) {
-                    result.append(line).append(" ");
-                }
-            }
-            if (result.toString().trim().isEmpty()) {
-                log.warn("[WHISPER] Все паттерны вернули пусто, вывод: {}", output);
-            }
+            command.add("--no-gpu");
         }
+    }
 
-        return result.toString().trim();
+    /**
+     * Длительность WAV 16 кГц mono s16le по размеру файла (без заголовка).
+     */
+    static int wavDurationSeconds(File wavFile) {
+        long dataBytes = wavFile.length() - WAV_HEADER_BYTES;
+        return dataBytes > 0 ? (int) (dataBytes / WAV_BYTES_PER_SECOND) : 0;
     }
 
     /**
@@ -367,6 +726,11 @@ public class WhisperService {
         }
     }
 
+    /** Имя файла модели — тег model в метриках */
+    private static String modelName(String path) {
+        return Paths.get(path).getFileName().toString();
+    }
+
     public String getWhisperPath() {
         return whisperPath;
     }
@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.maslen.youtubelizer.entity.Channel;
 import com.maslen.youtubelizer.entity.Request;
 import com.maslen.youtubelizer.repository.ChannelRepository;
-import com.maslen.youtubelizer.repository.RequestRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -26,7 +25,10 @@ public class YouTubeService {
     private ChannelRepository channelRepository;
 
     @Autowired
-    private RequestRepository requestRepository;
+    private RequestLogWriter requestLogWriter;
+
+    @Autowired
+    private PipelineMetrics metrics;
 
     private static final Pattern YOUTUBE_VIDEO_PATTERN = Pattern.compile(
             "(?:https?://)?(?:www\\.)?(?:youtube\\.com/(?:watch\\?v=|embed/|v/)|youtu\\.be/)([\\w-]{11})");
@@ -86,34 +88,37 @@ public class YouTubeService {
                 "https://www.youtube.com/watch?v=" + videoId
         };
 
-        ProcessBuilder processBuilder = new ProcessBuilder(command);
-        Process process = processBuilder.start();
+        String result = metrics.timeProcess("yt-dlp", "info", PipelineMetrics.NO_MODEL, () -> {
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            Process process = processBuilder.start();
 
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
+            StringBuilder output = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.append(line).append("\n");
+                }
             }
-        }
 
-        // Чтение потока ошибок отдельно, чтобы предупреждения не мешали JSON
-        StringBuilder errorOutput = new StringBuilder();
-        try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-            String line;
-            while ((line = errorReader.readLine()) != null) {
-                errorOutput.append(line).append("\n");
+            // Чтение потока ошибок отдельно, чтобы предупреждения не мешали JSON
+            StringBuilder errorOutput = new StringBuilder();
+            try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = errorReader.readLine()) != null) {
+                    errorOutput.append(line).append("\n");
+                }
             }
-        }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new RuntimeException(
-                    "Команда yt-dlp завершилась с кодом: " + exitCode + ", ошибка: " + errorOutput.toString());
-        }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new RuntimeException(
+                        "Команда yt-dlp завершилась с кодом: " + exitCode + ", ошибка: " + errorOutput.toString());
+            }
+            return output.toString();
+        });
 
         // Очистка вывода для извлечения только части JSON
-        String outputStr = output.toString().trim();
+        String outputStr = result.trim();
 
         // Поиск JSON объекта в выводе (пропуск любых предупреждений в начале)
         int jsonStart = outputStr.indexOf('{');
@@ -126,9 +131,10 @@ public class YouTubeService {
     }
 
     /**
-     * Создает запись запроса в базе данных
+     * Журналирует запрос пользователя. Запись сохраняется асинхронно
+     * {@link RequestLogWriter}, поток бота БД не ждёт.
      */
-    public Request createRequest(Long userId, String userName, String messageText, Boolean isValidLink,
+    public void createRequest(Long userId, String userName, String messageText, Boolean isValidLink,
             String youtubeUrl, String videoId, Channel channel) {
         Request request = new Request();
         request.setUserId(userId);
@@ -139,7 +145,7 @@ public class YouTubeService {
         request.setVideoId(videoId);
         request.setChannel(channel);
 
-        return requestRepository.save(request);
+        requestLogWriter.append(request);
     }
 
     /**
@@ -1,6 +1,8 @@
 package com.maslen.youtubelizer.service;
 
 import com.maslen.youtubelizer.util.PathUtils;
+import com.maslen.youtubelizer.util.ProcessUtils;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -12,11 +14,26 @@ import java.nio.file.Path;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class YtDlpService {
 
+    /** Формат видео по умолчанию: лучшее mp4-видео + m4a-аудио */
+    public static final String DEFAULT_VIDEO_FORMAT = "bestvideo[ext=mp4]+bestaudio[ext=m4a]/mp4";
+    /** Формат, из которого {@link #downloadAudio} делает MP3 ({@code -x} без {@code -f}) */
+    public static final String DEFAULT_AUDIO_FORMAT = "bestaudio/best";
+
+    private final PipelineMetrics metrics;
+
     @Value("${app.ytdlp.path:}")
     private String ytDlpPath;
 
+    /**
+     * Формат для скачивания аудио под транскрипцию: самая лёгкая аудиодорожка
+     * без перекодирования (whisper всё равно получает 16 кГц моно).
+     */
+    @Value("${app.ytdlp.transcription-format:worstaudio[acodec=opus]/worstaudio/bestaudio}")
+    private String transcriptionFormat;
+
     @PostConstruct
     private void initializePath() {
         ytDlpPath = PathUtils.resolvePath(ytDlpPath, "yt-dlp");
@@ -31,6 +48,11 @@ public class YtDlpService {
 
     public java.io.File downloadVideo(String url, Path outputDir, String fileNameWithoutExt)
             throws IOException, InterruptedException {
+        return downloadVideo(url, outputDir, fileNameWithoutExt, DEFAULT_VIDEO_FORMAT);
+    }
+
+    public java.io.File downloadVideo(String url, Path outputDir, String fileNameWithoutExt, String format)
+            throws IOException, InterruptedException {
         Files.createDirectories(outputDir);
         String outputPath = outputDir.resolve(fileNameWithoutExt + ".%(ext)s").toString();
 
@@ -39,22 +61,16 @@ public class YtDlpService {
                 "--extractor-args", "youtube:player_client=android",
                 "--user-agent",
                 "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36",
-                "-f", "bestvideo[ext=mp4]+bestaudio[ext=m4a]/mp4",
+                "-f", format,
                 "-o", outputPath,
                 "--no-warnings",
                 url
         };
 
-        executeCommand(command);
+        executeCommand(command, "download_video");
 
         // Поиск скачанного файла
-        try (java.util.stream.Stream<Path> stream = Files.list(outputDir)) {
-            return stream
-                    .filter(file -> file.getFileName().toString().startsWith(fileNameWithoutExt))
-                    .findFirst()
-                    .map(Path::toFile)
-                    .orElseThrow(() -> new IOException("Скачанный видео файл не найден для: " + fileNameWithoutExt));
-        }
+        return findDownloadedFile(outputDir, fileNameWithoutExt, "Скачанный видео файл не найден для: ");
     }
 
     public java.io.File downloadAudio(String url, Path outputDir, String fileNameWithoutExt)
@@ -74,7 +90,7 @@ public class YtDlpService {
                 url
         };
 
-        executeCommand(command);
+        executeCommand(command, "download_audio");
 
         // Поиск скачанного файла (ожидается .mp3)
         Path expectedFile = outputDir.resolve(fileNameWithoutExt + ".mp3");
@@ -85,25 +101,96 @@ public class YtDlpService {
         }
     }
 
-    private void executeCommand(String[] command) throws IOException, InterruptedException {
-        ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.redirectErrorStream(true);
-        Process process = processBuilder.start();
+    /**
+     * Скачивает аудиодорожку для транскрипции в исходном контейнере (opus/m4a)
+     * без {@code -x --audio-format mp3}: перекодирование в MP3 здесь лишнее,
+     * т.к. FfmpegService сразу декодирует файл в WAV 16 кГц.
+     */
+    public java.io.File downloadAudioForTranscription(String url, Path outputDir, String fileNameWithoutExt)
+            throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        String outputPath = outputDir.resolve(fileNameWithoutExt + ".%(ext)s").toString();
+
+        String[] command = {
+                ytDlpPath,
+                "--extractor-args", "youtube:player_client=android",
+                "--user-agent",
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36",
+                "-f", transcriptionFormat,
+                "-o", outputPath,
+                "--no-warnings",
+                url
+        };
 
-        try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                new java.io.InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
+        executeCommand(command, "download_transcription_audio");
+
+        return findDownloadedFile(outputDir, fileNameWithoutExt, "Скачанный аудио файл не найден для: ");
+    }
+
+    /**
+     * Оценивает размер файла для указанного формата по метаданным, без скачивания.
+     *
+     * @return размер в байтах или {@code -1}, если yt-dlp не сообщает размер
+     */
+    public long estimateSize(String url, String format) throws IOException, InterruptedException {
+        String[] command = {
+                ytDlpPath,
+                "--extractor-args", "youtube:player_client=android",
+                "--user-agent",
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36",
+                "-f", format,
+                "--skip-download",
+                "--print", "%(filesize,filesize_approx)s",
+                "--no-warnings",
+                url
+        };
+
+        return metrics.timeProcess("yt-dlp", "probe", PipelineMetrics.NO_MODEL, () -> {
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            Process process = processBuilder.start();
+
+            java.util.concurrent.atomic.AtomicLong size = new java.util.concurrent.atomic.AtomicLong(-1);
+            int exitCode = ProcessUtils.awaitProcess(process, line -> {
                 log.debug("[YTDLP] {}", line);
+                String value = line.trim();
+                if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+                    size.set(Long.parseLong(value));
+                }
+            });
+            if (exitCode != 0) {
+                throw new IOException("Команда yt-dlp завершилась с кодом: " + exitCode);
             }
-        }
+            return size.get();
+        });
+    }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new IOException("Команда yt-dlp завершилась с кодом: " + exitCode);
+    private java.io.File findDownloadedFile(Path outputDir, String fileNameWithoutExt, String errorPrefix)
+            throws IOException {
+        try (java.util.stream.Stream<Path> stream = Files.list(outputDir)) {
+            return stream
+                    .filter(file -> file.getFileName().toString().startsWith(fileNameWithoutExt + "."))
+                    .filter(file -> !file.getFileName().toString().endsWith(".part"))
+                    .findFirst()
+                    .map(Path::toFile)
+                    .orElseThrow(() -> new IOException(errorPrefix + fileNameWithoutExt));
         }
     }
 
+    private void executeCommand(String[] command, String operation) throws IOException, InterruptedException {
+        metrics.timeProcess("yt-dlp", operation, PipelineMetrics.NO_MODEL, () -> {
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            Process process = processBuilder.start();
+
+            int exitCode = ProcessUtils.awaitProcess(process, line -> log.debug("[YTDLP] {}", line));
+            if (exitCode != 0) {
+                throw new IOException("Команда yt-dlp завершилась с кодом: " + exitCode);
+            }
+            return null;
+        });
+    }
+
     public String getYtDlpPath() {
         return ytDlpPath;
     }
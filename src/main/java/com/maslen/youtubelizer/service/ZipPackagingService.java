@@ -0,0 +1,89 @@
+package com.maslen.youtubelizer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Упаковка результатов обработки в ZIP.
+ * Медиафайлы (mp4/m4a/mp3/...) уже сжаты, поэтому пишутся без сжатия
+ * (DEFLATED с уровнем 0): CRC и размеры считает {@link ZipOutputStream} по ходу
+ * записи и кладёт в дескриптор данных, так что файл читается один раз — метод
+ * STORED потребовал бы отдельного прохода ради CRC до записи. Обычный DEFLATE
+ * применяется только к текстовым записям, которые берутся прямо из памяти без
+ * промежуточных файлов.
+ */
+@Slf4j
+@Service
+public class ZipPackagingService {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Создаёт архив на диске.
+     *
+     * @param zipFile     путь к создаваемому архиву
+     * @param mediaFiles  медиафайлы (записываются без сжатия)
+     * @param textEntries имя записи → текст (сжимается), порядок сохраняется
+     * @return созданный файл архива
+     */
+    public File createArchive(Path zipFile, List<File> mediaFiles, Map<String, String> textEntries)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(zipFile), BUFFER_SIZE)) {
+            writeArchive(out, mediaFiles, textEntries);
+        }
+        log.info("[ZIP] Archive {} created: {} MB in {} ms", zipFile.getFileName(),
+                Files.size(zipFile) / (1024 * 1024), System.currentTimeMillis() - start);
+        return zipFile.toFile();
+    }
+
+    /**
+     * Пишет архив в произвольный поток. Поток не закрывается.
+     */
+    public void writeArchive(OutputStream out, List<File> mediaFiles, Map<String, String> textEntries)
+            throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(out);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        zos.setLevel(Deflater.NO_COMPRESSION);
+        for (File file : mediaFiles) {
+            addMediaEntry(file, zos, buffer);
+        }
+
+        zos.setLevel(Deflater.DEFAULT_COMPRESSION);
+        for (Map.Entry<String, String> text : textEntries.entrySet()) {
+            ZipEntry entry = new ZipEntry(text.getKey());
+            zos.putNextEntry(entry);
+            zos.write(text.getValue().getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+
+        zos.finish();
+        zos.flush();
+    }
+
+    private void addMediaEntry(File file, ZipOutputStream zos, byte[] buffer) throws IOException {
+        zos.putNextEntry(new ZipEntry(file.getName()));
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int length;
+            while ((length = in.read(buffer)) >= 0) {
+                zos.write(buffer, 0, length);
+            }
+        }
+        zos.closeEntry();
+    }
+}
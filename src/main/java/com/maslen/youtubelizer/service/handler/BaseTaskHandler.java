@@ -11,8 +11,8 @@ import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,12 +26,16 @@ public abstract class BaseTaskHandler implements TaskHandler {
 
     protected void updateTaskStatus(DownloadTask task, TaskStatus status) {
         task.setStatus(status);
+        if (status == TaskStatus.COMPLETED || status == TaskStatus.FAILED) {
+            task.setCompletedAt(LocalDateTime.now());
+        }
         downloadTaskRepository.save(task);
     }
 
     protected void failTask(DownloadTask task, String errorMessage) {
         log.error("Task {} failed: {}", task.getId(), errorMessage);
         task.setStatus(TaskStatus.FAILED);
+        task.setCompletedAt(LocalDateTime.now());
         task.setErrorMessage(truncateErrorMessage(errorMessage));
         downloadTaskRepository.save(task);
 
@@ -49,35 +53,31 @@ public abstract class BaseTaskHandler implements TaskHandler {
     }
 
     protected void sendDonationMenu(long chatId, String languageCode) {
-        try {
-            List<InlineKeyboardRow> keyboard = new ArrayList<>();
+        List<InlineKeyboardRow> keyboard = new ArrayList<>();
 
-            // Row 1: 10, 50, 100 stars
-            InlineKeyboardRow row1 = new InlineKeyboardRow();
-            row1.add(InlineKeyboardButton.builder().text("⭐ 10").callbackData("donate:10").build());
-            row1.add(InlineKeyboardButton.builder().text("⭐ 50").callbackData("donate:50").build());
-            row1.add(InlineKeyboardButton.builder().text("⭐ 100").callbackData("donate:100").build());
-            keyboard.add(row1);
+        // Row 1: 10, 50, 100 stars
+        InlineKeyboardRow row1 = new InlineKeyboardRow();
+        row1.add(InlineKeyboardButton.builder().text("⭐ 10").callbackData("donate:10").build());
+        row1.add(InlineKeyboardButton.builder().text("⭐ 50").callbackData("donate:50").build());
+        row1.add(InlineKeyboardButton.builder().text("⭐ 100").callbackData("donate:100").build());
+        keyboard.add(row1);
 
-            // Row 2: Custom amount
-            InlineKeyboardRow row2 = new InlineKeyboardRow();
-            row2.add(InlineKeyboardButton.builder()
-                    .text(messageService.getMessage("donation.custom", languageCode))
-                    .callbackData("donate:custom")
-                    .build());
-            keyboard.add(row2);
+        // Row 2: Custom amount
+        InlineKeyboardRow row2 = new InlineKeyboardRow();
+        row2.add(InlineKeyboardButton.builder()
+                .text(messageService.getMessage("donation.custom", languageCode))
+                .callbackData("donate:custom")
+                .build());
+        keyboard.add(row2);
 
-            InlineKeyboardMarkup markup = InlineKeyboardMarkup.builder().keyboard(keyboard).build();
+        InlineKeyboardMarkup markup = InlineKeyboardMarkup.builder().keyboard(keyboard).build();
 
-            SendMessage message = SendMessage.builder()
-                    .chatId(chatId)
-                    .text(messageService.getMessage("donation.choose_amount", languageCode))
-                    .replyMarkup(markup)
-                    .build();
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId)
+                .text(messageService.getMessage("donation.choose_amount", languageCode))
+                .replyMarkup(markup)
+                .build();
 
-            notificationService.getClient().execute(message);
-        } catch (TelegramApiException e) {
-            log.warn("Failed to send donation menu: {}", e.getMessage());
-        }
+        notificationService.execute(chatId, message);
     }
 }
@@ -2,51 +2,80 @@ package com.maslen.youtubelizer.service.handler;
 
 import com.maslen.youtubelizer.entity.DownloadTask;
 import com.maslen.youtubelizer.entity.Video;
+import com.maslen.youtubelizer.model.TaskStageName;
 import com.maslen.youtubelizer.model.TaskStatus;
 import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.model.VideoStatusView;
 import com.maslen.youtubelizer.repository.DownloadTaskRepository;
 import com.maslen.youtubelizer.repository.VideoRepository;
+import com.maslen.youtubelizer.service.FfmpegService;
+import com.maslen.youtubelizer.service.MediaDeliveryService;
 import com.maslen.youtubelizer.service.MessageService;
 import com.maslen.youtubelizer.service.NormalizationService;
+import com.maslen.youtubelizer.service.TaskStageRecorder;
 import com.maslen.youtubelizer.service.TelegramNotificationService;
 import com.maslen.youtubelizer.service.TranscriptionService;
 import com.maslen.youtubelizer.service.YtDlpService;
+import com.maslen.youtubelizer.service.ZipPackagingService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 @Slf4j
 @Component
 public class FullProcessingTaskHandler extends BaseTaskHandler {
 
     private final YtDlpService ytDlpService;
+    private final FfmpegService ffmpegService;
     private final TranscriptionService transcriptionService;
     private final NormalizationService normalizationService;
+    private final ZipPackagingService zipPackagingService;
+    private final MediaDeliveryService mediaDeliveryService;
     private final VideoRepository videoRepository;
+    private final ExecutorService pipelineExecutor;
+    private final TaskStageRecorder taskStageRecorder;
 
     public FullProcessingTaskHandler(DownloadTaskRepository downloadTaskRepository,
             TelegramNotificationService notificationService,
             MessageService messageService,
             YtDlpService ytDlpService,
+            FfmpegService ffmpegService,
             TranscriptionService transcriptionService,
             NormalizationService normalizationService,
-            VideoRepository videoRepository) {
+            ZipPackagingService zipPackagingService,
+            MediaDeliveryService mediaDeliveryService,
+            VideoRepository videoRepository,
+            ExecutorService pipelineExecutor,
+            TaskStageRecorder taskStageRecorder) {
         super(downloadTaskRepository, notificationService, messageService);
         this.ytDlpService = ytDlpService;
+        this.ffmpegService = ffmpegService;
         this.transcriptionService = transcriptionService;
         this.normalizationService = normalizationService;
+        this.zipPackagingService = zipPackagingService;
+        this.mediaDeliveryService = mediaDeliveryService;
         this.videoRepository = videoRepository;
+        this.pipelineExecutor = pipelineExecutor;
+        this.taskStageRecorder = taskStageRecorder;
     }
 
     @Override
@@ -58,94 +87,60 @@ public class FullProcessingTaskHandler extends BaseTaskHandler {
     public void handle(DownloadTask task) {
         log.info("[ZIP] Starting full processing for video: {}", task.getVideoId());
         Path tempDir = null;
+        CountDownLatch stagesFinished = new CountDownLatch(2);
+        List<Future<?>> stages = new ArrayList<>();
         try {
             String url = "https://www.youtube.com/watch?v=" + task.getVideoId();
-            tempDir = Files.createTempDirectory("zip_" + task.getVideoId());
+            Path workDir = Files.createTempDirectory("zip_" + task.getVideoId());
+            tempDir = workDir;
 
-            // Step 1: Download Media (ALWAYS)
-            notificationService.sendMessage(task.getChatId(),
-                    messageService.getMessage("common.downloading", task.getLanguageCode()));
-            File videoFile = ytDlpService.downloadVideo(url, tempDir, "video");
-            File audioFile = ytDlpService.downloadAudio(url, tempDir, "audio");
-
-            if (videoFile == null || !videoFile.exists() || audioFile == null || !audioFile.exists()) {
-                throw new IOException("Failed to download media files");
-            }
+            // Media and text branches have no dependency on each other and run concurrently.
+            // A media branch failing on the size check cancels the text branch right away
+            CompletionService<Object> completion = new ExecutorCompletionService<>(pipelineExecutor);
+            Future<MediaFiles> mediaStage = submitStage(completion, stagesFinished, stages,
+                    () -> downloadMedia(task, url, workDir));
+            Future<Texts> textStage = submitStage(completion, stagesFinished, stages,
+                    () -> prepareTexts(task, url, workDir));
+            awaitStages(completion, stages);
 
-            // Step 2: Get Transcription
-            notificationService.sendMessage(task.getChatId(),
-                    messageService.getMessage("common.transcribing", task.getLanguageCode()));
-            Optional<Video> videoOpt = videoRepository.findByVideoId(task.getVideoId());
-            Video videoRecord;
-
-            if (videoOpt.isPresent() && videoOpt.get().getTranscriptionText() != null
-                    && !videoOpt.get().getTranscriptionText().isEmpty()) {
-                log.info("[ZIP] Found existing transcription for {}", task.getVideoId());
-                videoRecord = videoOpt.get();
-            } else {
-                log.info("[ZIP] Transcription not found, recognizing from downloaded audio...");
-                // Use the ALREADY downloaded audio file for transcription
-                videoRecord = transcriptionService.transcribeFile(task, audioFile);
-                if (videoRecord == null) {
-                    throw new IOException("Transcription failed");
-                }
-            }
+            MediaFiles media = mediaStage.get();
+            Texts texts = textStage.get();
 
-            // Step 3: Get Normalization
-            notificationService.sendMessage(task.getChatId(),
-                    messageService.getMessage("common.normalizing", task.getLanguageCode()));
-            String normalizedText;
-            if (videoRecord.getNormalizedText() != null && !videoRecord.getNormalizedText().isEmpty()) {
-                log.info("[ZIP] Found existing normalization for {}", task.getVideoId());
-                normalizedText = videoRecord.getNormalizedText();
-            } else {
-                log.info("[ZIP] Normalization not found, generating...");
-                String transcription = videoRecord.getTranscriptionText();
-                String language = videoRecord.getOriginalLanguage();
-
-                normalizedText = normalizationService.normalizeText(transcription, language);
-                if (normalizedText == null) {
-                    throw new IOException("Normalization returned empty result");
-                }
-
-                videoRecord.setNormalizedText(normalizedText);
-                videoRepository.save(videoRecord);
-            }
-
-            // Step 4: Create Text Files
-            File transcriptionFile = tempDir.resolve("transcription.txt").toFile();
-            Files.writeString(transcriptionFile.toPath(), videoRecord.getTranscriptionText());
-
-            File normalizedFile = tempDir.resolve("normalized.txt").toFile();
-            Files.writeString(normalizedFile.toPath(), normalizedText);
-
-            // Step 5: Pack ZIP
+            // Step 4: Pack ZIP (media stored as-is, texts deflated straight from memory)
             notificationService.sendMessage(task.getChatId(),
                     messageService.getMessage("common.packing", task.getLanguageCode()));
-            File zipFile = tempDir.resolve("content.zip").toFile();
-            try (FileOutputStream fos = new FileOutputStream(zipFile);
-                    ZipOutputStream zos = new ZipOutputStream(fos)) {
-
-                addToZip(videoFile, zos);
-                addToZip(audioFile, zos);
-                addToZip(transcriptionFile, zos);
-                addToZip(normalizedFile, zos);
-            }
+            Map<String, String> textEntries = new LinkedHashMap<>();
+            textEntries.put("transcription.txt", texts.transcription());
+            textEntries.put("normalized.txt", texts.normalized());
+            File zipFile = taskStageRecorder.record(task, TaskStageName.PACKAGING, stage -> {
+                File archive = zipPackagingService.createArchive(workDir.resolve("content.zip"),
+                        List.of(media.video(), media.audio()), textEntries);
+                stage.bytes(archive);
+                return archive;
+            });
 
-            // Step 6: Send ZIP
+            // Step 5: Send ZIP
             notificationService.sendMessage(task.getChatId(),
                     messageService.getMessage("common.sending", task.getLanguageCode()));
-            notificationService.sendDocument(task.getChatId(), zipFile,
+            mediaDeliveryService.deliver(task, zipFile,
                     messageService.getMessage("task.completed.full_processing_caption", task.getLanguageCode()));
 
             updateTaskStatus(task, TaskStatus.COMPLETED);
             log.info("[ZIP] Completed full processing for video: {}", task.getVideoId());
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("[ZIP] Full processing interrupted for video: {}", task.getVideoId());
+            failTask(task, "Processing interrupted");
         } catch (Exception e) {
             log.error("[ZIP] Error in full processing for video: {}", task.getVideoId(), e);
             failTask(task, "Error: " + e.getMessage());
         } finally {
-            // Step 7: Cleanup
+            // Step 6: Cleanup (after cancelled stages have released their files)
+            if (!stages.isEmpty()) {
+                stages.forEach(stage -> stage.cancel(true));
+                awaitQuietly(stagesFinished);
+            }
             if (tempDir != null) {
                 try (Stream<Path> walk = Files.walk(tempDir)) {
                     walk.sorted(Comparator.reverseOrder())
@@ -159,17 +154,135 @@ public class FullProcessingTaskHandler extends BaseTaskHandler {
         }
     }
 
-    private void addToZip(File file, ZipOutputStream zos) throws IOException {
-        try (FileInputStream fis = new FileInputStream(file)) {
-            ZipEntry zipEntry = new ZipEntry(file.getName());
-            zos.putNextEntry(zipEntry);
+    /**
+     * Step 1: pick a format that fits the upload limit, download the mp4 and
+     * demux its audio track locally. The format probe runs here rather than
+     * before the branches so that it does not delay recognition.
+     */
+    private MediaFiles downloadMedia(DownloadTask task, String url, Path workDir) throws Exception {
+        // The archive carries the video plus its audio track, so leave headroom in the upload limit.
+        // Fails with delivery.too_large before the download if nothing fits
+        String format = mediaDeliveryService.chooseVideoFormat(task, url, 0.8);
+        notificationService.sendMessage(task.getChatId(),
+                messageService.getMessage("common.downloading", task.getLanguageCode()));
+        File videoFile = taskStageRecorder.record(task, TaskStageName.DOWNLOAD, stage -> {
+            File file = ytDlpService.downloadVideo(url, workDir, "video", format);
+            stage.bytes(file);
+            return file;
+        });
+        if (videoFile == null || !videoFile.exists()) {
+            throw new IOException("Failed to download media files");
+        }
+
+        // Audio track is demuxed locally from the mp4 instead of a second YouTube download
+        File audioFile = taskStageRecorder.record(task, TaskStageName.CONVERSION, stage -> {
+            stage.bytes(videoFile);
+            return ffmpegService.extractAudio(videoFile, workDir, "audio");
+        });
+        log.info("[ZIP] Media ready for {}", task.getVideoId());
+        return new MediaFiles(videoFile, audioFile);
+    }
+
+    /**
+     * Steps 2-3: transcription (cached or recognized from a lightweight audio-only
+     * download running alongside the video download), then normalization as soon
+     * as the transcript is available.
+     */
+    private Texts prepareTexts(DownloadTask task, String url, Path workDir) throws Exception {
+        Optional<VideoStatusView> status = videoRepository.findStatusByVideoId(task.getVideoId());
+        String transcription;
+        String language;
 
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = fis.read(buffer)) >= 0) {
-                zos.write(buffer, 0, length);
+        Optional<String> cachedTranscription = status.filter(VideoStatusView::hasTranscription)
+                .flatMap(s -> videoRepository.findTranscriptionTextByVideoId(task.getVideoId()));
+        if (cachedTranscription.isPresent()) {
+            log.info("[ZIP] Found existing transcription for {}", task.getVideoId());
+            transcription = cachedTranscription.get();
+            language = status.get().originalLanguage();
+        } else {
+            notificationService.sendMessage(task.getChatId(),
+                    messageService.getMessage("common.transcribing", task.getLanguageCode()));
+            log.info("[ZIP] Transcription not found, recognizing from audio-only stream...");
+            File speechFile = taskStageRecorder.record(task, TaskStageName.AUDIO_DOWNLOAD, stage -> {
+                File file = ytDlpService.downloadAudioForTranscription(url, workDir, "speech");
+                stage.bytes(file);
+                return file;
+            });
+            Video videoRecord = transcriptionService.transcribeFile(task, speechFile);
+            if (videoRecord == null) {
+                throw new IOException("Transcription failed");
             }
-            zos.closeEntry();
+            transcription = videoRecord.getTranscriptionText();
+            language = videoRecord.getOriginalLanguage();
         }
+
+        Optional<String> cachedNormalized = status.filter(VideoStatusView::hasNormalizedText)
+                .flatMap(s -> videoRepository.findNormalizedTextByVideoId(task.getVideoId()));
+        String normalizedText;
+        if (cachedNormalized.isPresent()) {
+            log.info("[ZIP] Found existing normalization for {}", task.getVideoId());
+            normalizedText = cachedNormalized.get();
+        } else {
+            notificationService.sendMessage(task.getChatId(),
+                    messageService.getMessage("common.normalizing", task.getLanguageCode()));
+            log.info("[ZIP] Normalization not found, generating...");
+
+            normalizedText = normalizationService.normalizeText(task, transcription, language);
+            if (normalizedText == null) {
+                throw new IOException("Normalization returned empty result");
+            }
+
+            videoRepository.updateNormalizedText(task.getVideoId(), normalizedText);
+        }
+
+        return new Texts(transcription, normalizedText);
+    }
+
+    private <T> Future<T> submitStage(CompletionService<Object> completion, CountDownLatch finished,
+            List<Future<?>> stages, Callable<T> stage) {
+        @SuppressWarnings("unchecked")
+        Future<T> future = (Future<T>) completion.submit(() -> {
+            try {
+                return stage.call();
+            } finally {
+                finished.countDown();
+            }
+        });
+        stages.add(future);
+        return future;
+    }
+
+    /**
+     * Waits for all stages; the first failure cancels (interrupts) the others.
+     */
+    private void awaitStages(CompletionService<Object> completion, List<Future<?>> stages) throws Exception {
+        try {
+            for (int i = 0; i < stages.size(); i++) {
+                completion.take().get();
+            }
+        } catch (ExecutionException e) {
+            stages.forEach(stage -> stage.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        }
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            if (!latch.await(30, TimeUnit.SECONDS)) {
+                log.warn("[ZIP] Cancelled stages did not finish within 30 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record MediaFiles(File video, File audio) {
+    }
+
+    private record Texts(String transcription, String normalized) {
     }
 }
@@ -8,13 +8,13 @@ import com.maslen.youtubelizer.repository.DownloadTaskRepository;
 import com.maslen.youtubelizer.repository.VideoRepository;
 import com.maslen.youtubelizer.service.MessageService;
 import com.maslen.youtubelizer.service.TelegramNotificationService;
+import com.maslen.youtubelizer.service.TextDeliveryService;
 import com.maslen.youtubelizer.service.TranscriptionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Component
@@ -22,15 +22,18 @@ public class SpeechRecognitionTaskHandler extends BaseTaskHandler {
 
     private final TranscriptionService transcriptionService;
     private final VideoRepository videoRepository;
+    private final TextDeliveryService textDeliveryService;
 
     public SpeechRecognitionTaskHandler(DownloadTaskRepository downloadTaskRepository,
             TelegramNotificationService notificationService,
             MessageService messageService,
             TranscriptionService transcriptionService,
-            VideoRepository videoRepository) {
+            VideoRepository videoRepository,
+            TextDeliveryService textDeliveryService) {
         super(downloadTaskRepository, notificationService, messageService);
         this.transcriptionService = transcriptionService;
         this.videoRepository = videoRepository;
+        this.textDeliveryService = textDeliveryService;
     }
 
     @Override
@@ -42,24 +45,37 @@ public class SpeechRecognitionTaskHandler extends BaseTaskHandler {
     public void handle(DownloadTask task) {
         try {
             // Check cache
-            Optional<Video> videoOpt = videoRepository.findByVideoId(task.getVideoId());
-            if (videoOpt.isPresent() && videoOpt.get().getTranscriptionText() != null
-                    && !videoOpt.get().getTranscriptionText().isEmpty()) {
+            Optional<String> cached = videoRepository.findTranscriptionTextByVideoId(task.getVideoId());
+            if (cached.isPresent()) {
 
                 log.info("Found cached transcription for video: {}", task.getVideoId());
-                sendTranscriptionToUser(task.getChatId(), videoOpt.get().getTranscriptionText(), task.getVideoId(),
-                        task.getLanguageCode());
+                sendTranscriptionToUser(task.getChatId(), cached.get(), task.getVideoId(), task.getLanguageCode());
                 updateTaskStatus(task, TaskStatus.COMPLETED);
                 return;
             }
 
-            // Perform transcription
+            // Perform transcription; in two-pass mode the draft is sent before the re-decoding
             String url = "https://www.youtube.com/watch?v=" + task.getVideoId();
-            Video video = transcriptionService.performTranscription(task, url);
+            AtomicReference<String> draft = new AtomicReference<>();
+            Video video = transcriptionService.performTranscription(task, url, text -> {
+                draft.set(text);
+                sendTranscriptionToUser(task.getChatId(), text, task.getVideoId(), task.getLanguageCode(),
+                        "task.transcription_draft");
+            });
 
             if (video != null && video.getTranscriptionText() != null && !video.getTranscriptionText().isEmpty()) {
-                sendTranscriptionToUser(task.getChatId(), video.getTranscriptionText(), task.getVideoId(),
-                        task.getLanguageCode());
+                String text = video.getTranscriptionText();
+                if (draft.get() == null) {
+                    sendTranscriptionToUser(task.getChatId(), text, task.getVideoId(), task.getLanguageCode());
+                } else if (!text.equals(draft.get())) {
+                    sendTranscriptionToUser(task.getChatId(), text, task.getVideoId(), task.getLanguageCode(),
+                            "task.transcription_refined");
+                } else {
+                    // The draft promised a corrected text; tell the user it is already final
+                    log.info("Re-decoding did not change the draft for video: {}", task.getVideoId());
+                    notificationService.sendMessage(task.getChatId(),
+                            messageService.getMessage("task.transcription_confirmed", task.getLanguageCode()));
+                }
                 updateTaskStatus(task, TaskStatus.COMPLETED);
             } else {
                 failTask(task, "Transcription failed or returned empty result");
@@ -71,77 +87,25 @@ public class SpeechRecognitionTaskHandler extends BaseTaskHandler {
     }
 
     private void sendTranscriptionToUser(Long chatId, String transcription, String videoId, String languageCode) {
+        sendTranscriptionToUser(chatId, transcription, videoId, languageCode, null);
+    }
+
+    /**
+     * @param noteKey ключ пометки к заголовку (черновик / уточнённая версия)
+     *                или {@code null}
+     */
+    private void sendTranscriptionToUser(Long chatId, String transcription, String videoId, String languageCode,
+            String noteKey) {
         try {
-            if (transcription.length() > 4000) {
-                String[] parts = splitString(transcription, 4000);
-                for (int i = 0; i < parts.length; i++) {
-                    String part = String.format("📄 %s (%d/%d):\n\n%s",
-                            messageService.getMessage("bot.button.text", languageCode),
-                            i + 1, parts.length, parts[i]);
-                    notificationService.sendMessage(chatId, part);
-                    Thread.sleep(1000);
-                }
-            } else {
-                String message = "🎙️ " + messageService.getMessage("bot.button.text", languageCode) + " " + videoId
-                        + ":\n\n" + transcription;
-                notificationService.sendMessage(chatId, message);
+            String header = "🎙️ " + messageService.getMessage("bot.button.text", languageCode) + " " + videoId;
+            if (noteKey != null) {
+                header += " " + messageService.getMessage(noteKey, languageCode);
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Interrupted while sending transcription", e);
+            textDeliveryService.deliver(chatId, header, transcription, videoId + "_transcription.txt");
         } catch (Exception e) {
             log.error("Failed to send transcription", e);
             notificationService.sendMessage(chatId,
                     messageService.getMessage("common.error", languageCode) + " Failed to send transcription.");
         }
     }
-
-    // Need splitString duplicated here or move to BaseTaskHandler?
-    // It's used in TaskSchedulerService. Let's move it to BaseTaskHandler or a
-    // StringUtils.
-    // For now, I'll put it here to keep handler self-contained, or duplicates are
-    // bad.
-    // Ideally BaseTaskHandler or MessageService should have it.
-    // I'll put it in BaseTaskHandler.
-    private String[] splitString(String text, int maxLength) {
-        if (text.length() <= maxLength) {
-            return new String[] { text };
-        }
-
-        List<String> parts = new ArrayList<>();
-        String[] sentences = text.split("(?<=[.!?])\\s+");
-
-        StringBuilder currentPart = new StringBuilder();
-        for (String sentence : sentences) {
-            if (currentPart.length() + sentence.length() > maxLength) {
-                if (currentPart.length() > 0) {
-                    parts.add(currentPart.toString().trim());
-                    currentPart = new StringBuilder();
-                }
-                if (sentence.length() > maxLength) {
-                    String[] words = sentence.split("\\s+");
-                    StringBuilder temp = new StringBuilder();
-                    for (String word : words) {
-                        if (temp.length() + word.length() > maxLength) {
-                            parts.add(temp.toString().trim());
-                            temp = new StringBuilder(word + " ");
-                        } else {
-                            temp.append(word).append(" ");
-                        }
-                    }
-                    if (temp.length() > 0) {
-                        parts.add(temp.toString().trim());
-                    }
-                } else {
-                    currentPart.append(sentence).append(" ");
-                }
-            } else {
-                currentPart.append(sentence).append(" ");
-            }
-        }
-        if (currentPart.length() > 0) {
-            parts.add(currentPart.toString().trim());
-        }
-        return parts.toArray(new String[0]);
-    }
 }
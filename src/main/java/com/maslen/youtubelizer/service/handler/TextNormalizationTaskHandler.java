@@ -4,18 +4,18 @@ import com.maslen.youtubelizer.entity.DownloadTask;
 import com.maslen.youtubelizer.entity.Video;
 import com.maslen.youtubelizer.model.TaskStatus;
 import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.model.VideoStatusView;
 import com.maslen.youtubelizer.repository.DownloadTaskRepository;
 import com.maslen.youtubelizer.repository.VideoRepository;
 import com.maslen.youtubelizer.service.MessageService;
 import com.maslen.youtubelizer.service.NormalizationService;
 import com.maslen.youtubelizer.service.TelegramNotificationService;
+import com.maslen.youtubelizer.service.TextDeliveryService;
 import com.maslen.youtubelizer.service.TranscriptionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
-import java.util.ArrayList;
-import java.util.List;
 
 @Slf4j
 @Component
@@ -24,17 +24,20 @@ public class TextNormalizationTaskHandler extends BaseTaskHandler {
     private final NormalizationService normalizationService;
     private final TranscriptionService transcriptionService;
     private final VideoRepository videoRepository;
+    private final TextDeliveryService textDeliveryService;
 
     public TextNormalizationTaskHandler(DownloadTaskRepository downloadTaskRepository,
             TelegramNotificationService notificationService,
             MessageService messageService,
             NormalizationService normalizationService,
             TranscriptionService transcriptionService,
-            VideoRepository videoRepository) {
+            VideoRepository videoRepository,
+            TextDeliveryService textDeliveryService) {
         super(downloadTaskRepository, notificationService, messageService);
         this.normalizationService = normalizationService;
         this.transcriptionService = transcriptionService;
         this.videoRepository = videoRepository;
+        this.textDeliveryService = textDeliveryService;
     }
 
     @Override
@@ -49,36 +52,37 @@ public class TextNormalizationTaskHandler extends BaseTaskHandler {
             log.info("[TEXT_NORMALIZATION] Starting normalization for video: {}", task.getVideoId());
 
             // Check cache
-            Optional<Video> videoOpt = videoRepository.findByVideoId(task.getVideoId());
-            if (videoOpt.isPresent() && videoOpt.get().getNormalizedText() != null
-                    && !videoOpt.get().getNormalizedText().isEmpty()) {
+            Optional<String> cached = videoRepository.findNormalizedTextByVideoId(task.getVideoId());
+            if (cached.isPresent()) {
 
                 log.info("Found cached normalized text for video: {}", task.getVideoId());
-                sendNormalizedTextToUser(task.getChatId(), videoOpt.get().getNormalizedText(), task.getVideoId(),
-                        task.getLanguageCode());
+                sendNormalizedTextToUser(task.getChatId(), cached.get(), task.getVideoId(), task.getLanguageCode());
                 updateTaskStatus(task, TaskStatus.COMPLETED);
                 return;
             }
 
-            Video video;
+            String transcription;
+            String language;
             // Check for transcription
-            if (videoOpt.isPresent() && videoOpt.get().getTranscriptionText() != null
-                    && !videoOpt.get().getTranscriptionText().isEmpty()) {
-                video = videoOpt.get();
+            Optional<String> cachedTranscription = videoRepository.findTranscriptionTextByVideoId(task.getVideoId());
+            if (cachedTranscription.isPresent()) {
+                transcription = cachedTranscription.get();
+                language = videoRepository.findStatusByVideoId(task.getVideoId())
+                        .map(VideoStatusView::originalLanguage)
+                        .orElse(null);
             } else {
                 notificationService.sendMessage(task.getChatId(),
                         messageService.getMessage("common.transcribing", task.getLanguageCode()));
-                video = transcriptionService.performTranscription(task, url);
+                Video video = transcriptionService.performTranscription(task, url);
                 if (video == null) {
                     return; // Error already handled in performTranscription
                 }
+                transcription = video.getTranscriptionText();
+                language = video.getOriginalLanguage();
             }
 
             // Normalize
-            String transcription = video.getTranscriptionText();
-            String language = video.getOriginalLanguage();
-
-            String normalizedText = normalizationService.normalizeText(transcription, language);
+            String normalizedText = normalizationService.normalizeText(task, transcription, language);
 
             if (normalizedText == null) {
                 failTask(task, "Normalization returned empty result");
@@ -86,8 +90,7 @@ public class TextNormalizationTaskHandler extends BaseTaskHandler {
             }
 
             // Save to DB
-            video.setNormalizedText(normalizedText);
-            videoRepository.save(video);
+            videoRepository.updateNormalizedText(task.getVideoId(), normalizedText);
             log.info("[TEXT_NORMALIZATION] Saved normalized text for video: {}", task.getVideoId());
 
             // Save to file
@@ -104,70 +107,12 @@ public class TextNormalizationTaskHandler extends BaseTaskHandler {
 
     private void sendNormalizedTextToUser(Long chatId, String normalizedText, String videoId, String languageCode) {
         try {
-            if (normalizedText.length() > 4000) {
-                String[] parts = splitString(normalizedText, 4000);
-                for (int i = 0; i < parts.length; i++) {
-                    String part = String.format("📝 %s (%d/%d):\n\n%s",
-                            messageService.getMessage("common.normalizing", languageCode),
-                            i + 1, parts.length, parts[i]);
-                    notificationService.sendMessage(chatId, part);
-                    Thread.sleep(1000);
-                }
-            } else {
-                String message = "✨ " + messageService.getMessage("common.normalizing", languageCode) + " " + videoId
-                        + ":\n\n" + normalizedText;
-                notificationService.sendMessage(chatId, message);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Interrupted while sending normalized text", e);
+            String header = "✨ " + messageService.getMessage("common.normalizing", languageCode) + " " + videoId;
+            textDeliveryService.deliver(chatId, header, normalizedText, videoId + "_normalized.txt");
         } catch (Exception e) {
             log.error("Failed to send normalized text", e);
             notificationService.sendMessage(chatId,
                     messageService.getMessage("common.error", languageCode) + " Failed to send text.");
         }
     }
-
-    // Duplicated splitString again. I should move it to BaseTaskHandler.
-    private String[] splitString(String text, int maxLength) {
-        if (text.length() <= maxLength) {
-            return new String[] { text };
-        }
-
-        List<String> parts = new ArrayList<>();
-        String[] sentences = text.split("(?<=[.!?])\\s+");
-
-        StringBuilder currentPart = new StringBuilder();
-        for (String sentence : sentences) {
-            if (currentPart.length() + sentence.length() > maxLength) {
-                if (currentPart.length() > 0) {
-                    parts.add(currentPart.toString().trim());
-                    currentPart = new StringBuilder();
-                }
-                if (sentence.length() > maxLength) {
-                    String[] words = sentence.split("\\s+");
-                    StringBuilder temp = new StringBuilder();
-                    for (String word : words) {
-                        if (temp.length() + word.length() > maxLength) {
-                            parts.add(temp.toString().trim());
-                            temp = new StringBuilder(word + " ");
-                        } else {
-                            temp.append(word).append(" ");
-                        }
-                    }
-                    if (temp.length() > 0) {
-                        parts.add(temp.toString().trim());
-                    }
-                } else {
-                    currentPart.append(sentence).append(" ");
-                }
-            } else {
-                currentPart.append(sentence).append(" ");
-            }
-        }
-        if (currentPart.length() > 0) {
-            parts.add(currentPart.toString().trim());
-        }
-        return parts.toArray(new String[0]);
-    }
 }
@@ -1,10 +1,13 @@
 package com.maslen.youtubelizer.service.handler;
 
 import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.TaskStageName;
 import com.maslen.youtubelizer.model.TaskStatus;
 import com.maslen.youtubelizer.model.TaskType;
 import com.maslen.youtubelizer.repository.DownloadTaskRepository;
+import com.maslen.youtubelizer.service.MediaDeliveryService;
 import com.maslen.youtubelizer.service.MessageService;
+import com.maslen.youtubelizer.service.TaskStageRecorder;
 import com.maslen.youtubelizer.service.TelegramNotificationService;
 import com.maslen.youtubelizer.service.YtDlpService;
 import lombok.extern.slf4j.Slf4j;
@@ -18,13 +21,19 @@ import java.nio.file.Paths;
 public class VideoTaskHandler extends BaseTaskHandler {
 
     private final YtDlpService ytDlpService;
+    private final MediaDeliveryService mediaDeliveryService;
+    private final TaskStageRecorder taskStageRecorder;
 
     public VideoTaskHandler(DownloadTaskRepository downloadTaskRepository,
             TelegramNotificationService notificationService,
             MessageService messageService,
-            YtDlpService ytDlpService) {
+            YtDlpService ytDlpService,
+            MediaDeliveryService mediaDeliveryService,
+            TaskStageRecorder taskStageRecorder) {
         super(downloadTaskRepository, notificationService, messageService);
         this.ytDlpService = ytDlpService;
+        this.mediaDeliveryService = mediaDeliveryService;
+        this.taskStageRecorder = taskStageRecorder;
     }
 
     @Override
@@ -36,18 +45,32 @@ public class VideoTaskHandler extends BaseTaskHandler {
     public void handle(DownloadTask task) {
         try {
             String url = "https://www.youtube.com/watch?v=" + task.getVideoId();
-            File file = ytDlpService.downloadVideo(url, Paths.get("downloads"), task.getVideoId());
+            // Fails the task with delivery.too_large before downloading if no format fits
+            String format = mediaDeliveryService.chooseVideoFormat(task, url, 1.0);
+            File file = taskStageRecorder.record(task, TaskStageName.DOWNLOAD, stage -> {
+                File downloaded = ytDlpService.downloadVideo(url, Paths.get("downloads"), task.getVideoId(), format);
+                stage.bytes(downloaded);
+                return downloaded;
+            });
 
             if (file != null && file.exists()) {
-                notificationService.sendDocument(task.getChatId(), file,
-                        messageService.getMessage("task.completed.video", task.getLanguageCode()));
-                updateTaskStatus(task, TaskStatus.COMPLETED);
-
-                // Delete file after sending
+                boolean published;
                 try {
-                    file.delete();
+                    published = mediaDeliveryService.deliver(task, file,
+                            messageService.getMessage("task.completed.video", task.getLanguageCode()));
                 } catch (Exception e) {
-                    log.error("Failed to delete video file: {}", file.getAbsolutePath(), e);
+                    file.delete();
+                    throw e;
+                }
+                updateTaskStatus(task, TaskStatus.COMPLETED);
+
+                // Delete file after sending (published files are served until the link expires)
+                if (!published) {
+                    try {
+                        file.delete();
+                    } catch (Exception e) {
+                        log.error("Failed to delete video file: {}", file.getAbsolutePath(), e);
+                    }
                 }
             } else {
                 failTask(task, "Video file not found after download");
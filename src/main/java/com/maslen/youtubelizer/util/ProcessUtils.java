@@ -0,0 +1,80 @@
+package com.maslen.youtubelizer.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Утилита для ожидания внешних процессов (yt-dlp, ffmpeg, whisper-cli).
+ * Вывод процесса читается в отдельном виртуальном потоке, а вызывающий поток
+ * ждёт в прерываемом {@link Process#waitFor}: при прерывании (отмене стадии)
+ * процесс принудительно завершается, а не дорабатывает до конца.
+ */
+public final class ProcessUtils {
+
+    private ProcessUtils() {
+        // Utility class
+    }
+
+    /**
+     * Ожидает завершения процесса без таймаута.
+     *
+     * @param process      запущенный процесс (stderr должен быть объединён со stdout)
+     * @param lineConsumer обработчик строк вывода; вызывается в потоке чтения
+     * @return код завершения процесса
+     * @throws InterruptedException если ожидающий поток прерван (процесс при этом
+     *                              уничтожается)
+     */
+    public static int awaitProcess(Process process, Consumer<String> lineConsumer) throws InterruptedException {
+        Thread reader = startReader(process, lineConsumer);
+        try {
+            int exitCode = process.waitFor();
+            reader.join();
+            return exitCode;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    /**
+     * Ожидает завершения процесса с таймаутом. По истечении таймаута процесс
+     * принудительно завершается.
+     *
+     * @return {@code true}, если процесс завершился сам; {@code false} при таймауте
+     * @throws InterruptedException если ожидающий поток прерван (процесс при этом
+     *                              уничтожается)
+     */
+    public static boolean awaitProcess(Process process, Consumer<String> lineConsumer, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Thread reader = startReader(process, lineConsumer);
+        try {
+            boolean finished = process.waitFor(timeout, unit);
+            if (!finished) {
+                process.destroyForcibly();
+            }
+            reader.join();
+            return finished;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    private static Thread startReader(Process process, Consumer<String> lineConsumer) {
+        return Thread.ofVirtual().name("process-output-" + process.pid()).start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineConsumer.accept(line);
+                }
+            } catch (IOException e) {
+                // Поток закрывается при уничтожении процесса — это ожидаемо
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.maslen.youtubelizer.util;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Разбиение длинного текста на части для сообщений Telegram.
+ * <p>
+ * Один проход по индексам {@link CharSequence} без регулярных выражений и
+ * промежуточных строк: в окне {@code [start, start + maxLength]} запоминаются
+ * последняя граница предложения и последний пробел, после чего разрез делается
+ * по границе предложения, иначе по границе слова, иначе жёстко по лимиту.
+ * Результат — смещения или представления ({@link CharBuffer#wrap}) исходного
+ * текста, а не копии.
+ */
+public final class TextSplitter {
+
+    private TextSplitter() {
+        // Utility class
+    }
+
+    /**
+     * Разбивает текст на части длиной не более {@code maxLength} символов.
+     * Пробельные символы на краях частей отбрасываются.
+     *
+     * @return представления исходного текста (без копирования)
+     */
+    public static List<CharSequence> split(CharSequence text, int maxLength) {
+        int[] bounds = boundaries(text, maxLength);
+        List<CharSequence> parts = new ArrayList<>(bounds.length / 2);
+        for (int i = 0; i < bounds.length; i += 2) {
+            parts.add(CharBuffer.wrap(text, bounds[i], bounds[i + 1]));
+        }
+        return parts;
+    }
+
+    /**
+     * Вычисляет границы частей.
+     *
+     * @return массив пар {@code [start0, end0, start1, end1, ...]}, где
+     *         {@code end} не включается
+     */
+    public static int[] boundaries(CharSequence text, int maxLength) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength must be positive: " + maxLength);
+        }
+        int length = text.length();
+        int[] bounds = new int[Math.max(2, (length / maxLength + 2) * 2)];
+        int count = 0;
+
+        int start = skipWhitespace(text, 0, length);
+        while (start < length) {
+            int end = nextCut(text, start, maxLength);
+            int trimmedEnd = trimEnd(text, start, end);
+            if (trimmedEnd > start) {
+                if (count + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count++] = start;
+                bounds[count++] = trimmedEnd;
+            }
+            start = skipWhitespace(text, end, length);
+        }
+        return count == bounds.length ? bounds : Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Находит конец части, начинающейся с {@code start}.
+     *
+     * @return индекс (не включая), не дальше {@code start + maxLength}
+     */
+    public static int nextCut(CharSequence text, int start, int maxLength) {
+        int length = text.length();
+        if (length - start <= maxLength) {
+            return length;
+        }
+        int limit = start + maxLength;
+        int lastSentence = -1;
+        int lastSpace = -1;
+        // text[limit] exists here, so a break right at the limit is also considered
+        for (int i = start + 1; i <= limit; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                lastSpace = i;
+                char prev = text.charAt(i - 1);
+                if (prev == '.' || prev == '!' || prev == '?' || prev == '…') {
+                    lastSentence = i;
+                }
+            }
+        }
+        if (lastSentence > start) {
+            return lastSentence;
+        }
+        if (lastSpace > start) {
+            return lastSpace;
+        }
+        // Hard cut; do not split a surrogate pair
+        if (limit - 1 > start && Character.isHighSurrogate(text.charAt(limit - 1))
+                && Character.isLowSurrogate(text.charAt(limit))) {
+            return limit - 1;
+        }
+        return limit;
+    }
+
+    private static int skipWhitespace(CharSequence text, int from, int length) {
+        int i = from;
+        while (i < length && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(CharSequence text, int start, int end) {
+        int i = end;
+        while (i > start && Character.isWhitespace(text.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+}
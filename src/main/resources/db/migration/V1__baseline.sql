@@ -0,0 +1,64 @@
+-- Baseline schema as previously created by Hibernate (ddl-auto=update).
+-- Idempotent, so it is safe on databases that predate Flyway
+-- (spring.flyway.baseline-version=0 makes it run there as well).
+
+CREATE TABLE IF NOT EXISTS channels (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    youtube_channel_id VARCHAR(100) NOT NULL UNIQUE,
+    channel_title      VARCHAR(500),
+    channel_url        VARCHAR(1000),
+    subscriber_count   BIGINT,
+    video_count        INTEGER,
+    description        TEXT,
+    created_at         TIMESTAMP(6),
+    updated_at         TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS videos (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    video_id             VARCHAR(50) NOT NULL UNIQUE,
+    video_title          VARCHAR(1000),
+    video_url            VARCHAR(1000),
+    channel_id           BIGINT REFERENCES channels (id),
+    duration_seconds     INTEGER,
+    view_count           BIGINT,
+    like_count           BIGINT,
+    upload_date          TIMESTAMP(6),
+    original_language    VARCHAR(10),
+    transcription_data   BYTEA,
+    normalized_data      BYTEA,
+    word_count           INTEGER,
+    transcription_status VARCHAR(50),
+    created_at           TIMESTAMP(6),
+    updated_at           TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS requests (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id       BIGINT,
+    user_name     VARCHAR(255),
+    message_text  VARCHAR(1000),
+    is_valid_link BOOLEAN,
+    youtube_url   VARCHAR(1000),
+    video_id      VARCHAR(50),
+    channel_id    BIGINT REFERENCES channels (id),
+    created_at    TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS download_tasks (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    chat_id       BIGINT NOT NULL,
+    video_id      VARCHAR(100) NOT NULL,
+    type          VARCHAR(255) NOT NULL,
+    status        VARCHAR(255) NOT NULL,
+    error_message VARCHAR(2048),
+    language_code VARCHAR(10),
+    created_at    TIMESTAMP(6),
+    updated_at    TIMESTAMP(6),
+    UNIQUE (video_id, type)
+);
+
+-- Databases created before compressed storage still have TEXT columns;
+-- add the new ones so TextCompressionMigrationRunner can move the data
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS transcription_data BYTEA;
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS normalized_data BYTEA;
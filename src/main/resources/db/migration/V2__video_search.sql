@@ -0,0 +1,8 @@
+-- Full-text search over transcripts.
+-- Texts are stored compressed, so the vector is computed by the application
+-- from the plain text on save (VideoRepository.updateSearchVector) and
+-- backfilled for existing rows by SearchIndexBackfillRunner.
+
+ALTER TABLE videos ADD COLUMN IF NOT EXISTS search_vector TSVECTOR;
+
+CREATE INDEX IF NOT EXISTS idx_videos_search_vector ON videos USING GIN (search_vector);
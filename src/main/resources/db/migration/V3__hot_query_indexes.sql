@@ -0,0 +1,18 @@
+-- Indexes for the scheduler and request lookups that run every few seconds.
+-- Built CONCURRENTLY so that existing installations keep accepting tasks
+-- while the indexes are created (Flyway runs such statements outside a
+-- transaction).
+
+-- DownloadTaskRepository.findNextPending: status = 'PENDING' ORDER BY created_at LIMIT 1
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_download_tasks_pending_created
+    ON download_tasks (created_at)
+    WHERE status = 'PENDING';
+
+-- DownloadTaskRepository.findStuckProcessing: status = 'PROCESSING' AND updated_at < ?
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_download_tasks_processing_updated
+    ON download_tasks (updated_at)
+    WHERE status = 'PROCESSING';
+
+-- RequestRepository.findByVideoId / findAllByVideoId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_requests_video_id
+    ON requests (video_id);
@@ -0,0 +1,8 @@
+-- Sequence for requests.id so that Hibernate can batch inserts (IDENTITY
+-- disables JDBC batching). Increment matches allocationSize = 50 of the
+-- pooled optimizer, which hands out the 50 ids below each sequence value;
+-- start 50 above the current maximum so none of them collide.
+
+CREATE SEQUENCE IF NOT EXISTS requests_seq INCREMENT BY 50;
+
+SELECT setval('requests_seq', COALESCE((SELECT MAX(id) FROM requests), 0) + 51, false);
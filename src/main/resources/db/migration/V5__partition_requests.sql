@@ -0,0 +1,90 @@
+-- Monthly range partitioning of requests on created_at, plus daily summary
+-- tables that outlive the detailed rows removed by RetentionService.
+--
+-- download_tasks is not partitioned: its unique (video_id, type) key would
+-- have to include created_at, and a restarted task reuses its old row, so a
+-- PENDING task may live in any month. Its hot queries already use the
+-- partial indexes from V3; old finished tasks are summarized and deleted by
+-- RetentionService instead.
+
+CREATE OR REPLACE FUNCTION ensure_monthly_partition(parent TEXT, month_start DATE) RETURNS VOID AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month_start)::DATE;
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                   parent || '_' || to_char(first_day, 'YYYY_MM'), parent,
+                   first_day, (first_day + INTERVAL '1 month')::DATE);
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TABLE requests_partitioned (
+    id            BIGINT       NOT NULL DEFAULT nextval('requests_seq'),
+    user_id       BIGINT,
+    user_name     VARCHAR(255),
+    message_text  VARCHAR(1000),
+    is_valid_link BOOLEAN,
+    youtube_url   VARCHAR(1000),
+    video_id      VARCHAR(50),
+    channel_id    BIGINT REFERENCES channels (id),
+    created_at    TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Rows outside every monthly partition (should stay empty, see RetentionService)
+CREATE TABLE requests_partitioned_default PARTITION OF requests_partitioned DEFAULT;
+
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    month_start := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM requests), now()))::DATE;
+    WHILE month_start <= (date_trunc('month', now()) + INTERVAL '2 months')::DATE LOOP
+        PERFORM ensure_monthly_partition('requests_partitioned', month_start);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO requests_partitioned (id, user_id, user_name, message_text, is_valid_link, youtube_url, video_id,
+                                  channel_id, created_at)
+SELECT id, user_id, user_name, message_text, is_valid_link, youtube_url, video_id, channel_id,
+       COALESCE(created_at, now())
+FROM requests;
+
+DROP TABLE requests;
+ALTER SEQUENCE requests_seq OWNED BY requests_partitioned.id;
+ALTER TABLE requests_partitioned RENAME TO requests;
+ALTER TABLE requests_partitioned_default RENAME TO requests_default;
+
+-- Partition names follow the parent: requests_partitioned_YYYY_MM -> requests_YYYY_MM
+DO $$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'requests'::regclass AND c.relname LIKE 'requests_partitioned_%'
+    LOOP
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', partition_name,
+                       replace(partition_name, 'requests_partitioned_', 'requests_'));
+    END LOOP;
+END;
+$$;
+
+CREATE INDEX idx_requests_video_id ON requests (video_id);
+CREATE INDEX idx_requests_created_at ON requests (created_at);
+
+CREATE TABLE IF NOT EXISTS request_daily_stats (
+    day            DATE   PRIMARY KEY,
+    total_requests BIGINT NOT NULL,
+    valid_requests BIGINT NOT NULL,
+    unique_users   BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS task_daily_stats (
+    day        DATE         NOT NULL,
+    type       VARCHAR(255) NOT NULL,
+    status     VARCHAR(255) NOT NULL,
+    task_count BIGINT       NOT NULL,
+    PRIMARY KEY (day, type, status)
+);
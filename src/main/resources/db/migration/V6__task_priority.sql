@@ -0,0 +1,7 @@
+-- Scheduling metadata for download_tasks (see TaskCostEstimator): priority
+-- class (cache hits are served first) and the expected run time used for
+-- shortest-job-first ordering. Tasks queued before this migration get the
+-- defaults and are estimated on the fly.
+
+ALTER TABLE download_tasks ADD COLUMN IF NOT EXISTS priority INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE download_tasks ADD COLUMN IF NOT EXISTS estimated_seconds INTEGER;
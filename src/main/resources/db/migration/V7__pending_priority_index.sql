@@ -0,0 +1,10 @@
+-- DownloadTaskRepository.findPendingCandidates:
+-- status = 'PENDING' ORDER BY priority DESC, created_at LIMIT n.
+-- Replaces the FIFO index from V3; built CONCURRENTLY like the other
+-- scheduler indexes.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_download_tasks_pending_priority
+    ON download_tasks (priority DESC, created_at)
+    WHERE status = 'PENDING';
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_download_tasks_pending_created;
@@ -0,0 +1,5 @@
+-- Actual run time of download tasks. AdmissionControlService compares it with
+-- estimated_seconds to calibrate the queue wait estimate.
+
+ALTER TABLE download_tasks ADD COLUMN IF NOT EXISTS started_at TIMESTAMP(6);
+ALTER TABLE download_tasks ADD COLUMN IF NOT EXISTS completed_at TIMESTAMP(6);
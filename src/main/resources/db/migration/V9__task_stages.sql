@@ -0,0 +1,21 @@
+-- Stage timeline of download tasks: one row per pipeline stage run (queue,
+-- download, conversion, transcription, normalization, packaging, upload).
+-- The task type is copied so latency percentiles need no join, and rows
+-- outlive restarts of the same task.
+
+CREATE TABLE IF NOT EXISTS task_stages (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    task_id       BIGINT      NOT NULL REFERENCES download_tasks (id) ON DELETE CASCADE,
+    task_type     VARCHAR(50) NOT NULL,
+    stage         VARCHAR(50) NOT NULL,
+    started_at    TIMESTAMP(6) NOT NULL,
+    finished_at   TIMESTAMP(6) NOT NULL,
+    duration_ms   BIGINT      NOT NULL,
+    bytes         BIGINT,
+    audio_seconds INTEGER,
+    tokens        INTEGER,
+    outcome       VARCHAR(20) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_task_stages_task_id ON task_stages (task_id);
+CREATE INDEX IF NOT EXISTS idx_task_stages_started_at ON task_stages (started_at);
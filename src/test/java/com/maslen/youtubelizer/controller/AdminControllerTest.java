@@ -0,0 +1,85 @@
+package com.maslen.youtubelizer.controller;
+
+import com.maslen.youtubelizer.model.TaskStageName;
+import com.maslen.youtubelizer.model.TaskStageView;
+import com.maslen.youtubelizer.repository.TaskStageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdminControllerTest {
+
+    private static final String TOKEN = "secret";
+
+    private final TaskStageRepository taskStageRepository = mock(TaskStageRepository.class);
+    private AdminController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        controller = new AdminController(taskStageRepository);
+        ReflectionTestUtils.setField(controller, "adminToken", TOKEN);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void returnsTaskTimelineWithoutEntityFields() throws Exception {
+        LocalDateTime startedAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+        when(taskStageRepository.findTimeline(42L)).thenReturn(List.of(
+                new TaskStageView(TaskStageName.DOWNLOAD, startedAt, startedAt.plusSeconds(3), 3000, 2048L, null,
+                        null, "success")));
+
+        mockMvc.perform(get("/api/admin/tasks/42/stages").header("X-Admin-Token", TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].stage").value("DOWNLOAD"))
+                .andExpect(jsonPath("$[0].durationMs").value(3000))
+                .andExpect(jsonPath("$[0].bytes").value(2048))
+                .andExpect(jsonPath("$[0].outcome").value("success"))
+                .andExpect(jsonPath("$[0].id").doesNotExist())
+                .andExpect(jsonPath("$[0].taskId").doesNotExist());
+    }
+
+    @Test
+    void rejectsMissingOrWrongToken() throws Exception {
+        mockMvc.perform(get("/api/admin/tasks/42/stages")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/stages").header("X-Admin-Token", "wrong")).andExpect(status().isForbidden());
+
+        verify(taskStageRepository, never()).findTimeline(any());
+        verify(taskStageRepository, never()).summarizeLatency(any());
+    }
+
+    @Test
+    void endpointsAreHiddenWithoutConfiguredToken() throws Exception {
+        ReflectionTestUtils.setField(controller, "adminToken", "");
+
+        mockMvc.perform(get("/api/admin/tasks/42/stages").header("X-Admin-Token", ""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void validatesLatencyWindow() throws Exception {
+        when(taskStageRepository.summarizeLatency(any())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/admin/stages").param("days", "0").header("X-Admin-Token", TOKEN))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/stages").param("days", "91").header("X-Admin-Token", TOKEN))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/admin/stages").param("days", "30").header("X-Admin-Token", TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+}
@@ -0,0 +1,38 @@
+package com.maslen.youtubelizer.load;
+
+import org.mockito.Mockito;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.AnswerPreCheckoutQuery;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TelegramClient} без сети: каждый вызов Bot API ждёт заданную
+ * задержку и возвращает пустой ответ подходящего типа.
+ */
+final class FakeTelegramClient {
+
+    private FakeTelegramClient() {
+    }
+
+    static TelegramClient create(long latencyMs, AtomicLong calls) {
+        return Mockito.mock(TelegramClient.class, invocation -> {
+            calls.incrementAndGet();
+            Thread.sleep(latencyMs);
+            Class<?> type = invocation.getMethod().getReturnType();
+            Object argument = invocation.getArguments().length > 0 ? invocation.getArgument(0) : null;
+            if (CompletableFuture.class.isAssignableFrom(type)) {
+                return CompletableFuture.completedFuture(new Message());
+            }
+            if (type == Boolean.class || type == boolean.class || argument instanceof AnswerCallbackQuery
+                    || argument instanceof AnswerPreCheckoutQuery || argument instanceof DeleteMessage) {
+                return Boolean.TRUE;
+            }
+            return type.isAssignableFrom(Message.class) ? new Message() : null;
+        });
+    }
+}
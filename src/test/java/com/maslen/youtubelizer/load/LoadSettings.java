@@ -0,0 +1,40 @@
+package com.maslen.youtubelizer.load;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Параметры нагрузочного теста из системных свойств {@code load.*}
+ * (например {@code -Dload.users=5000 -Dload.whisper-ms=2000}).
+ *
+ * @param users        число пользователей, каждый присылает ссылку и выбирает действие
+ * @param videos       число разных видео (повторы дают попадания в кэш и общие задачи)
+ * @param configs      конфигурации планировщика: {@code fair}, {@code fifo}
+ * @param intervalMs   пауза планировщика между задачами
+ * @param audioSeconds длительность «видео» в заглушках
+ */
+record LoadSettings(int users, int videos, List<String> configs, long intervalMs, int audioSeconds, int videoMb,
+        long ytDlpMs, long ffmpegMs, long whisperMs, long llamaMs, long telegramMs, long timeoutMinutes,
+        long seed) {
+
+    static LoadSettings fromSystemProperties() {
+        int users = Integer.getInteger("load.users", 2000);
+        return new LoadSettings(
+                users,
+                Integer.getInteger("load.videos", Math.max(1, users / 3)),
+                Arrays.stream(System.getProperty("load.configs", "fair,fifo").split(","))
+                        .map(String::strip)
+                        .filter(s -> !s.isEmpty())
+                        .toList(),
+                Long.getLong("load.interval-ms", 50),
+                Integer.getInteger("load.audio-seconds", 600),
+                Integer.getInteger("load.video-mb", 8),
+                Long.getLong("load.ytdlp-ms", 100),
+                Long.getLong("load.ffmpeg-ms", 50),
+                Long.getLong("load.whisper-ms", 300),
+                Long.getLong("load.llama-ms", 200),
+                Long.getLong("load.telegram-ms", 30),
+                Long.getLong("load.timeout-minutes", 60),
+                Long.getLong("load.seed", 42));
+    }
+}
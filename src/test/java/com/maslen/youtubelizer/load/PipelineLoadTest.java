@@ -0,0 +1,351 @@
+package com.maslen.youtubelizer.load;
+
+import com.maslen.youtubelizer.bot.YouTubeLizerBot;
+import com.maslen.youtubelizer.model.StageLatency;
+import com.maslen.youtubelizer.repository.TaskStageRepository;
+import com.maslen.youtubelizer.service.TaskSchedulerService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.chat.Chat;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный прогон всего конвейера без YouTube, GPU и Telegram.
+ * <p>
+ * yt-dlp, ffmpeg и whisper-cli заменены shell-заглушками ({@link StubTools}),
+ * llama-server — HTTP-заглушкой, {@link TelegramClient} — фейком с задержкой,
+ * БД — PostgreSQL в Testcontainers. Пользователи по одному проходят через
+ * {@link YouTubeLizerBot#consume(Update)}, как при long polling: ссылка на
+ * видео, затем кнопка действия. Для каждой конфигурации планировщика
+ * печатается пропускная способность, задержка в очереди, перцентили этапов и
+ * расход ресурсов JVM; отчёт также пишется в {@code target/load-test-report.txt}.
+ * <p>
+ * Запуск: {@code mvn -Pload-test test [-Dload.users=5000 -Dload.configs=fair]},
+ * параметры — в {@link LoadSettings}. Без {@code load.users} тест пропускается.
+ */
+@EnabledIfSystemProperty(named = "load.users", matches = "\\d+")
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest
+class PipelineLoadTest {
+
+    /** Доли действий пользователей: видео, аудио, текст, нормализация, ZIP */
+    private static final String[] ACTIONS = { "download_video", "download_audio", "speech_recognition",
+            "normalize_text", "process_all_zip" };
+    private static final int[] ACTION_WEIGHTS = { 30, 20, 25, 15, 10 };
+    private static final String VIDEO_ID_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private static final LoadSettings SETTINGS = LoadSettings.fromSystemProperties();
+    private static final AtomicLong TELEGRAM_CALLS = new AtomicLong();
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static StubTools tools;
+    private static StubLlamaServer llama;
+
+    @Autowired
+    private YouTubeLizerBot bot;
+
+    @Autowired
+    private TaskSchedulerService taskSchedulerService;
+
+    @Autowired
+    private TaskStageRepository taskStageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class FakeTelegramConfig {
+
+        @Bean
+        @Primary
+        TelegramClient fakeTelegramClient() {
+            return FakeTelegramClient.create(SETTINGS.telegramMs(), TELEGRAM_CALLS);
+        }
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        tools = new StubTools(Files.createTempDirectory("load-tools"), SETTINGS);
+        llama = new StubLlamaServer(SETTINGS.llamaMs());
+
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("telegram.bot.token", () -> "load-test");
+        registry.add("telegram.bot.polling-enabled", () -> "false");
+        registry.add("app.ytdlp.path", () -> tools.ytDlp().toString());
+        registry.add("app.ffmpeg.path", () -> tools.ffmpeg().toString());
+        registry.add("app.whisper.path", () -> tools.whisper().toString());
+        registry.add("app.whisper.model.path", () -> tools.whisperModel().toString());
+        registry.add("app.llama.server.host", () -> "127.0.0.1");
+        registry.add("app.llama.server.port", () -> llama.port());
+        registry.add("app.scheduler.interval-ms", SETTINGS::intervalMs);
+        // Admission limits sized for the run, so the report compares scheduling rather than rejections
+        registry.add("app.admission.max-tasks-per-chat",
+                () -> System.getProperty("load.max-tasks-per-chat", "3"));
+        registry.add("app.admission.max-queue-depth",
+                () -> System.getProperty("load.max-queue-depth", String.valueOf(SETTINGS.users() * 5)));
+        registry.add("app.admission.max-wait-minutes",
+                () -> System.getProperty("load.max-wait-minutes", String.valueOf(Integer.MAX_VALUE / 60)));
+        registry.add("app.admission.min-free-disk-mb", () -> "0");
+        registry.add("app.retention.enabled", () -> "false");
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        if (llama != null) {
+            llama.close();
+        }
+    }
+
+    @Test
+    void runSchedulerConfigurations() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format(Locale.ROOT, "Load test: %d users, %d videos, %d s audio, stub latency ms: "
+                + "yt-dlp %d, ffmpeg %d, whisper %d, llama %d, telegram %d, scheduler interval %d ms",
+                SETTINGS.users(), SETTINGS.videos(), SETTINGS.audioSeconds(), SETTINGS.ytDlpMs(),
+                SETTINGS.ffmpegMs(), SETTINGS.whisperMs(), SETTINGS.llamaMs(), SETTINGS.telegramMs(),
+                SETTINGS.intervalMs()));
+
+        for (int run = 0; run < SETTINGS.configs().size(); run++) {
+            String config = SETTINGS.configs().get(run);
+            report.addAll(runConfiguration(config, run));
+        }
+
+        report.forEach(System.out::println);
+        Path reportFile = Paths.get("target", "load-test-report.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.write(reportFile, report);
+    }
+
+    private List<String> runConfiguration(String config, int run) throws Exception {
+        resetDatabase();
+        TaskSchedulerService scheduler = AopTestUtils.getTargetObject(taskSchedulerService);
+        ReflectionTestUtils.setField(scheduler, "fairScheduling", switch (config) {
+            case "fair" -> true;
+            case "fifo" -> false;
+            default -> throw new IllegalArgumentException("Unknown scheduler configuration: " + config);
+        });
+
+        ResourceSampler sampler = new ResourceSampler();
+        long telegramCallsBefore = TELEGRAM_CALLS.get();
+        long llamaCallsBefore = llama.completions();
+        LocalDateTime start = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+
+        // Chat ids differ per run so the fair selector starts without history
+        Random random = new Random(SETTINGS.seed());
+        long chatBase = (run + 1) * 1_000_000L;
+        for (int user = 0; user < SETTINGS.users(); user++) {
+            long chatId = chatBase + user;
+            String videoId = videoId(random.nextInt(SETTINGS.videos()));
+            bot.consume(linkUpdate(chatId, videoId));
+            bot.consume(callbackUpdate(chatId, pickAction(random) + ":" + videoId));
+        }
+        Duration intake = Duration.ofNanos(System.nanoTime() - startNanos);
+
+        boolean drained = awaitDrained(Duration.ofMinutes(SETTINGS.timeoutMinutes()));
+        Duration wall = Duration.ofNanos(System.nanoTime() - startNanos);
+        sampler.close();
+
+        Map<String, Object> counts = jdbcTemplate.queryForMap("""
+                SELECT COUNT(*) AS tasks,
+                       COUNT(*) FILTER (WHERE status = 'COMPLETED') AS completed,
+                       COUNT(*) FILTER (WHERE status = 'FAILED') AS failed
+                FROM download_tasks
+                """);
+        long tasks = ((Number) counts.get("tasks")).longValue();
+        long completed = ((Number) counts.get("completed")).longValue();
+        long failed = ((Number) counts.get("failed")).longValue();
+
+        List<String> lines = new ArrayList<>();
+        lines.add("");
+        lines.add(String.format(Locale.ROOT, "[%s] intake %.1f s (%.1f updates/s), drained %s in %.1f s",
+                config, seconds(intake), 2.0 * SETTINGS.users() / seconds(intake), drained ? "yes" : "NO",
+                seconds(wall)));
+        lines.add(String.format(Locale.ROOT,
+                "[%s] tasks %d: completed %d, failed %d; throughput %.2f tasks/s; telegram calls %d, llama calls %d",
+                config, tasks, completed, failed, (completed + failed) / seconds(wall),
+                TELEGRAM_CALLS.get() - telegramCallsBefore, llama.completions() - llamaCallsBefore));
+        lines.add(String.format(Locale.ROOT,
+                "[%s] JVM: cpu %.1f s (%.0f%% of one core), heap max %d MB, threads max %d, load average %.2f",
+                config, sampler.cpuSeconds(), 100 * sampler.cpuSeconds() / seconds(wall),
+                sampler.maxHeapBytes() / (1024 * 1024), sampler.maxThreads(), sampler.loadAverage()));
+        lines.add(String.format("[%s] %-20s %-14s %8s %10s %10s %10s", config, "task type", "stage", "samples",
+                "p50 ms", "p95 ms", "p99 ms"));
+        for (StageLatency latency : taskStageRepository.summarizeLatency(start)) {
+            lines.add(String.format(Locale.ROOT, "[%s] %-20s %-14s %8d %10.0f %10.0f %10.0f", config,
+                    latency.getTaskType(), latency.getStage(), latency.getSamples(), latency.getP50Ms(),
+                    latency.getP95Ms(), latency.getP99Ms()));
+        }
+
+        assertThat(drained).as("queue drained within %d minutes", SETTINGS.timeoutMinutes()).isTrue();
+        assertThat(completed).isPositive();
+        return lines;
+    }
+
+    private void resetDatabase() {
+        jdbcTemplate.execute("TRUNCATE task_stages, download_tasks, videos, requests, channels CASCADE");
+    }
+
+    private boolean awaitDrained(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            Long active = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM download_tasks WHERE status IN ('PENDING', 'PROCESSING')", Long.class);
+            if (active != null && active == 0) {
+                return true;
+            }
+            Thread.sleep(1000);
+        }
+        return false;
+    }
+
+    private static String pickAction(Random random) {
+        int roll = random.nextInt(100);
+        for (int i = 0; i < ACTIONS.length; i++) {
+            roll -= ACTION_WEIGHTS[i];
+            if (roll < 0) {
+                return ACTIONS[i];
+            }
+        }
+        return ACTIONS[0];
+    }
+
+    /** Детерминированный 11-символьный id видео */
+    private static String videoId(int index) {
+        StringBuilder sb = new StringBuilder("load");
+        long value = index;
+        while (sb.length() < 11) {
+            sb.append(VIDEO_ID_ALPHABET.charAt((int) (value % VIDEO_ID_ALPHABET.length())));
+            value /= VIDEO_ID_ALPHABET.length();
+        }
+        return sb.toString();
+    }
+
+    private static Update linkUpdate(long chatId, String videoId) {
+        Message message = new Message();
+        message.setMessageId(1);
+        message.setChat(new Chat(chatId, "private"));
+        message.setFrom(user(chatId));
+        message.setText("https://www.youtube.com/watch?v=" + videoId);
+        Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+
+    private static Update callbackUpdate(long chatId, String data) {
+        Message message = new Message();
+        message.setMessageId(2);
+        message.setChat(new Chat(chatId, "private"));
+        CallbackQuery callbackQuery = new CallbackQuery();
+        callbackQuery.setId("cb" + chatId);
+        callbackQuery.setFrom(user(chatId));
+        callbackQuery.setMessage(message);
+        callbackQuery.setData(data);
+        Update update = new Update();
+        update.setCallbackQuery(callbackQuery);
+        return update;
+    }
+
+    private static User user(long chatId) {
+        User user = new User(chatId, "user" + chatId, false);
+        user.setLanguageCode(chatId % 3 == 0 ? "ru" : "en");
+        return user;
+    }
+
+    private static double seconds(Duration duration) {
+        return Math.max(duration.toNanos(), 1) / 1e9;
+    }
+
+    /**
+     * Периодически снимает занятую кучу и число потоков; процессорное время
+     * процесса JVM (без процессов-заглушек) считается за весь прогон.
+     */
+    private static final class ResourceSampler implements AutoCloseable {
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        private final long cpuStart = processCpuNanos();
+        private final AtomicLong maxHeap = new AtomicLong();
+        private final AtomicLong maxThreads = new AtomicLong();
+        private long cpuNanos;
+
+        ResourceSampler() {
+            executor.scheduleAtFixedRate(this::sample, 0, 250, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            maxHeap.accumulateAndGet(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), Math::max);
+            maxThreads.accumulateAndGet(ManagementFactory.getThreadMXBean().getThreadCount(), Math::max);
+        }
+
+        private long processCpuNanos() {
+            return os instanceof com.sun.management.OperatingSystemMXBean bean ? bean.getProcessCpuTime() : 0;
+        }
+
+        double cpuSeconds() {
+            return cpuNanos / 1e9;
+        }
+
+        long maxHeapBytes() {
+            return maxHeap.get();
+        }
+
+        long maxThreads() {
+            return maxThreads.get();
+        }
+
+        double loadAverage() {
+            return os.getSystemLoadAverage();
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            sample();
+            cpuNanos = processCpuNanos() - cpuStart;
+        }
+    }
+}
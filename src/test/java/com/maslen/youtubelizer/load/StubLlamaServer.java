@@ -0,0 +1,74 @@
+package com.maslen.youtubelizer.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Заглушка llama-server: {@code /health} и {@code /v1/chat/completions} с
+ * настраиваемой задержкой. LlamaService видит работающий сервер и не
+ * запускает свой процесс.
+ */
+class StubLlamaServer implements AutoCloseable {
+
+    private static final String RESPONSE = """
+            {"id":"chatcmpl-stub","object":"chat.completion","model":"stub",\
+            "choices":[{"index":0,"finish_reason":"stop","message":{"role":"assistant",\
+            "content":"Normalized stub transcript. Every segment is one sentence."}}],\
+            "usage":{"prompt_tokens":900,"completion_tokens":600,"total_tokens":1500}}""";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong completions = new AtomicLong();
+
+    StubLlamaServer(long latencyMs) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/health", exchange -> respond(exchange, "{\"status\":\"ok\"}"));
+        server.createContext("/v1/chat/completions", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.readAllBytes();
+            }
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completions.incrementAndGet();
+            respond(exchange, RESPONSE);
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    long completions() {
+        return completions.get();
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
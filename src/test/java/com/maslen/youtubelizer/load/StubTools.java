@@ -0,0 +1,132 @@
+package com.maslen.youtubelizer.load;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Locale;
+
+/**
+ * Заглушки yt-dlp, ffmpeg и whisper-cli для нагрузочного теста: shell-скрипты
+ * с настраиваемой задержкой, которые понимают аргументы из сервисов
+ * приложения и создают файлы нужного размера (разреженные, через
+ * {@code truncate}). Размер WAV соответствует {@code audioSeconds}, поэтому
+ * длительность аудио считается как у настоящего файла.
+ */
+class StubTools {
+
+    private static final String YT_DLP = """
+            #!/usr/bin/env bash
+            # yt-dlp stub: --dump-json, --print (size probe) and downloads with -o
+            sleep {LATENCY}
+            out=""; ext=mp4; mode=download; url=""
+            while [ $# -gt 0 ]; do
+              case "$1" in
+                -o) out="$2"; shift ;;
+                -f) case "$2" in *worstaudio*) ext=webm ;; esac; shift ;;
+                -x) ext=mp3 ;;
+                --audio-format|--extractor-args|--user-agent|--print) shift ;;
+                --dump-json) mode=info ;;
+                --skip-download) mode=probe ;;
+                -*) ;;
+                *) url="$1" ;;
+              esac
+              shift
+            done
+            id="${url##*=}"
+            case "$mode" in
+              info)
+                echo "{\\"id\\":\\"$id\\",\\"title\\":\\"Load test $id\\",\\"channel_id\\":\\"UCload${id:0:2}\\",\
+            \\"channel\\":\\"Load channel ${id:0:2}\\",\\"channel_url\\":\\"https://www.youtube.com/channel/UCload\\",\
+            \\"description\\":\\"stub\\",\\"channel_follower_count\\":1000,\\"channel_video_count\\":10,\
+            \\"duration\\":{AUDIO_SECONDS}}" ;;
+              probe)
+                echo {VIDEO_BYTES} ;;
+              *)
+                if [ "$ext" = mp4 ]; then size={VIDEO_BYTES}; else size={AUDIO_BYTES}; fi
+                truncate -s "$size" "${out%.%(ext)s}.$ext" ;;
+            esac
+            """;
+
+    private static final String FFMPEG = """
+            #!/usr/bin/env bash
+            # ffmpeg stub: creates the output file (last argument)
+            sleep {LATENCY}
+            for last; do :; done
+            case "$last" in
+              *.wav) truncate -s {WAV_BYTES} "$last" ;;
+              *) truncate -s {AUDIO_BYTES} "$last" ;;
+            esac
+            """;
+
+    private static final String WHISPER = """
+            #!/usr/bin/env bash
+            # whisper-cli stub: language and progress lines plus timestamped segments,
+            # and the same segments as full JSON (-ojf) when -of is given
+            case " $* " in *" --help "*) echo "usage: whisper-cli [options] file0.wav"; exit 0 ;; esac
+            prefix=""
+            while [ $# -gt 0 ]; do
+              case "$1" in -of) prefix="$2"; shift ;; esac
+              shift
+            done
+            sleep {LATENCY}
+            echo "whisper_full_with_state: auto-detected language: en (p = 0.98)"
+            echo "whisper_print_progress_callback: progress =  50%"
+            json=""
+            for i in $(seq 0 $(({SEGMENTS} - 1))); do
+              printf '[00:%02d:%02d.000 --> 00:%02d:%02d.000]   segment %d of the stub transcript, with  spaces\\n' \
+                $((i * 3 / 60)) $((i * 3 % 60)) $(((i * 3 + 3) / 60)) $(((i * 3 + 3) % 60)) "$i"
+              [ -n "$json" ] && json="$json,"
+              json="$json$(printf '{"offsets":{"from":%d,"to":%d},"text":" segment %d of the stub transcript",%s}' \
+                $((i * 3000)) $((i * 3000 + 3000)) "$i" '"tokens":[{"text":" segment","p":0.95}]')"
+            done
+            if [ -n "$prefix" ]; then
+              printf '{"result":{"language":"en"},"transcription":[%s]}\\n' "$json" > "$prefix.json"
+            fi
+            """;
+
+    private static final int WAV_HEADER_BYTES = 44;
+    private static final int WAV_BYTES_PER_SECOND = 32000;
+
+    private final Path dir;
+
+    StubTools(Path dir, LoadSettings settings) throws IOException {
+        this.dir = dir;
+        write("yt-dlp", YT_DLP, settings.ytDlpMs(), settings);
+        write("ffmpeg", FFMPEG, settings.ffmpegMs(), settings);
+        write("whisper-cli", WHISPER, settings.whisperMs(), settings);
+        // WhisperService only checks that the model exists and is not empty
+        Files.writeString(dir.resolve("ggml-stub.bin"), "stub");
+    }
+
+    Path ytDlp() {
+        return dir.resolve("yt-dlp");
+    }
+
+    Path ffmpeg() {
+        return dir.resolve("ffmpeg");
+    }
+
+    Path whisper() {
+        return dir.resolve("whisper-cli");
+    }
+
+    Path whisperModel() {
+        return dir.resolve("ggml-stub.bin");
+    }
+
+    private void write(String name, String template, long latencyMs, LoadSettings settings) throws IOException {
+        String script = template
+                .replace("{LATENCY}", String.format(Locale.ROOT, "%.3f", latencyMs / 1000.0))
+                .replace("{AUDIO_SECONDS}", String.valueOf(settings.audioSeconds()))
+                .replace("{VIDEO_BYTES}", String.valueOf(settings.videoMb() * 1024L * 1024))
+                .replace("{AUDIO_BYTES}", String.valueOf(settings.audioSeconds() * 16_000L))
+                .replace("{WAV_BYTES}",
+                        String.valueOf(WAV_HEADER_BYTES + (long) settings.audioSeconds() * WAV_BYTES_PER_SECOND))
+                .replace("{SEGMENTS}", String.valueOf(Math.max(1, settings.audioSeconds() / 3)));
+        Path file = dir.resolve(name);
+        Files.writeString(file, script, StandardCharsets.UTF_8);
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+}
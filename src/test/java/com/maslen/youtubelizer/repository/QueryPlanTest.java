@@ -0,0 +1,289 @@
+package com.maslen.youtubelizer.repository;
+
+import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.service.RetentionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет, что горячие запросы планировщика и поиска запросов по video_id
+ * используют индексы из миграций, а не последовательное сканирование.
+ * Схема создаётся миграциями Flyway на наборе в 200 тыс. задач и запросов;
+ * запросы за месяц должны читать только его партицию {@code requests}.
+ * <p>
+ * Планы строятся для SQL, который на самом деле отправляют репозитории и
+ * {@link RetentionService}: источник данных перехватывает подготовленные
+ * выражения вместе с параметрами, а тест выполняет для них
+ * {@code PREPARE}/{@code EXPLAIN EXECUTE}.
+ */
+// Keep the seeded tasks: maintenance must not delete anything here
+@DataJpaTest(properties = "app.retention.tasks-days=36500")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ RetentionService.class, QueryPlanTest.CapturingDataSourceConfig.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class QueryPlanTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final List<CapturedStatement> CAPTURED = new CopyOnWriteArrayList<>();
+    private static volatile boolean capturing;
+    private static boolean seeded;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private DownloadTaskRepository downloadTaskRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        if (!seeded) {
+            // Flyway has already migrated the schema when the context started
+            jdbcTemplate.execute("""
+                    INSERT INTO download_tasks (chat_id, video_id, type, status, created_at, updated_at)
+                    SELECT g % 5000, 'vid' || g, 'VIDEO',
+                           CASE WHEN g % 200 = 0 THEN 'PENDING'
+                                WHEN g % 500 = 1 THEN 'PROCESSING'
+                                WHEN g % 50 = 2 THEN 'FAILED'
+                                ELSE 'COMPLETED' END,
+                           now() - g * interval '1 minute', now() - g * interval '1 minute'
+                    FROM generate_series(1, 200000) g
+                    """);
+            jdbcTemplate.execute("""
+                    INSERT INTO requests (user_id, user_name, message_text, is_valid_link, video_id, created_at)
+                    SELECT g % 1000, 'user' || (g % 1000), 'https://youtu.be/vid' || (g % 50000), true,
+                           'vid' || (g % 50000), now() - g * interval '1 minute'
+                    FROM generate_series(1, 200000) g
+                    """);
+            jdbcTemplate.execute("ANALYZE");
+            seeded = true;
+        }
+        CAPTURED.clear();
+    }
+
+    @Test
+    void pendingCandidatesUsePartialIndex() throws SQLException {
+        String plan = explain(() -> downloadTaskRepository.findPendingCandidates(Limit.of(200)), "download_tasks");
+
+        assertThat(plan).contains("idx_download_tasks_pending_priority").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void stuckProcessingTasksUsePartialIndex() throws SQLException {
+        String plan = explain(() -> downloadTaskRepository.findStuckProcessing(LocalDateTime.now().minusHours(1)),
+                "download_tasks");
+
+        assertThat(plan).contains("idx_download_tasks_processing_updated").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void requestsByVideoIdUseIndex() throws SQLException {
+        String plan = explain(() -> requestRepository.findAllByVideoId("vid42"), "requests");
+
+        assertThat(plan).contains("idx_requests_video_id").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void recentRequestsTouchOnlyCurrentPartition() throws SQLException {
+        // The daily summary reads the last few days of requests; the maintenance run issues that statement
+        String plan = explain(() -> retentionService.maintain(), "request_daily_stats");
+
+        YearMonth month = YearMonth.now(ZoneOffset.UTC);
+        assertThat(plan).contains("requests_" + month.format(DateTimeFormatter.ofPattern("yyyy_MM")))
+                .doesNotContain("requests_default");
+    }
+
+    @Test
+    void taskByVideoIdAndTypeUsesUniqueIndex() throws SQLException {
+        String plan = explain(() -> downloadTaskRepository.findByVideoIdAndType("vid42", TaskType.VIDEO),
+                "download_tasks");
+
+        assertThat(plan).contains("Index Scan").doesNotContain("Seq Scan");
+    }
+
+    /**
+     * Выполняет {@code action}, берёт последнее перехваченное выражение,
+     * упоминающее {@code table}, и возвращает его план с теми же параметрами.
+     */
+    private static String explain(Runnable action, String table) throws SQLException {
+        capturing = true;
+        try {
+            action.run();
+        } finally {
+            capturing = false;
+        }
+        CapturedStatement captured = null;
+        for (CapturedStatement statement : CAPTURED) {
+            if (statement.sql().toLowerCase().contains(table)) {
+                captured = statement;
+            }
+        }
+        assertThat(captured).as("statement on %s, captured: %s", table, CAPTURED).isNotNull();
+
+        StringBuilder plan = new StringBuilder();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("PREPARE captured AS " + captured.numberedSql());
+            try (ResultSet rs = statement.executeQuery("EXPLAIN EXECUTE captured" + captured.arguments())) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+        }
+        return plan.toString();
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+    /** Подготовленное выражение и привязанные к нему параметры по номерам */
+    record CapturedStatement(String sql, Map<Integer, Object> parameters) {
+
+        /** JDBC-плейсхолдеры {@code ?} в виде {@code $1, $2, ...} для PREPARE */
+        String numberedSql() {
+            StringBuilder numbered = new StringBuilder();
+            int index = 0;
+            for (char c : sql.toCharArray()) {
+                if (c == '?') {
+                    numbered.append('$').append(++index);
+                } else {
+                    numbered.append(c);
+                }
+            }
+            return numbered.toString();
+        }
+
+        /** Параметры строковыми литералами: тип выводит PREPARE */
+        String arguments() {
+            if (parameters.isEmpty()) {
+                return "";
+            }
+            return parameters.values().stream()
+                    .map(value -> value == null ? "NULL" : "'" + value.toString().replace("'", "''") + "'")
+                    .collect(Collectors.joining(", ", "(", ")"));
+        }
+    }
+
+    @TestConfiguration
+    static class CapturingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof CapturingDataSource)
+                            ? new CapturingDataSource(dataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+
+    /** Источник данных, запоминающий выполненные подготовленные выражения */
+    static class CapturingDataSource extends DelegatingDataSource {
+
+        CapturingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return capture(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return capture(super.getConnection(username, password));
+        }
+
+        private static Connection capture(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                            return capture((PreparedStatement) result, sql);
+                        }
+                        return result;
+                    });
+        }
+
+        private static PreparedStatement capture(PreparedStatement statement, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2
+                                && args[0] instanceof Integer index) {
+                            parameters.put(index, name.equals("setNull") ? null : args[1]);
+                        } else if (name.startsWith("execute") && (args == null || args.length == 0) && capturing) {
+                            CAPTURED.add(new CapturedStatement(sql, new TreeMap<>(parameters)));
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.AdmissionDecision;
+import com.maslen.youtubelizer.model.QueueLoad;
+import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.repository.DownloadTaskRepository;
+import com.maslen.youtubelizer.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.maslen.youtubelizer.service.TaskCostEstimator.PRIORITY_CACHED;
+import static com.maslen.youtubelizer.service.TaskCostEstimator.PRIORITY_NORMAL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlServiceTest {
+
+    private static final long HEAVY_CHAT = 1L;
+    private static final long NEW_CHAT = 2L;
+
+    private final DownloadTaskRepository downloadTaskRepository = mock(DownloadTaskRepository.class);
+    private AdmissionControlService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AdmissionControlService(downloadTaskRepository,
+                new TaskCostEstimator(mock(VideoRepository.class), mock(PipelineMetrics.class)),
+                mock(PipelineMetrics.class));
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "maxTasksPerChat", 3);
+        ReflectionTestUtils.setField(service, "maxQueueDepth", 100);
+        ReflectionTestUtils.setField(service, "maxWaitMinutes", 120);
+        ReflectionTestUtils.setField(service, "downloadPath", System.getProperty("java.io.tmpdir"));
+    }
+
+    @Test
+    void otherChatDelaysNewChatByOneTask() {
+        List<QueueLoad> pending = List.of(load(HEAVY_CHAT, PRIORITY_NORMAL, 10, 1000));
+
+        assertThat(service.estimateWaitSeconds(NEW_CHAT, PRIORITY_NORMAL, pending)).isEqualTo(100);
+        // The heavy chat waits for its whole queue
+        assertThat(service.estimateWaitSeconds(HEAVY_CHAT, PRIORITY_NORMAL, pending)).isEqualTo(1000);
+    }
+
+    @Test
+    void ownQueueCountsInFullAndWidensOtherChatsShare() {
+        List<QueueLoad> pending = List.of(
+                load(HEAVY_CHAT, PRIORITY_NORMAL, 10, 1000),
+                load(NEW_CHAT, PRIORITY_NORMAL, 2, 200),
+                load(3L, PRIORITY_NORMAL, 1, 50));
+
+        // 200 own + min(1000, 200 + 100) + min(50, 200 + 50)
+        assertThat(service.estimateWaitSeconds(NEW_CHAT, PRIORITY_NORMAL, pending)).isEqualTo(550);
+    }
+
+    @Test
+    void higherPriorityGoesFirstAndLowerIsIgnored() {
+        List<QueueLoad> pending = List.of(
+                load(HEAVY_CHAT, PRIORITY_CACHED, 5, 10),
+                load(HEAVY_CHAT, PRIORITY_NORMAL, 10, 1000));
+
+        assertThat(service.estimateWaitSeconds(NEW_CHAT, PRIORITY_NORMAL, pending)).isEqualTo(110);
+        assertThat(service.estimateWaitSeconds(NEW_CHAT, PRIORITY_CACHED, pending)).isEqualTo(2);
+    }
+
+    @Test
+    void unestimatedTasksUseDefaultAndProcessingAddsItsRemainder() {
+        DownloadTask running = task(HEAVY_CHAT, PRIORITY_NORMAL);
+        running.setEstimatedSeconds(100);
+        running.setStartedAt(LocalDateTime.now().minusSeconds(30));
+        when(downloadTaskRepository.findProcessing()).thenReturn(List.of(running));
+        int defaultSeconds = TaskCostEstimator.estimateSeconds(TaskType.VIDEO, 600);
+
+        long wait = service.estimateWaitSeconds(NEW_CHAT, PRIORITY_NORMAL,
+                List.of(new QueueLoad(HEAVY_CHAT, PRIORITY_NORMAL, TaskType.VIDEO, 1, 0, null)));
+
+        assertThat(wait).isBetween(defaultSeconds + 69L, defaultSeconds + 70L);
+    }
+
+    @Test
+    void longQueueOfOneChatDoesNotRejectOthers() {
+        // 30 tasks of 10 minutes: five hours in total, over the two-hour limit
+        when(downloadTaskRepository.summarizePending())
+                .thenReturn(List.of(load(HEAVY_CHAT, PRIORITY_NORMAL, 30, 30 * 600)));
+
+        AdmissionDecision newChat = service.admit(task(NEW_CHAT, PRIORITY_NORMAL));
+        AdmissionDecision heavyChat = service.admit(task(HEAVY_CHAT, PRIORITY_NORMAL));
+
+        assertThat(newChat.admitted()).isTrue();
+        assertThat(newChat.waitSeconds()).isEqualTo(600);
+        assertThat(heavyChat.admitted()).isFalse();
+        assertThat(heavyChat.reason()).isEqualTo(AdmissionDecision.Reason.QUEUE_FULL);
+    }
+
+    @Test
+    void cachedTasksAreAlwaysAdmitted() {
+        when(downloadTaskRepository.countActiveByChatId(any())).thenReturn(10L);
+
+        assertThat(service.admit(task(HEAVY_CHAT, PRIORITY_CACHED)).admitted()).isTrue();
+    }
+
+    private static QueueLoad load(long chatId, int priority, long tasks, long seconds) {
+        return new QueueLoad(chatId, priority, TaskType.VIDEO, tasks, tasks, seconds);
+    }
+
+    private static DownloadTask task(long chatId, int priority) {
+        DownloadTask task = new DownloadTask();
+        task.setChatId(chatId);
+        task.setPriority(priority);
+        task.setType(TaskType.VIDEO);
+        task.setVideoId("abc");
+        return task;
+    }
+}
@@ -0,0 +1,100 @@
+package com.maslen.youtubelizer.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownloadLinkServiceTest {
+
+    @TempDir
+    Path workDir;
+
+    private DownloadLinkService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DownloadLinkService();
+        ReflectionTestUtils.setField(service, "publicBaseUrl", "https://bot.example.com/");
+        ReflectionTestUtils.setField(service, "linkSecret", "test-secret");
+        ReflectionTestUtils.setField(service, "linkTtlHours", 24L);
+        ReflectionTestUtils.setField(service, "storagePath", workDir.resolve("public").toString());
+        ReflectionTestUtils.invokeMethod(service, "initialize");
+    }
+
+    @Test
+    void signedLinkResolvesToPublishedFile() throws Exception {
+        Link link = publish("video file.mp4");
+
+        assertThat(service.resolve(link.id(), link.fileName(), link.expires(), link.signature()))
+                .hasValueSatisfying(path -> assertThat(path).hasFileName("video file.mp4").exists());
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() throws Exception {
+        Link link = publish("video.mp4");
+        char last = link.signature().charAt(link.signature().length() - 1);
+        String tampered = link.signature().substring(0, link.signature().length() - 1) + (last == '0' ? '1' : '0');
+
+        assertThat(service.resolve(link.id(), link.fileName(), link.expires(), tampered)).isEmpty();
+        assertThat(service.resolve(link.id(), link.fileName(), link.expires(), null)).isEmpty();
+        // Extending the expiry invalidates the signature
+        assertThat(service.resolve(link.id(), link.fileName(), link.expires() + 3600, link.signature())).isEmpty();
+    }
+
+    @Test
+    void expiredLinkIsRejected() throws Exception {
+        Link link = publish("video.mp4");
+        long expired = Instant.now().getEpochSecond() - 1;
+
+        assertThat(service.resolve(link.id(), link.fileName(), expired, sign(link.id(), link.fileName(), expired)))
+                .isEmpty();
+    }
+
+    @Test
+    void pathTraversalIsRejectedEvenWithValidSignature() throws Exception {
+        Link link = publish("video.mp4");
+        Files.writeString(workDir.resolve("public").resolve("secret.txt"), "secret");
+        long expires = link.expires();
+
+        String name = "../secret.txt";
+        assertThat(service.resolve(link.id(), name, expires, sign(link.id(), name, expires))).isEmpty();
+        String encoded = "..%2Fsecret.txt";
+        assertThat(service.resolve(link.id(), encoded, expires, sign(link.id(), encoded, expires))).isEmpty();
+        String id = "../" + link.id().substring(3);
+        assertThat(service.resolve(id, "secret.txt", expires, sign(id, "secret.txt", expires))).isEmpty();
+    }
+
+    private Link publish(String fileName) throws Exception {
+        Path file = Files.writeString(workDir.resolve(fileName), "content");
+        URI uri = URI.create(service.publish(file.toFile()));
+        assertThat(file).doesNotExist();
+
+        String[] path = uri.getRawPath().split("/");
+        Map<String, String> query = new HashMap<>();
+        for (String parameter : uri.getRawQuery().split("&")) {
+            String[] pair = parameter.split("=", 2);
+            query.put(pair[0], pair[1]);
+        }
+        return new Link(path[2], URLDecoder.decode(path[3], StandardCharsets.UTF_8),
+                Long.parseLong(query.get("expires")), query.get("signature"));
+    }
+
+    private String sign(String id, String fileName, long expires) {
+        return ReflectionTestUtils.invokeMethod(service, "sign", id, fileName, expires);
+    }
+
+    private record Link(String id, String fileName, long expires, String signature) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.maslen.youtubelizer.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExternalServerPoolTest {
+
+    private static final ExternalServerPool.Settings SETTINGS = new ExternalServerPool.Settings(
+            Duration.ofSeconds(5), Duration.ofSeconds(10), 2, Duration.ofMillis(200), Duration.ofSeconds(1));
+
+    /** Период здоровья заведомо длиннее жизни падающего сервера в тестах перезапуска */
+    private static final ExternalServerPool.Settings FAST_SETTINGS = new ExternalServerPool.Settings(
+            Duration.ofSeconds(2), Duration.ofSeconds(5), 2, Duration.ofMillis(100), Duration.ofMillis(1600));
+    private static final long TICK_MILLIS = 20;
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private ExternalServerPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.stop();
+        }
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void routesToLeastLoadedRunningInstance() throws Exception {
+        int first = startHealthyServer();
+        int second = startHealthyServer();
+        pool = new ExternalServerPool("llama", "127.0.0.1", List.of(first, second), port -> {
+            throw new IOException("servers are already running");
+        }, SETTINGS, new PipelineMetrics(new SimpleMeterRegistry()));
+
+        ExternalServerPool.Lease a = pool.acquire(Duration.ofSeconds(10));
+        awaitHealthy(2);
+        ExternalServerPool.Lease b = pool.acquire(Duration.ofSeconds(1));
+        assertThat(b.baseUrl()).isNotEqualTo(a.baseUrl());
+
+        a.close();
+        try (ExternalServerPool.Lease c = pool.acquire(Duration.ofSeconds(1))) {
+            assertThat(c.baseUrl()).isEqualTo(a.baseUrl());
+        }
+        b.close();
+    }
+
+    @Test
+    void failsWhenNoInstanceGetsReady() throws Exception {
+        pool = new ExternalServerPool("llama", "127.0.0.1", List.of(freePort()), p -> {
+            throw new IOException("Binary not found");
+        }, SETTINGS, new PipelineMetrics(new SimpleMeterRegistry()));
+
+        assertThatThrownBy(() -> pool.acquire(Duration.ofMillis(1500)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not ready");
+        assertThat(pool.healthyInstances()).isZero();
+    }
+
+    @Test
+    void restartsProcessThatExits() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AtomicInteger launches = new AtomicInteger();
+        pool = new ExternalServerPool("llama", "127.0.0.1", List.of(freePort()), port -> {
+            launches.incrementAndGet();
+            return List.of("sh", "-c", "exit 3");
+        }, FAST_SETTINGS, new PipelineMetrics(registry), TICK_MILLIS);
+
+        pool.start();
+        awaitCondition(() -> launches.get() >= 3);
+
+        assertThat(registry.counter("youtubelizer.server.restarts", "tool", "llama", "reason", "exited").count())
+                .isGreaterThanOrEqualTo(2);
+        assertThat(pool.healthyInstances()).isZero();
+    }
+
+    @Test
+    void backoffKeepsGrowingWhenServerDiesRightAfterStartingUp() throws Exception {
+        // Each launch is healthy for ~250 ms, well under the health interval, then the process exits
+        int port = freePort();
+        List<Long> launchTimes = new CopyOnWriteArrayList<>();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            pool = new ExternalServerPool("llama", "127.0.0.1", List.of(port), p -> {
+                launchTimes.add(System.nanoTime());
+                HttpServer server = startHealthyServer(p);
+                timer.schedule(() -> server.stop(0), 250, TimeUnit.MILLISECONDS);
+                return List.of("sleep", "0.3");
+            }, FAST_SETTINGS, new PipelineMetrics(new SimpleMeterRegistry()), TICK_MILLIS);
+
+            pool.start();
+            awaitCondition(() -> launchTimes.size() >= 5);
+        } finally {
+            timer.shutdownNow();
+        }
+
+        // Backoff 100 ms before the second launch and 800 ms before the fifth on top of the same lifetime;
+        // had the first healthy probe forgiven the restarts, every gap would carry 100 ms
+        long firstGap = TimeUnit.NANOSECONDS.toMillis(launchTimes.get(1) - launchTimes.get(0));
+        long lastGap = TimeUnit.NANOSECONDS.toMillis(launchTimes.get(4) - launchTimes.get(3));
+        assertThat(lastGap - firstGap).isGreaterThan(400);
+    }
+
+    @Test
+    void backoffDoublesUpToLimit() {
+        assertThat(ExternalServerPool.backoffMillis(FAST_SETTINGS, 0)).isEqualTo(100);
+        assertThat(ExternalServerPool.backoffMillis(FAST_SETTINGS, 1)).isEqualTo(200);
+        assertThat(ExternalServerPool.backoffMillis(FAST_SETTINGS, 3)).isEqualTo(800);
+        assertThat(ExternalServerPool.backoffMillis(FAST_SETTINGS, 5)).isEqualTo(1600);
+        assertThat(ExternalServerPool.backoffMillis(FAST_SETTINGS, 100)).isEqualTo(1600);
+    }
+
+    private int startHealthyServer() throws IOException {
+        return startHealthyServer(0).getAddress().getPort();
+    }
+
+    private HttpServer startHealthyServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/health", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+        return server;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private void awaitHealthy(int instances) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (pool.healthyInstances() < instances && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(pool.healthyInstances()).isEqualTo(instances);
+    }
+}
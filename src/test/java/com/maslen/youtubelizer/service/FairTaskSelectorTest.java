@@ -0,0 +1,92 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FairTaskSelectorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private final FairTaskSelector selector = new FairTaskSelector(DownloadTask::getEstimatedSeconds);
+
+    @Test
+    void returnsNullWithoutCandidates() {
+        assertThat(selector.select(List.of())).isNull();
+    }
+
+    @Test
+    void cachedTaskJumpsTheQueue() {
+        List<DownloadTask> queue = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            queue.add(task(1, "heavy" + i, TaskCostEstimator.PRIORITY_NORMAL, 2400, i));
+        }
+        DownloadTask cached = task(2, "cached", TaskCostEstimator.PRIORITY_CACHED, 2, 100);
+        queue.add(cached);
+
+        assertThat(selector.select(queue)).isSameAs(cached);
+    }
+
+    @Test
+    void heavyUserDoesNotStarveOthers() {
+        List<DownloadTask> queue = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            queue.add(task(1, "heavy" + i, TaskCostEstimator.PRIORITY_NORMAL, 2400, i));
+        }
+        queue.add(task(2, "light0", TaskCostEstimator.PRIORITY_NORMAL, 300, 100));
+        queue.add(task(2, "light1", TaskCostEstimator.PRIORITY_NORMAL, 300, 101));
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DownloadTask next = selector.select(queue);
+            queue.remove(next);
+            order.add(next.getVideoId());
+        }
+
+        // Queued later, the light chat still waits behind at most one heavy task
+        assertThat(order).containsExactly("light0", "heavy0", "light1");
+    }
+
+    @Test
+    void alternatesBetweenChatsInProportionToCost() {
+        List<DownloadTask> queue = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            queue.add(task(1, "a" + i, TaskCostEstimator.PRIORITY_NORMAL, 100, i));
+            queue.add(task(2, "b" + i, TaskCostEstimator.PRIORITY_NORMAL, 100, 10 + i));
+        }
+
+        List<Long> chats = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            DownloadTask next = selector.select(queue);
+            queue.remove(next);
+            chats.add(next.getChatId());
+        }
+
+        assertThat(chats).containsExactly(1L, 2L, 1L, 2L, 1L, 2L, 1L, 2L);
+    }
+
+    @Test
+    void picksShortestJobWithinChat() {
+        DownloadTask longTask = task(1, "long", TaskCostEstimator.PRIORITY_NORMAL, 2000, 0);
+        DownloadTask shortTask = task(1, "short", TaskCostEstimator.PRIORITY_NORMAL, 60, 5);
+
+        assertThat(selector.select(List.of(longTask, shortTask))).isSameAs(shortTask);
+    }
+
+    private static DownloadTask task(long chatId, String videoId, int priority, int seconds, int order) {
+        DownloadTask task = new DownloadTask();
+        task.setChatId(chatId);
+        task.setVideoId(videoId);
+        task.setType(TaskType.FULL_PROCESSING_ZIP);
+        task.setPriority(priority);
+        task.setEstimatedSeconds(seconds);
+        task.setCreatedAt(NOW.minusMinutes(1000 - order));
+        return task;
+    }
+}
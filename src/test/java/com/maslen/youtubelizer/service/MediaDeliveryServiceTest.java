@@ -0,0 +1,75 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MediaDeliveryServiceTest {
+
+    private static final long LIMIT = 50L * 1024 * 1024;
+    private static final String URL = "https://www.youtube.com/watch?v=abc";
+
+    private final YtDlpService ytDlpService = mock(YtDlpService.class);
+    private final DownloadLinkService downloadLinkService = mock(DownloadLinkService.class);
+    private final MessageService messageService = mock(MessageService.class);
+    private MediaDeliveryService service;
+    private DownloadTask task;
+
+    @BeforeEach
+    void setUp() {
+        when(messageService.getMessage("delivery.too_large", "en")).thenReturn("File is too large (%d MB)");
+        service = new MediaDeliveryService(ytDlpService, downloadLinkService,
+                mock(TelegramNotificationService.class), messageService, mock(TaskStageRecorder.class), LIMIT);
+        task = new DownloadTask();
+        task.setVideoId("abc");
+        task.setLanguageCode("en");
+    }
+
+    @Test
+    void audioOverLimitFailsBeforeDownload() throws Exception {
+        when(ytDlpService.estimateSize(URL, YtDlpService.DEFAULT_AUDIO_FORMAT)).thenReturn(80L * 1024 * 1024);
+
+        assertThatThrownBy(() -> service.checkAudioSize(task, URL))
+                .isInstanceOf(IOException.class)
+                .hasMessage("File is too large (80 MB)");
+    }
+
+    @Test
+    void audioCheckIsSkippedWhenLinksAreEnabledOrSizeIsUnknown() throws Exception {
+        when(ytDlpService.estimateSize(URL, YtDlpService.DEFAULT_AUDIO_FORMAT)).thenReturn(-1L);
+        assertThatCode(() -> service.checkAudioSize(task, URL)).doesNotThrowAnyException();
+
+        when(ytDlpService.estimateSize(URL, YtDlpService.DEFAULT_AUDIO_FORMAT)).thenThrow(new IOException("offline"));
+        assertThatCode(() -> service.checkAudioSize(task, URL)).doesNotThrowAnyException();
+
+        when(downloadLinkService.isEnabled()).thenReturn(true);
+        assertThatCode(() -> service.checkAudioSize(task, URL)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void videoFailsWithSmallestEstimateWhenNoFormatFits() throws Exception {
+        when(ytDlpService.estimateSize(anyString(), anyString())).thenAnswer(invocation -> {
+            String format = invocation.getArgument(1);
+            if (format.equals(YtDlpService.DEFAULT_VIDEO_FORMAT)) {
+                return 900L * 1024 * 1024;
+            }
+            return format.contains("height<=360") ? 120L * 1024 * 1024 : 400L * 1024 * 1024;
+        });
+
+        assertThatThrownBy(() -> service.chooseVideoFormat(task, URL, 1.0))
+                .isInstanceOf(IOException.class)
+                .hasMessage("File is too large (120 MB)");
+        verify(ytDlpService, never()).downloadVideo(anyString(), any(), anyString(), anyString());
+    }
+}
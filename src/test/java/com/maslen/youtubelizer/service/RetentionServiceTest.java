@@ -0,0 +1,25 @@
+package com.maslen.youtubelizer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetentionServiceTest {
+
+    @Test
+    void parsesMonthFromPartitionName() {
+        assertThat(RetentionService.partitionMonth("requests_2026_03")).isEqualTo(YearMonth.of(2026, 3));
+        assertThat(RetentionService.partitionMonth("requests_1999_12")).isEqualTo(YearMonth.of(1999, 12));
+    }
+
+    @Test
+    void ignoresDefaultAndForeignPartitions() {
+        assertThat(RetentionService.partitionMonth("requests_default")).isNull();
+        assertThat(RetentionService.partitionMonth("requests_2026_13")).isNull();
+        assertThat(RetentionService.partitionMonth("requests_2026_3")).isNull();
+        assertThat(RetentionService.partitionMonth("requests_partitioned_2026_03")).isNull();
+        assertThat(RetentionService.partitionMonth("download_tasks_2026_03")).isNull();
+    }
+}
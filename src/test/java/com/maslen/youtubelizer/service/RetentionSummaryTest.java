@@ -0,0 +1,130 @@
+package com.maslen.youtubelizer.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сводки и партиции {@link RetentionService} на схеме из миграций Flyway.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RetentionSummaryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private RetentionService retentionService;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(),
+                POSTGRES.getPassword()));
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE download_tasks, task_daily_stats CASCADE");
+        retentionService = new RetentionService(jdbcTemplate);
+        ReflectionTestUtils.setField(retentionService, "enabled", true);
+        ReflectionTestUtils.setField(retentionService, "requestsMonths", 12);
+        ReflectionTestUtils.setField(retentionService, "tasksDays", 90);
+    }
+
+    @Test
+    void restartedTaskIsCountedOnce() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDateTime created = today.minusDays(2).atTime(10, 0);
+        long id = insertTask("vid1", "COMPLETED", created, created.plusMinutes(5));
+        retentionService.summarizeTasks(today.minusDays(3), today);
+
+        // Next day the same row is restarted and fails
+        LocalDateTime rerun = today.atTime(9, 0);
+        jdbcTemplate.update("UPDATE download_tasks SET status = 'FAILED', updated_at = ?, completed_at = ? WHERE id = ?",
+                rerun, rerun, id);
+        retentionService.summarizeTasks(today.minusDays(2), today.plusDays(1));
+
+        assertThat(totalTaskCount()).isEqualTo(1);
+        assertThat(taskCount(today.minusDays(2), "FAILED")).isEqualTo(1);
+    }
+
+    @Test
+    void deletingOldTasksKeepsTheirSummary() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDateTime old = today.minusDays(120).atTime(12, 0);
+        insertTask("vid1", "COMPLETED", old, old);
+        insertTask("vid2", "FAILED", old, old);
+        // Created long ago but restarted recently: stays, and must not shrink the summary of its day
+        insertTask("vid3", "COMPLETED", old, today.minusDays(1).atTime(12, 0));
+        retentionService.summarizeTasks(today.minusDays(121), today.minusDays(119));
+
+        retentionService.deleteOldTasks(today.minusDays(90));
+        retentionService.deleteOldTasks(today.minusDays(89));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM download_tasks", Long.class)).isEqualTo(1);
+        assertThat(taskCount(old.toLocalDate(), "COMPLETED")).isEqualTo(2);
+        assertThat(taskCount(old.toLocalDate(), "FAILED")).isEqualTo(1);
+    }
+
+    @Test
+    void deletingOldTasksSummarizesDaysThatWereNeverSummarized() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDateTime old = today.minusDays(200).atTime(12, 0);
+        insertTask("vid1", "COMPLETED", old, old);
+
+        retentionService.deleteOldTasks(today.minusDays(90));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM download_tasks", Long.class)).isZero();
+        assertThat(taskCount(old.toLocalDate(), "COMPLETED")).isEqualTo(1);
+    }
+
+    @Test
+    void maintenanceCreatesUpcomingPartitions() {
+        retentionService.maintain();
+
+        YearMonth month = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= 2; i++) {
+            String partition = "requests_" + month.plusMonths(i).format(DateTimeFormatter.ofPattern("yyyy_MM"));
+            assertThat(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition))
+                    .as(partition)
+                    .isTrue();
+        }
+    }
+
+    private static long insertTask(String videoId, String status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO download_tasks (chat_id, video_id, type, status, created_at, updated_at, completed_at)
+                VALUES (1, ?, 'VIDEO', ?, ?, ?, ?) RETURNING id
+                """, Long.class, videoId, status, createdAt, updatedAt, updatedAt);
+    }
+
+    private static long taskCount(LocalDate day, String status) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT SUM(task_count) FROM task_daily_stats WHERE day = ? AND status = ?", Long.class, day, status);
+        return count != null ? count : 0;
+    }
+
+    private static long totalTaskCount() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(task_count), 0) FROM task_daily_stats", Long.class);
+    }
+}
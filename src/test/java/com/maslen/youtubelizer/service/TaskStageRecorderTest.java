@@ -0,0 +1,113 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.entity.TaskStage;
+import com.maslen.youtubelizer.model.TaskStageName;
+import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.repository.TaskStageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskStageRecorderTest {
+
+    private final TaskStageRepository taskStageRepository = mock(TaskStageRepository.class);
+    private TaskStageRecorder recorder;
+    private DownloadTask task;
+
+    @BeforeEach
+    void setUp() {
+        recorder = new TaskStageRecorder(taskStageRepository);
+        ReflectionTestUtils.setField(recorder, "enabled", true);
+        task = new DownloadTask();
+        task.setId(7L);
+        task.setType(TaskType.AUDIO);
+    }
+
+    @Test
+    void recordsSuccessfulStageWithItsVolume() throws Exception {
+        String result = recorder.record(task, TaskStageName.DOWNLOAD, stage -> {
+            stage.bytes(1024);
+            stage.audioSeconds(60);
+            return "file";
+        });
+
+        assertThat(result).isEqualTo("file");
+        TaskStage row = savedStage();
+        assertThat(row.getTaskId()).isEqualTo(7L);
+        assertThat(row.getTaskType()).isEqualTo(TaskType.AUDIO);
+        assertThat(row.getStage()).isEqualTo(TaskStageName.DOWNLOAD);
+        assertThat(row.getOutcome()).isEqualTo(PipelineMetrics.OUTCOME_SUCCESS);
+        assertThat(row.getBytes()).isEqualTo(1024L);
+        assertThat(row.getAudioSeconds()).isEqualTo(60);
+        assertThat(row.getTokens()).isNull();
+        assertThat(row.getFinishedAt()).isAfterOrEqualTo(row.getStartedAt());
+        assertThat(row.getDurationMs()).isNotNegative();
+    }
+
+    @Test
+    void recordsFailedAndInterruptedStages() {
+        assertThatThrownBy(() -> recorder.record(task, TaskStageName.CONVERSION, stage -> {
+            throw new IOException("ffmpeg failed");
+        })).isInstanceOf(IOException.class);
+        assertThat(savedStage().getOutcome()).isEqualTo(PipelineMetrics.OUTCOME_FAILURE);
+
+        assertThatThrownBy(() -> recorder.record(task, TaskStageName.TRANSCRIPTION, stage -> {
+            throw new InterruptedException();
+        })).isInstanceOf(InterruptedException.class);
+        assertThat(savedStage().getOutcome()).isEqualTo(PipelineMetrics.OUTCOME_INTERRUPTED);
+    }
+
+    @Test
+    void recordsQueueWait() {
+        LocalDateTime queuedAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+        recorder.recordQueued(task, queuedAt, queuedAt.plusSeconds(90));
+
+        TaskStage row = savedStage();
+        assertThat(row.getStage()).isEqualTo(TaskStageName.QUEUE);
+        assertThat(row.getStartedAt()).isEqualTo(queuedAt);
+        assertThat(row.getFinishedAt()).isEqualTo(queuedAt.plusSeconds(90));
+        assertThat(row.getDurationMs()).isEqualTo(90_000);
+    }
+
+    @Test
+    void skipsUnsavedTasksAndDisabledRecording() throws Exception {
+        task.setId(null);
+        recorder.record(task, TaskStageName.DOWNLOAD, stage -> "file");
+
+        task.setId(7L);
+        ReflectionTestUtils.setField(recorder, "enabled", false);
+        recorder.record(task, TaskStageName.DOWNLOAD, stage -> "file");
+
+        verify(taskStageRepository, never()).save(any());
+    }
+
+    @Test
+    void repositoryFailureDoesNotFailTheStage() throws Exception {
+        when(taskStageRepository.save(any())).thenThrow(new IllegalStateException("database is down"));
+
+        String result = recorder.record(task, TaskStageName.DOWNLOAD, stage -> "file");
+
+        assertThat(result).isEqualTo("file");
+    }
+
+    private TaskStage savedStage() {
+        ArgumentCaptor<TaskStage> captor = ArgumentCaptor.forClass(TaskStage.class);
+        verify(taskStageRepository, atLeastOnce()).save(captor.capture());
+        return captor.getValue();
+    }
+}
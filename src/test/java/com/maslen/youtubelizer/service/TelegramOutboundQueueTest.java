@@ -0,0 +1,111 @@
+package com.maslen.youtubelizer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TelegramOutboundQueueTest {
+
+    private final TelegramOutboundQueue queue = new TelegramOutboundQueue(1000, 10, 3,
+            new PipelineMetrics(new SimpleMeterRegistry()));
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void keepsChatOrderWhileHeadIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> first = queue.submit(1, "first", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw tooManyRequests(1);
+            }
+            return send("first");
+        });
+        CompletableFuture<String> second = queue.submit(1, "second", () -> send("second"));
+        CompletableFuture<String> third = queue.submit(1, "third", () -> send("third"));
+
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+
+        assertThat(attempts).hasValue(2);
+        assertThat(sent).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void rateLimitDelaysOnlyItsOwnChat() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> limited = queue.submit(1, "limited", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw tooManyRequests(2);
+            }
+            return send("limited");
+        });
+        CompletableFuture<String> other = queue.submit(2, "other", () -> send("other"));
+
+        other.get(1, TimeUnit.SECONDS);
+        assertThat(limited).isNotDone();
+
+        limited.get(5, TimeUnit.SECONDS);
+        assertThat(sent).containsExactly("other", "limited");
+    }
+
+    @Test
+    void shutdownLetsRequestInFlightFinishAndFailsTheRest() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = queue.submit(1, "running", () -> {
+            inFlight.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return send("running");
+        });
+        CompletableFuture<String> queued = queue.submit(1, "queued", () -> send("queued"));
+        CompletableFuture<String> retrying = queue.submit(2, "retrying", () -> {
+            throw tooManyRequests(30);
+        });
+        assertThat(inFlight.await(1, TimeUnit.SECONDS)).isTrue();
+
+        Thread shutdown = Thread.ofPlatform().start(queue::shutdown);
+        release.countDown();
+        shutdown.join(TimeUnit.SECONDS.toMillis(15));
+
+        assertThat(running.get(1, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThatThrownBy(() -> queued.get(1, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThatThrownBy(() -> retrying.get(1, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(sent).containsExactly("running");
+
+        // Nothing is accepted any more, and callers are not left waiting
+        CompletableFuture<String> late = queue.submit(3, "late", () -> send("late"));
+        assertThatThrownBy(() -> late.get(1, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+    }
+
+    private String send(String text) {
+        sent.add(text);
+        return text;
+    }
+
+    private static TelegramApiRequestException tooManyRequests(int retryAfterSeconds) {
+        return new TelegramApiRequestException("Too Many Requests", new ApiResponse<>(false, 429,
+                "Too Many Requests: retry after " + retryAfterSeconds,
+                new ResponseParameters(null, retryAfterSeconds), null));
+    }
+}
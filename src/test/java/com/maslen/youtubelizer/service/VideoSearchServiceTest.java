@@ -0,0 +1,87 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.model.SearchResult;
+import com.maslen.youtubelizer.model.VideoSearchHit;
+import com.maslen.youtubelizer.model.VideoText;
+import com.maslen.youtubelizer.repository.VideoRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VideoSearchServiceTest {
+
+    @Test
+    void findsTermIgnoringCaseOnlyUpToLimit() {
+        assertThat(VideoSearchService.indexOfIgnoreCase("Привет, МИР и мир", "мир", 100)).isEqualTo(8);
+        assertThat(VideoSearchService.indexOfIgnoreCase("Hello World", "WORLD", 6)).isEqualTo(6);
+        assertThat(VideoSearchService.indexOfIgnoreCase("Hello World", "WORLD", 5)).isEqualTo(-1);
+        assertThat(VideoSearchService.indexOfIgnoreCase("abc", "abcd", 100)).isEqualTo(-1);
+    }
+
+    @Test
+    void extractsPositiveTermsWithCrudeStemming() {
+        assertThat(VideoSearchService.extractTerms("\"транскрипция видео\" or -реклама a"))
+                .containsExactly("транскрипц", "видео");
+    }
+
+    @Test
+    void shortTextIsTheWholeSnippet() {
+        assertThat(VideoSearchService.buildSnippet("Короткий текст без совпадений.", List.of("слово")))
+                .isEqualTo("Короткий текст без совпадений.");
+    }
+
+    @Test
+    void snippetStartsAtWordBeforeEarliestMatch() {
+        String text = "word ".repeat(60) + "Target and other here. " + "tail ".repeat(100);
+
+        String snippet = VideoSearchService.buildSnippet(text, List.of("other", "target"));
+
+        assertThat(snippet).startsWith("…word ").contains("Target and other").endsWith("…");
+        assertThat(text).contains(snippet.substring(1, snippet.length() - 1));
+        assertThat(snippet.length()).isLessThanOrEqualTo(240 + 2);
+    }
+
+    @Test
+    void loadsTextsOfAllHitsInOneQuery() {
+        VideoRepository repository = mock(VideoRepository.class);
+        when(repository.search(anyString(), anyString(), anyInt()))
+                .thenReturn(List.of(hit("a", 0.5f), hit("b", 0.4f), hit("c", 0.3f)));
+        when(repository.findTranscriptionTexts(any()))
+                .thenReturn(List.of(new VideoText("b", "про кошек"), new VideoText("a", "про собак")));
+
+        List<SearchResult> results = new VideoSearchService(repository).search("собак", "ru", 10);
+
+        assertThat(results).extracting(SearchResult::snippet).containsExactly("про собак", "про кошек", "");
+        verify(repository, times(1)).findTranscriptionTexts(List.of("a", "b", "c"));
+        verify(repository, never()).findTranscriptionTextByVideoId(anyString());
+    }
+
+    private static VideoSearchHit hit(String videoId, float score) {
+        return new VideoSearchHit() {
+            @Override
+            public String getVideoId() {
+                return videoId;
+            }
+
+            @Override
+            public String getVideoTitle() {
+                return null;
+            }
+
+            @Override
+            public Float getScore() {
+                return score;
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.model.WhisperSegment;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WhisperJsonParserTest {
+
+    private static final String OUTPUT = """
+            {
+              "systeminfo": "AVX = 1 | AVX2 = 1",
+              "model": {"type": "large", "multilingual": true, "mels": {"ctx": 80}},
+              "params": {"model": "ggml-large-v3.bin", "language": "auto", "translate": false},
+              "result": {"language": "ru"},
+              "transcription": [
+                {
+                  "timestamps": {"from": "00:00:00,000", "to": "00:00:03,000"},
+                  "offsets": {"from": 0, "to": 3000},
+                  "text": " Привет, мир.",
+                  "tokens": [
+                    {"text": "[_BEG_]", "offsets": {"from": 0, "to": 0}, "id": 50365, "p": 0.91, "t_dtw": -1},
+                    {"text": " Привет", "offsets": {"from": 0, "to": 1200}, "id": 101, "p": 0.9, "t_dtw": -1},
+                    {"text": ", мир.", "offsets": {"from": 1200, "to": 3000}, "id": 102, "p": 0.5, "t_dtw": -1},
+                    {"text": "[_TT_150]", "offsets": {"from": 3000, "to": 3000}, "id": 50515, "p": 0.2, "t_dtw": -1}
+                  ]
+                },
+                {
+                  "timestamps": {"from": "00:00:03,000", "to": "00:00:06,000"},
+                  "offsets": {"from": 3000, "to": 6000},
+                  "text": " Second segment",
+                  "tokens": []
+                }
+              ]
+            }
+            """;
+
+    @Test
+    void readsLanguageSegmentsAndTokens() throws Exception {
+        WhisperJsonParser.Result result = WhisperJsonParser.parse(new StringReader(OUTPUT));
+
+        assertThat(result.language()).isEqualTo("ru");
+        assertThat(result.text()).isEqualTo("Привет, мир. Second segment");
+        assertThat(result.segments()).hasSize(2);
+
+        WhisperSegment first = result.segments().get(0);
+        assertThat(first.fromMs()).isZero();
+        assertThat(first.toMs()).isEqualTo(3000);
+        // Special tokens are dropped
+        assertThat(first.tokens()).extracting("text").containsExactly(" Привет", ", мир.");
+        assertThat(first.tokens().get(1).fromMs()).isEqualTo(1200);
+        assertThat(first.averageProbability()).isCloseTo(0.7, within(1e-6));
+        assertThat(first.minProbability()).isCloseTo(0.5, within(1e-6));
+
+        WhisperSegment second = result.segments().get(1);
+        assertThat(second.fromMs()).isEqualTo(3000);
+        assertThat(second.averageProbability()).isEqualTo(1.0);
+    }
+
+    @Test
+    void emptyTranscriptionHasNoSegments() throws Exception {
+        WhisperJsonParser.Result result = WhisperJsonParser.parse(new StringReader("""
+                {"result": {"language": "en"}, "transcription": []}
+                """));
+
+        assertThat(result.language()).isEqualTo("en");
+        assertThat(result.segments()).isEmpty();
+        assertThat(result.text()).isEmpty();
+    }
+}
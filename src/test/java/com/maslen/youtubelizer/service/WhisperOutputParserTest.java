@@ -0,0 +1,75 @@
+package com.maslen.youtubelizer.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WhisperOutputParserTest {
+
+    @Test
+    void collectsSegmentsAndLanguage() {
+        WhisperOutputParser parser = new WhisperOutputParser();
+        parser.accept("main: processing 'audio_16k.wav' (9600000 samples, 600.0 sec), 8 threads");
+        parser.accept("whisper_full_with_state: auto-detected language: ru (p = 0.97)");
+        parser.accept("[00:00:00.000 --> 00:00:03.000]   Привет,  мир.");
+        parser.accept("[00:00:03.000 --> 00:00:06.000]");
+        parser.accept("[00:00:06.000 --> 00:00:09.500]  Second\tsegment ");
+
+        assertThat(parser.language()).isEqualTo("ru");
+        assertThat(parser.languageProbability()).isEqualTo(0.97);
+        assertThat(parser.transcription()).isEqualTo("Привет, мир. Second segment");
+    }
+
+    @Test
+    void fallsBackToLooseTimestamps() {
+        WhisperOutputParser parser = new WhisperOutputParser();
+        parser.accept("[00:00:00 --> 00:00:03]  Hello");
+        parser.accept("[00:00:03 --> 00:00:06]  world");
+
+        assertThat(parser.language()).isEqualTo("unknown");
+        assertThat(parser.transcription()).isEqualTo("Hello world");
+    }
+
+    @Test
+    void usageMessageYieldsEmptyTranscription() {
+        WhisperOutputParser parser = new WhisperOutputParser();
+        parser.accept("usage: whisper-cli [options] file0.wav file1.wav ...");
+        parser.accept("  -h,        --help              show this help message and exit");
+
+        assertThat(parser.transcription()).isEmpty();
+    }
+
+    @Test
+    void tracksProgressWithoutTreatingItAsText() {
+        WhisperOutputParser parser = new WhisperOutputParser();
+        parser.accept("whisper_print_progress_callback: progress =   5%");
+        parser.accept("[00:00:00.000 --> 00:00:03.000]   Hello");
+        parser.accept("whisper_print_progress_callback: progress = 100%");
+
+        assertThat(parser.progress()).isEqualTo(100);
+        assertThat(parser.transcription()).isEqualTo("Hello");
+    }
+
+    @Test
+    void keepsOnlyRecentLinesForDiagnostics() {
+        WhisperOutputParser parser = new WhisperOutputParser();
+        for (int i = 0; i < 1000; i++) {
+            parser.accept("[00:00:00.000 --> 00:00:01.000]  line " + i);
+        }
+
+        String output = parser.recentOutput();
+        assertThat(output.lines()).hasSize(WhisperOutputParser.DIAGNOSTIC_LINES + 1);
+        assertThat(output).startsWith("... (950 ").endsWith("line 999").doesNotContain("line 949\n");
+        assertThat(parser.transcription()).startsWith("line 0 line 1 ").endsWith("line 998 line 999");
+    }
+
+    @Test
+    void normalizeWhitespaceMatchesRegex() {
+        String[] samples = { "", "   ", "plain text", " lead and trail ", "a  b\tc\n\nd\r\n e", "a\u000Bb\fc",
+                "x\u0001 y" };
+        for (String sample : samples) {
+            assertThat(WhisperOutputParser.normalizeWhitespace(sample))
+                    .isEqualTo(sample.replaceAll("\\s+", " ").trim());
+        }
+    }
+}
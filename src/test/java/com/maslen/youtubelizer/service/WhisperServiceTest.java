@@ -0,0 +1,59 @@
+package com.maslen.youtubelizer.service;
+
+import com.maslen.youtubelizer.model.WhisperSegment;
+import com.maslen.youtubelizer.model.WhisperToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WhisperServiceTest {
+
+    @Test
+    void confidentDraftNeedsNoRedecoding() {
+        List<WhisperSegment> segments = List.of(segment(0, 3000, 0.9f), segment(3000, 6000, 0.8f));
+
+        assertThat(WhisperService.lowConfidenceRanges(segments, 0.6, 3000)).isEmpty();
+    }
+
+    @Test
+    void mergesNearbyLowConfidenceSegments() {
+        List<WhisperSegment> segments = List.of(
+                segment(0, 3000, 0.9f),
+                segment(3000, 6000, 0.3f),
+                // Confident, but between two uncertain segments less than 3 s apart
+                segment(6000, 8000, 0.9f),
+                segment(8000, 11000, 0.4f),
+                segment(11000, 20000, 0.95f),
+                segment(20000, 23000, 0.2f));
+
+        assertThat(WhisperService.lowConfidenceRanges(segments, 0.6, 3000))
+                .containsExactly(new int[] { 1, 3 }, new int[] { 5, 5 });
+    }
+
+    @Test
+    void segmentWithoutTokensCountsAsConfident() {
+        List<WhisperSegment> segments = List.of(new WhisperSegment(0, 3000, "text", List.of()));
+
+        assertThat(WhisperService.lowConfidenceRanges(segments, 0.6, 3000)).isEmpty();
+    }
+
+    @Test
+    void parsesPerLanguageModels() {
+        Map<String, String> models = WhisperService.parseLanguageModels(
+                " RU=/models/ggml-ru.bin, en = /models/ggml-medium.en.bin ,broken,=/x.bin,");
+
+        assertThat(models).containsExactly(
+                Map.entry("ru", "/models/ggml-ru.bin"),
+                Map.entry("en", "/models/ggml-medium.en.bin"));
+        assertThat(WhisperService.parseLanguageModels("")).isEmpty();
+    }
+
+    private static WhisperSegment segment(long fromMs, long toMs, float probability) {
+        return new WhisperSegment(fromMs, toMs, "text",
+                List.of(new WhisperToken(" a", fromMs, (fromMs + toMs) / 2, probability),
+                        new WhisperToken(" b", (fromMs + toMs) / 2, toMs, probability)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.maslen.youtubelizer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZipPackagingServiceTest {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void writesMediaUncompressedAndTextsDeflated() throws Exception {
+        // Larger than the copy buffer, random like an already compressed mp4
+        byte[] media = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(media);
+        Path video = Files.write(workDir.resolve("video.mp4"), media);
+        String text = "Повторяющийся текст транскрипции. ".repeat(2000);
+        Map<String, String> texts = new LinkedHashMap<>();
+        texts.put("transcription.txt", text);
+        texts.put("empty.txt", "");
+
+        File archive = new ZipPackagingService().createArchive(workDir.resolve("content.zip"),
+                List.of(video.toFile()), texts);
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            assertThat(zip.stream().map(ZipEntry::getName))
+                    .containsExactly("video.mp4", "transcription.txt", "empty.txt");
+
+            ZipEntry mediaEntry = zip.getEntry("video.mp4");
+            assertThat(zip.getInputStream(mediaEntry).readAllBytes()).isEqualTo(media);
+            assertThat(mediaEntry.getCompressedSize()).isGreaterThanOrEqualTo(media.length);
+
+            ZipEntry textEntry = zip.getEntry("transcription.txt");
+            byte[] textBytes = zip.getInputStream(textEntry).readAllBytes();
+            assertThat(new String(textBytes, StandardCharsets.UTF_8)).isEqualTo(text);
+            assertThat(textEntry.getCompressedSize()).isLessThan(textBytes.length / 10);
+
+            assertThat(zip.getInputStream(zip.getEntry("empty.txt")).readAllBytes()).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.maslen.youtubelizer.service.handler;
+
+import com.maslen.youtubelizer.entity.DownloadTask;
+import com.maslen.youtubelizer.model.TaskStatus;
+import com.maslen.youtubelizer.model.TaskType;
+import com.maslen.youtubelizer.repository.DownloadTaskRepository;
+import com.maslen.youtubelizer.repository.TaskStageRepository;
+import com.maslen.youtubelizer.repository.VideoRepository;
+import com.maslen.youtubelizer.service.FfmpegService;
+import com.maslen.youtubelizer.service.MediaDeliveryService;
+import com.maslen.youtubelizer.service.MessageService;
+import com.maslen.youtubelizer.service.NormalizationService;
+import com.maslen.youtubelizer.service.TaskStageRecorder;
+import com.maslen.youtubelizer.service.TelegramNotificationService;
+import com.maslen.youtubelizer.service.TranscriptionService;
+import com.maslen.youtubelizer.service.YtDlpService;
+import com.maslen.youtubelizer.service.ZipPackagingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class FullProcessingTaskHandlerTest {
+
+    private final YtDlpService ytDlpService = mock(YtDlpService.class);
+    private final TranscriptionService transcriptionService = mock(TranscriptionService.class);
+    private final MediaDeliveryService mediaDeliveryService = mock(MediaDeliveryService.class);
+    private final VideoRepository videoRepository = mock(VideoRepository.class);
+    private final DownloadTaskRepository downloadTaskRepository = mock(DownloadTaskRepository.class);
+    private final MessageService messageService = mock(MessageService.class);
+    private final ExecutorService pipelineExecutor = Executors.newFixedThreadPool(2);
+    private FullProcessingTaskHandler handler;
+    private DownloadTask task;
+
+    @BeforeEach
+    void setUp() {
+        when(messageService.getMessage(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        handler = new FullProcessingTaskHandler(downloadTaskRepository, mock(TelegramNotificationService.class),
+                messageService, ytDlpService, mock(FfmpegService.class), transcriptionService,
+                mock(NormalizationService.class), mock(ZipPackagingService.class), mediaDeliveryService,
+                videoRepository, pipelineExecutor, new TaskStageRecorder(mock(TaskStageRepository.class)));
+        task = new DownloadTask();
+        task.setId(1L);
+        task.setChatId(10L);
+        task.setVideoId("abc");
+        task.setType(TaskType.FULL_PROCESSING_ZIP);
+        task.setLanguageCode("en");
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipelineExecutor.shutdownNow();
+    }
+
+    @Test
+    void failedMediaBranchCancelsTextBranchAndRemovesItsFiles() throws Exception {
+        when(videoRepository.findStatusByVideoId("abc")).thenReturn(Optional.empty());
+
+        // The text branch writes a partial download and then blocks until it is interrupted
+        CountDownLatch speechStarted = new CountDownLatch(1);
+        AtomicReference<Path> workDir = new AtomicReference<>();
+        AtomicBoolean textInterrupted = new AtomicBoolean();
+        when(ytDlpService.downloadAudioForTranscription(anyString(), any(Path.class), eq("speech")))
+                .thenAnswer(invocation -> {
+                    Path dir = invocation.getArgument(1);
+                    workDir.set(dir);
+                    File partial = Files.writeString(dir.resolve("speech.m4a.part"), "partial").toFile();
+                    speechStarted.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                    } catch (InterruptedException e) {
+                        textInterrupted.set(true);
+                        throw e;
+                    }
+                    return partial;
+                });
+
+        // The media branch fails the size check once the text branch is under way
+        when(mediaDeliveryService.chooseVideoFormat(eq(task), anyString(), anyDouble())).thenAnswer(invocation -> {
+            assertThat(speechStarted.await(10, TimeUnit.SECONDS)).isTrue();
+            throw new IOException("File is too large");
+        });
+
+        long start = System.nanoTime();
+        handler.handle(task);
+
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(10);
+        assertThat(textInterrupted).isTrue();
+        assertThat(workDir.get()).doesNotExist();
+        assertThat(task.getStatus()).isEqualTo(TaskStatus.FAILED);
+        assertThat(task.getErrorMessage()).contains("File is too large");
+        verify(ytDlpService, never()).downloadVideo(anyString(), any(Path.class), anyString(), anyString());
+        verifyNoInteractions(transcriptionService);
+        verify(mediaDeliveryService, never()).deliver(any(), any(), anyString());
+    }
+}
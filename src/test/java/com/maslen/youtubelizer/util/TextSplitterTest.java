@@ -0,0 +1,96 @@
+package com.maslen.youtubelizer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextSplitterTest {
+
+    @Test
+    void shortTextIsReturnedAsSinglePart() {
+        List<CharSequence> parts = TextSplitter.split("  Hello world.  ", 100);
+
+        assertThat(parts).hasSize(1);
+        assertThat(parts.get(0).toString()).isEqualTo("Hello world.");
+    }
+
+    @Test
+    void emptyAndBlankTextProduceNoParts() {
+        assertThat(TextSplitter.split("", 10)).isEmpty();
+        assertThat(TextSplitter.split(" \n\t ", 10)).isEmpty();
+    }
+
+    @Test
+    void cutsAtLastSentenceBoundaryThatFits() {
+        String text = "First sentence. Second one! Third sentence is here?";
+
+        List<String> parts = asStrings(TextSplitter.split(text, 30));
+
+        assertThat(parts).containsExactly("First sentence. Second one!", "Third sentence is here?");
+    }
+
+    @Test
+    void fallsBackToWordBoundaryWhenSentenceIsTooLong() {
+        String text = "one two three four five six seven eight nine ten";
+
+        List<String> parts = asStrings(TextSplitter.split(text, 15));
+
+        assertThat(parts).containsExactly("one two three", "four five six", "seven eight", "nine ten");
+    }
+
+    @Test
+    void hardCutsWordsLongerThanLimit() {
+        String text = "abcdefghijklmnopqrstuvwxyz";
+
+        List<String> parts = asStrings(TextSplitter.split(text, 10));
+
+        assertThat(parts).containsExactly("abcdefghij", "klmnopqrst", "uvwxyz");
+    }
+
+    @Test
+    void doesNotSplitSurrogatePairs() {
+        String emoji = "😀";
+        String text = "abc" + emoji + "def";
+
+        List<String> parts = asStrings(TextSplitter.split(text, 4));
+
+        assertThat(parts).containsExactly("abc", emoji + "de", "f");
+    }
+
+    @Test
+    void partsNeverExceedLimitAndCoverAllWords() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("word").append(i).append(i % 7 == 0 ? ". " : " ");
+        }
+        String text = sb.toString();
+
+        List<CharSequence> parts = TextSplitter.split(text, 4000);
+
+        assertThat(parts).allSatisfy(part -> assertThat(part.length()).isLessThanOrEqualTo(4000));
+        String joined = String.join(" ", asStrings(parts));
+        assertThat(joined).isEqualTo(text.strip());
+    }
+
+    @Test
+    void boundariesAreOffsetsIntoOriginalText() {
+        String text = "Alpha beta. Gamma delta.";
+
+        int[] bounds = TextSplitter.boundaries(text, 12);
+
+        assertThat(bounds).containsExactly(0, 11, 12, 24);
+    }
+
+    @Test
+    void rejectsNonPositiveLimit() {
+        assertThatThrownBy(() -> TextSplitter.split("text", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> asStrings(List<CharSequence> parts) {
+        return parts.stream().map(CharSequence::toString).toList();
+    }
+}